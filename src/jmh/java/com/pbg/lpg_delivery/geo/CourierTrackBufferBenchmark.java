@@ -0,0 +1,127 @@
+package com.pbg.lpg_delivery.geo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustained ingestion: request threads append batches of pings for many couriers, and the rings are drained and
+ * downsampled as they fill. The flush writes to a JdbcTemplate that only counts the rows, so the benchmark measures
+ * the CPU cost of the buffer and not the database; the load test measures both over HTTP at a fixed rate of pings.
+ * Scores are pings per second.
+ * <p>
+ * The threads append as fast as they can, so a flusher running on a timer would fall behind on a busy machine and
+ * let the rings overflow. Each thread flushes instead after every round over its couriers, when their rings hold
+ * one batch, and the score includes the flushes. Pings overwritten anyway are printed at the end and must be 0.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(CourierTrackBufferBenchmark.THREADS)
+public class CourierTrackBufferBenchmark {
+
+    private static final int PINGS_PER_BATCH = 10;
+    static final int THREADS = 4;
+
+    @Param({"10000"})
+    private int couriers;
+
+    private CourierTrackBuffer buffer;
+    private CountingJdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        jdbcTemplate = new CountingJdbcTemplate();
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new CourierTrackBuffer(jdbcTemplate, meterRegistry, 256, 10_000, 25, 500, 100_000, 30, 5000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%d track point(s) and %d position(s) written, %d ping(s) overwritten%n",
+                jdbcTemplate.points.get(), jdbcTemplate.positions.get(),
+                (long) meterRegistry.counter("lpg.tracks.overwritten").count());
+    }
+
+    /**
+     * The devices of the couriers served by one request thread. Every thread gets its own couriers, so the pings of
+     * a courier stay in order.
+     */
+    @State(Scope.Thread)
+    public static class Devices {
+
+        private long firstCourier;
+        private int count;
+        private int next;
+        private long[] sentSeconds;
+        // starts a day ago, so pings are never dated in the future
+        private final LocalDateTime start = LocalDateTime.now().minusDays(1);
+
+        @Setup
+        public void setUp(CourierTrackBufferBenchmark benchmark) {
+            count = benchmark.couriers / THREADS;
+            firstCourier = (long) benchmark.threadIndex.getAndIncrement() * count + 1;
+            sentSeconds = new long[count];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PINGS_PER_BATCH)
+    public int appendBatch(Devices devices) {
+        int device = devices.next;
+        devices.next = (device + 1) % devices.count;
+        if (devices.next == 0) {
+            buffer.flush();
+        }
+        long courierId = devices.firstCourier + device;
+        List<CourierTrackBuffer.Ping> pings = new ArrayList<>(PINGS_PER_BATCH);
+        for (int i = 0; i < PINGS_PER_BATCH; i++) {
+            long second = ++devices.sentSeconds[device];
+            // one fix per second at about 8 m/s northwards: the distance rule keeps one ping in four
+            pings.add(new CourierTrackBuffer.Ping(
+                    new GeoPoint(28.5 + (courierId % 100) * 0.001 + second * 0.00007, 77.1),
+                    devices.start.plusSeconds(second)));
+        }
+        return buffer.append(courierId, pings);
+    }
+
+    private static final class CountingJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicLong points = new AtomicLong();
+        private final AtomicLong positions = new AtomicLong();
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            (sql.startsWith("INSERT") ? points : positions).addAndGet(batchArgs.size());
+            return new int[0][];
+        }
+    }
+}
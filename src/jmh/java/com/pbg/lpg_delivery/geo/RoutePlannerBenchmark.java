@@ -0,0 +1,90 @@
+package com.pbg.lpg_delivery.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The morning batch: 500 couriers with 40 stops each, spread over a city, planned one after the other and on the
+ * fork/join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutePlannerBenchmark {
+
+    private static final GeoPoint CITY_CENTRE = new GeoPoint(28.6315, 77.2167);
+
+    @Param({"500"})
+    private int couriers;
+
+    @Param({"40"})
+    private int stopsPerCourier;
+
+    private final RoutePlanner planner = new RoutePlanner(50);
+    private List<RoutePlanner.RouteProblem> problems;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        problems = new ArrayList<>(couriers);
+        for (int courier = 0; courier < couriers; courier++) {
+            // each courier covers a neighbourhood of about 5 km around a point of a 30 km wide city
+            GeoPoint area = around(CITY_CENTRE, 0.15, random);
+            List<GeoPoint> stops = new ArrayList<>(stopsPerCourier);
+            for (int stop = 0; stop < stopsPerCourier; stop++) {
+                stops.add(around(area, 0.025, random));
+            }
+            problems.add(new RoutePlanner.RouteProblem(around(area, 0.025, random), stops));
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] planOneRoute() {
+        RoutePlanner.RouteProblem problem = problems.get(0);
+        return planner.plan(problem.start(), problem.stops());
+    }
+
+    @Benchmark
+    public List<int[]> planAllSequentially() {
+        List<int[]> plans = new ArrayList<>(problems.size());
+        for (RoutePlanner.RouteProblem problem : problems) {
+            plans.add(planner.plan(problem.start(), problem.stops()));
+        }
+        return plans;
+    }
+
+    @Benchmark
+    public List<int[]> planAllOnForkJoinPool() {
+        return planner.planAll(problems, pool);
+    }
+
+    private static GeoPoint around(GeoPoint centre, double spreadDegrees, Random random) {
+        return new GeoPoint(centre.latitude() + (random.nextDouble() * 2 - 1) * spreadDegrees,
+                centre.longitude() + (random.nextDouble() * 2 - 1) * spreadDegrees);
+    }
+}
@@ -0,0 +1,101 @@
+package com.pbg.lpg_delivery.model.entity;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.OrderDetails;
+import com.pbg.lpg_delivery.model.responses.OrderReportRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of order lists into response records: the entity based mappers used by the write paths and the
+ * projection grouping used by the read endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param("10000")
+    private int orders;
+
+    private UserEntity user;
+    private List<OrderEntity> orderEntities;
+    private List<OrderReportRow> reportRows;
+    private LocalDateTime saturdayMorning;
+
+    @Setup
+    public void setUp() {
+        user = UserEntity.builder()
+                .userId(1L)
+                .username("john_doe")
+                .email("john.doe@example.com")
+                .phoneNumber("9876543210")
+                .address("123 Main Street, Springfield")
+                .role(Role.CUSTOMER)
+                .build();
+
+        LocalDateTime now = LocalDateTime.of(2025, 2, 20, 10, 30);
+        orderEntities = new ArrayList<>(orders);
+        reportRows = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            CylinderType type = i % 2 == 0 ? CylinderType.DOMESTIC : CylinderType.COMMERCIAL;
+            OrderEntity order = OrderEntity.builder()
+                    .orderId((long) i)
+                    .user(user)
+                    .cylinderType(type)
+                    .capacity(type.getCapacity())
+                    .quantity(1 + i % 3)
+                    .totalPrice(550.0 * (1 + i % 3))
+                    .status(OrderStatus.PENDING)
+                    .orderDate(now.minusMinutes(i))
+                    .build();
+            orderEntities.add(order);
+            // spread the rows over 100 customers, as in the admin date range report
+            String username = "customer_" + (i % 100);
+            reportRows.add(new OrderReportRow(order.getOrderId(), username, username + "@example.com", "9876543210",
+                    user.getAddress(), order.getCylinderType(), order.getCapacity(), order.getQuantity(),
+                    order.getTotalPrice(), order.getStatus(), order.getOrderDate(), order.getDeliveryDate()));
+        }
+        saturdayMorning = LocalDateTime.of(2025, 2, 22, 9, 15, 30, 123_456_789);
+    }
+
+    @Benchmark
+    public OrderDetails toOrderDetails() {
+        return OrderEntity.toOrderDetails(orderEntities, true);
+    }
+
+    @Benchmark
+    public OrderDetails mapToOrderDetails() {
+        return OrderEntity.mapToOrderDetails(user, orderEntities, true);
+    }
+
+    @Benchmark
+    public List<OrderDetails> groupReportRowsByUser() {
+        return OrderReportRow.groupByUser(reportRows);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public LocalDateTime calculateExpectedDeliveryDate() {
+        return DeliveryEntity.calculateExpectedDeliveryDate(saturdayMorning);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pbg.lpg_delivery.security;
+
+import com.pbg.lpg_delivery.common.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in {@link JwtRequestFilter}.
+ * <ul>
+ *     <li>{@code legacyTripleParse}: the previous filter, which parsed the token three times (username, user id and
+ *     role, then validation) with a String key that jjwt Base64-decodes on every parse.</li>
+ *     <li>{@code parseOnce}: a single parse with the prebuilt key.</li>
+ *     <li>{@code cachedVerify}: the filter path, a digest lookup in the verified-token cache.</li>
+ * </ul>
+ * {@code generateToken} and {@code validateToken} cover sign-in and the remaining public API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private String secret;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        secret = Base64.getEncoder().encodeToString("benchmark-secret-benchmark-secret-0123456789".getBytes());
+        jwtUtil = new JwtUtil(secret, TimeUnit.HOURS.toMillis(1), 10_000);
+        token = jwtUtil.generateToken("customer1", 42L, Role.CUSTOMER);
+        jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public void legacyTripleParse(Blackhole blackhole) {
+        Claims subject = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        Claims principal = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        Claims validation = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        blackhole.consume(subject.getSubject());
+        blackhole.consume(principal.get("userId"));
+        blackhole.consume(principal.get("role"));
+        blackhole.consume(validation.getSubject().equals(subject.getSubject())
+                && validation.getExpiration().after(new Date()));
+    }
+
+    @Benchmark
+    public VerifiedToken parseOnce() {
+        return jwtUtil.parseAndVerify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken cachedVerify() {
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("customer1", 42L, Role.CUSTOMER);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, "customer1");
+    }
+}
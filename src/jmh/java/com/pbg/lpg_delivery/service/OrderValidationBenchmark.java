@@ -0,0 +1,62 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request validation done before an order touches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderValidationBenchmark {
+
+    private CylinderType type = CylinderType.DOMESTIC;
+    private Double capacity = 14.5;
+    private Double mismatchedCapacity = 18.5;
+    private String typeName = "domestic";
+    private String unknownTypeName = "industrial";
+
+    @Benchmark
+    public void validateCylinderTypeAndCapacity() {
+        OrderService.validateCylinderTypeAndCapacity(type, capacity);
+    }
+
+    @Benchmark
+    public void validateCylinderTypeAndCapacityRejected(Blackhole blackhole) {
+        try {
+            OrderService.validateCylinderTypeAndCapacity(type, mismatchedCapacity);
+        } catch (LpgException ex) {
+            blackhole.consume(ex);
+        }
+    }
+
+    @Benchmark
+    public CylinderType cylinderTypeFromString() {
+        return CylinderType.fromString(typeName);
+    }
+
+    @Benchmark
+    public void cylinderTypeFromStringRejected(Blackhole blackhole) {
+        try {
+            CylinderType.fromString(unknownTypeName);
+        } catch (LpgException ex) {
+            blackhole.consume(ex);
+        }
+    }
+}
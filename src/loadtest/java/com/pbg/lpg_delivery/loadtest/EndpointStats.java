@@ -0,0 +1,49 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters of one endpoint. Latencies are recorded in microseconds with three
+ * significant digits, up to one minute.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    void record(long latencyNanos, int statusCode) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (statusCode < 200 || statusCode >= 300) {
+            errors.increment();
+        }
+    }
+
+    long count() {
+        return latencies.getTotalCount();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    Map<String, Long> statusCodes() {
+        Map<String, Long> counts = new TreeMap<>();
+        statusCodes.forEach((code, count) -> counts.put(code == 0 ? "io-error" : String.valueOf(code), count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Thin JSON client over {@link HttpClient} for the endpoints the virtual users call.
+ */
+final class LoadTestClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final ObjectMapper objectMapper;
+
+    LoadTestClient(HttpClient httpClient, URI baseUri, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Signs in outside of any measurement and returns the token.
+     *
+     * @throws IllegalStateException if the credentials are rejected
+     */
+    String signIn(String username, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/auth/signin", Map.of("username", username, "password", password), null);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Sign-in of " + username + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return token(response);
+    }
+
+    String token(HttpResponse<String> response) throws IOException {
+        JsonNode body = objectMapper.readTree(response.body());
+        return body.path("data").asText();
+    }
+
+    HttpResponse<String> send(String method, String path, Object body, String token) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, publisher);
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,108 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load-test run, parsed from {@code --name=value} arguments.
+ *
+ * @param users         concurrent virtual users, each one a customer account
+ * @param couriers      delivery person accounts orders are assigned to, and devices sending pings
+ * @param warmup        time the load runs before latencies are recorded
+ * @param duration      time latencies are recorded for
+ * @param thinkTime     pause of a virtual user between two calls
+ * @param mix           relative weight of each operation
+ * @param virtualThreads whether the application serves requests on virtual threads
+ * @param pingsPerSecond position fixes the couriers upload per second in total, 0 for none
+ * @param pingBatch     position fixes per upload
+ * @param output        file the JSON report is written to
+ */
+record LoadTestConfig(int users, int couriers, Duration warmup, Duration duration, Duration thinkTime,
+                      Map<Operation, Integer> mix, boolean virtualThreads, int pingsPerSecond, int pingBatch,
+                      Path output) {
+
+    static final String USAGE = """
+            Options (all optional):
+              --users=50              concurrent virtual users
+              --couriers=10           delivery person accounts
+              --warmup=10s            warm-up before recording
+              --duration=60s          recording time
+              --think-time=0ms        pause between two calls of a user
+              --mix=signin:5,create:35,modify:15,cancel:10,assign:20,deliver:15
+              --virtual-threads=false run the application with spring.threads.virtual.enabled
+              --pings-per-second=0    position fixes uploaded by the couriers per second, at a fixed rate
+              --ping-batch=10         position fixes per upload
+              --output=build/reports/loadtest/results.json""";
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unexpected argument '" + arg + "'\n" + USAGE);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                Integer.parseInt(options.getOrDefault("users", "50")),
+                Integer.parseInt(options.getOrDefault("couriers", "10")),
+                parseDuration(options.getOrDefault("warmup", "10s")),
+                parseDuration(options.getOrDefault("duration", "60s")),
+                parseDuration(options.getOrDefault("think-time", "0ms")),
+                parseMix(options.getOrDefault("mix", "signin:5,create:35,modify:15,cancel:10,assign:20,deliver:15")),
+                Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false")),
+                Integer.parseInt(options.getOrDefault("pings-per-second", "0")),
+                Integer.parseInt(options.getOrDefault("ping-batch", "10")),
+                Path.of(options.getOrDefault("output", "build/reports/loadtest/results.json")));
+        if (config.users() < 0 || config.couriers() <= 0 || config.pingsPerSecond() < 0) {
+            throw new IllegalArgumentException("couriers must be positive, users and pings must not be negative\n" + USAGE);
+        }
+        if (config.users() == 0 && config.pingsPerSecond() == 0) {
+            throw new IllegalArgumentException("Nothing to run: set users or pings-per-second\n" + USAGE);
+        }
+        if (config.pingBatch() < 1 || config.pingBatch() > 100) {
+            throw new IllegalArgumentException("ping-batch must be between 1 and 100\n" + USAGE);
+        }
+        return config;
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Invalid duration '" + value + "', use ms, s or m\n" + USAGE);
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "'\n" + USAGE);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative\n" + USAGE);
+            }
+            Operation operation = Operation.fromKey(parts[0].trim());
+            if (operation == Operation.RECORD_PINGS) {
+                throw new IllegalArgumentException("Pings are not part of the mix, use pings-per-second\n" + USAGE);
+            }
+            mix.put(operation, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight\n" + USAGE);
+        }
+        return mix;
+    }
+}
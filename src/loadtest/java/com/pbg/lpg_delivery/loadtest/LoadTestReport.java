@@ -0,0 +1,149 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint throughput, error rate and latency percentiles of a run. Latencies are reported in milliseconds. Runs
+ * with pings also report the rate of fixes reached and what the track buffer did with them.
+ */
+final class LoadTestReport {
+
+    private final LoadTestConfig config;
+    private final Map<Operation, EndpointStats> stats;
+    private final Duration recorded;
+    private Map<String, Object> trackBuffer;
+
+    LoadTestReport(LoadTestConfig config, Map<Operation, EndpointStats> stats, Duration recorded) {
+        this.config = config;
+        this.stats = stats;
+        this.recorded = recorded;
+    }
+
+    void trackBuffer(Map<String, Object> trackBuffer) {
+        this.trackBuffer = trackBuffer;
+    }
+
+    void write(Path output) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), toMap());
+    }
+
+    void print() {
+        System.out.printf("%n%-48s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(3);
+        stats.forEach((operation, endpoint) -> {
+            total.add(endpoint.latencies());
+            printRow(operation.endpoint(), endpoint.latencies(), endpoint.errors());
+        });
+        printRow("total", total, stats.values().stream().mapToLong(EndpointStats::errors).sum());
+        if (config.pingsPerSecond() > 0) {
+            System.out.printf("%npings/s: %d target, %.0f sent%n", config.pingsPerSecond(), pingsSentPerSecond());
+        }
+        if (trackBuffer != null) {
+            System.out.printf("track buffer: %s%n", trackBuffer);
+        }
+    }
+
+    private void printRow(String name, Histogram latencies, long errors) {
+        System.out.printf("%-48s %9d %9.1f %6.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, latencies.getTotalCount(), throughput(latencies.getTotalCount()), errorRate(errors, latencies.getTotalCount()),
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(95)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private Map<String, Object> toMap() {
+        Map<String, Object> configMap = new LinkedHashMap<>();
+        configMap.put("users", config.users());
+        configMap.put("couriers", config.couriers());
+        configMap.put("warmupSeconds", config.warmup().toMillis() / 1000.0);
+        configMap.put("durationSeconds", config.duration().toMillis() / 1000.0);
+        configMap.put("thinkTimeMs", config.thinkTime().toMillis());
+        configMap.put("requestThreads", config.virtualThreads() ? "virtual" : "platform");
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        config.mix().forEach((operation, weight) -> mix.put(operation.key(), weight));
+        configMap.put("mix", mix);
+        configMap.put("pingsPerSecond", config.pingsPerSecond());
+        configMap.put("pingBatch", config.pingBatch());
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<Operation, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            total.add(endpoint.latencies());
+            totalErrors += endpoint.errors();
+            Map<String, Object> summary = summary(endpoint.latencies(), endpoint.errors());
+            summary.put("endpoint", entry.getKey().endpoint());
+            summary.put("statusCodes", endpoint.statusCodes());
+            endpoints.put(entry.getKey().key(), summary);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("config", configMap);
+        report.put("recordedSeconds", recorded.toMillis() / 1000.0);
+        report.put("total", summary(total, totalErrors));
+        report.put("endpoints", endpoints);
+        if (config.pingsPerSecond() > 0) {
+            Map<String, Object> pings = new LinkedHashMap<>();
+            pings.put("targetPerSecond", config.pingsPerSecond());
+            pings.put("sentPerSecond", round(pingsSentPerSecond()));
+            pings.put("trackBuffer", trackBuffer);
+            report.put("pings", pings);
+        }
+        return report;
+    }
+
+    private Map<String, Object> summary(Histogram latencies, long errors) {
+        long count = latencies.getTotalCount();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("errorRatePercent", round(errorRate(errors, count)));
+        summary.put("throughputPerSecond", round(throughput(count)));
+        Map<String, Object> latencyMs = new LinkedHashMap<>();
+        latencyMs.put("mean", round(count == 0 ? 0 : latencies.getMean() / 1000.0));
+        latencyMs.put("p50", round(millis(latencies.getValueAtPercentile(50))));
+        latencyMs.put("p95", round(millis(latencies.getValueAtPercentile(95))));
+        latencyMs.put("p99", round(millis(latencies.getValueAtPercentile(99))));
+        latencyMs.put("p99.9", round(millis(latencies.getValueAtPercentile(99.9))));
+        latencyMs.put("max", round(millis(latencies.getMaxValue())));
+        summary.put("latencyMs", latencyMs);
+        return summary;
+    }
+
+    private double pingsSentPerSecond() {
+        return throughput(stats.get(Operation.RECORD_PINGS).count() * config.pingBatch());
+    }
+
+    private double throughput(long count) {
+        return recorded.isZero() ? 0 : count * 1000.0 / recorded.toMillis();
+    }
+
+    private static double errorRate(long errors, long count) {
+        return count == 0 ? 0 : errors * 100.0 / count;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
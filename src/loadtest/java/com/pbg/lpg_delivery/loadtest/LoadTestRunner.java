@@ -0,0 +1,218 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pbg.lpg_delivery.LpgDeliveryApplication;
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.geo.CourierTrackBuffer;
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the application on a random port against the in-memory {@code loadtest} profile, seeds accounts and stock,
+ * and drives it with concurrent virtual users. Run it with {@code ./gradlew loadTest --args="--users=100"}.
+ * <p>
+ * Every virtual user is a customer running a closed loop over the configured operation mix. With
+ * {@code --pings-per-second} the couriers also upload position fixes at that rate, see {@link PingLoad}. Latencies
+ * are only recorded after the warm-up and end up, per endpoint, in the JSON report written by
+ * {@link LoadTestReport}, along with what the track buffer did with the fixes.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    static final String PASSWORD = "load-test-password";
+    static final String ADMIN = "loadtest_admin";
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LpgDeliveryApplication.class)
+                .profiles("loadtest")
+                .properties("server.port=0", "spring.threads.virtual.enabled=" + config.virtualThreads(),
+                        // every courier's token stays verified, as it would on a deployment sized for them
+                        "lpg.security.token-cache.max-size=" + Math.max(10_000, config.couriers() + config.users() + 1))
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<UserEntity> couriers = seed(context, config);
+            // tokens are issued directly, signing thousands of couriers in would only measure BCrypt
+            JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+            List<String> courierTokens = couriers.stream()
+                    .map(courier -> jwtUtil.generateToken(courier.getUsername(), courier.getUserId(), courier.getRole()))
+                    .toList();
+
+            LoadTestReport report = run(config, URI.create("http://localhost:" + port),
+                    context.getBean(ObjectMapper.class), context.getBean(JdbcTemplate.class), courierTokens);
+            if (config.pingsPerSecond() > 0) {
+                // the buffer flushes the fixes that are still in the rings on shutdown, count them too
+                context.getBean(CourierTrackBuffer.class).flush();
+                report.trackBuffer(trackBuffer(context.getBean(MeterRegistry.class),
+                        context.getBean(JdbcTemplate.class)));
+            }
+            report.write(config.output());
+            report.print();
+            logger.info("Report written to {}", config.output().toAbsolutePath());
+        }
+    }
+
+    private static List<UserEntity> seed(ConfigurableApplicationContext context, LoadTestConfig config) {
+        // one hash for every account, so seeding does not pay for thousands of BCrypt rounds
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        List<UserEntity> users = new ArrayList<>();
+        users.add(account(ADMIN, Role.ADMIN, passwordHash));
+        for (int i = 0; i < config.couriers(); i++) {
+            users.add(account(courierName(i), Role.DELIVERY_PERSON, passwordHash));
+        }
+        for (int i = 0; i < config.users(); i++) {
+            users.add(account(customerName(i), Role.CUSTOMER, passwordHash));
+        }
+        List<UserEntity> saved = context.getBean(UserRepository.class).saveAll(users);
+
+        LpgCylinderRepository cylinders = context.getBean(LpgCylinderRepository.class);
+        for (CylinderType type : CylinderType.values()) {
+            cylinders.save(LpgCylinderEntity.builder()
+                    .type(type)
+                    .weight(type.getCapacity())
+                    .price(type == CylinderType.DOMESTIC ? 550.0 : 750.0)
+                    .stockQuantity(1_000_000_000)
+                    .build());
+        }
+        logger.info("Seeded 1 admin, {} couriers, {} customers and stock for {} cylinder types",
+                config.couriers(), config.users(), CylinderType.values().length);
+        return saved.subList(1, 1 + config.couriers());
+    }
+
+    private static LoadTestReport run(LoadTestConfig config, URI baseUri, ObjectMapper objectMapper,
+                                      JdbcTemplate jdbcTemplate, List<String> courierTokens) throws Exception {
+        ExecutorService httpThreads = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            return run(config, baseUri, objectMapper, jdbcTemplate, courierTokens, httpThreads);
+        } finally {
+            httpThreads.shutdownNow();
+        }
+    }
+
+    private static LoadTestReport run(LoadTestConfig config, URI baseUri, ObjectMapper objectMapper,
+                                      JdbcTemplate jdbcTemplate, List<String> courierTokens,
+                                      ExecutorService httpThreads) throws Exception {
+        // the load generator itself runs on virtual threads so thousands of users do not need thousands of OS threads
+        ExecutorService userThreads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(httpThreads)
+                .build();
+        LoadTestClient client = new LoadTestClient(httpClient, baseUri, objectMapper);
+
+        Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats());
+        }
+
+        String adminToken = client.signIn(ADMIN, PASSWORD);
+        List<String> couriers = new ArrayList<>();
+        for (int i = 0; i < config.couriers(); i++) {
+            couriers.add(courierName(i));
+        }
+
+        long startNanos = System.nanoTime();
+        long recordFromNanos = startNanos + config.warmup().toNanos();
+        long endNanos = recordFromNanos + config.duration().toNanos();
+        logger.info("Running {} virtual users and {} pings/s against {} request threads: {} warm-up, {} recorded",
+                config.users(), config.pingsPerSecond(), config.virtualThreads() ? "virtual" : "platform",
+                config.warmup(), config.duration());
+
+        Thread pingThread = null;
+        if (config.pingsPerSecond() > 0) {
+            pingThread = Thread.ofPlatform().name("loadtest-pings").start(new PingLoad(config, client,
+                    stats.get(Operation.RECORD_PINGS), courierTokens, userThreads, recordFromNanos, endNanos));
+        }
+
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < config.users(); i++) {
+            VirtualUser user = new VirtualUser(customerName(i), config, client, stats, jdbcTemplate,
+                    adminToken, couriers, courierTokens, recordFromNanos, endNanos);
+            users.add(user);
+            userThreads.submit(user);
+        }
+
+        if (pingThread != null) {
+            pingThread.join();
+        }
+        userThreads.shutdown();
+        long timeoutNanos = endNanos - System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        if (!userThreads.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            logger.warn("Virtual users did not stop in time, interrupting them");
+            userThreads.shutdownNow();
+        }
+        long failedUsers = users.stream().filter(VirtualUser::failed).count();
+        if (failedUsers > 0) {
+            logger.warn("{} virtual user(s) stopped early on an unexpected error", failedUsers);
+        }
+
+        return new LoadTestReport(config, stats, Duration.ofNanos(endNanos - recordFromNanos));
+    }
+
+    /**
+     * What the track buffer did with the fixes over the whole run, warm-up included, and how long its flushes to the
+     * database took.
+     */
+    private static Map<String, Object> trackBuffer(MeterRegistry meterRegistry, JdbcTemplate jdbcTemplate) {
+        Timer flushes = meterRegistry.get("lpg.tracks.flush").timer();
+        Map<String, Object> trackBuffer = new LinkedHashMap<>();
+        for (String counter : List.of("pings", "ignored", "overwritten", "written", "dropped")) {
+            trackBuffer.put(counter, (long) meterRegistry.get("lpg.tracks." + counter).counter().count());
+        }
+        trackBuffer.put("trackRows", jdbcTemplate.queryForObject("SELECT COUNT(*) FROM courier_tracks", Long.class));
+        trackBuffer.put("flushes", flushes.count());
+        trackBuffer.put("flushMeanMs", flushes.mean(TimeUnit.MILLISECONDS));
+        trackBuffer.put("flushMaxMs", flushes.max(TimeUnit.MILLISECONDS));
+        return trackBuffer;
+    }
+
+    private static UserEntity account(String username, Role role, String passwordHash) {
+        return UserEntity.builder()
+                .username(username)
+                .password(passwordHash)
+                .email(username + "@loadtest.local")
+                .phoneNumber("9000000000")
+                .address("1 Load Test Lane")
+                .role(role)
+                .build();
+    }
+
+    static String customerName(int index) {
+        return "loadtest_customer_" + index;
+    }
+
+    static String courierName(int index) {
+        return "loadtest_courier_" + index;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pbg.lpg_delivery.loadtest;
+
+/**
+ * Calls a virtual user can make, with the key used in the {@code --mix} option and the report. Pings are sent by
+ * {@link PingLoad} at a fixed rate instead.
+ */
+enum Operation {
+
+    SIGNIN("signin", "POST /auth/signin"),
+    CREATE_ORDER("create", "POST /api/orders"),
+    MODIFY_ORDER("modify", "PUT /api/orders/{orderId}"),
+    CANCEL_ORDER("cancel", "DELETE /api/orders/{orderId}"),
+    ASSIGN_ORDER("assign", "PUT /v1/delivery/{orderId}/assign/{userName}"),
+    MARK_DELIVERED("deliver", "PUT /v1/delivery/{orderId}/mark-delivered"),
+    RECORD_PINGS("pings", "POST /v1/delivery/pings");
+
+    private final String key;
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    String key() {
+        return key;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'\n" + LoadTestConfig.USAGE);
+    }
+}
@@ -0,0 +1,126 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import com.pbg.lpg_delivery.model.request.GpsPing;
+import com.pbg.lpg_delivery.model.request.GpsPingBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The devices of the couriers uploading their position fixes at a fixed total rate, whether or not the application
+ * keeps up. Uploads go to the couriers in turn, so every courier takes one fix per {@code couriers / pingsPerSecond}
+ * seconds and uploads {@code pingBatch} of them at a time, moving about 8 m between two fixes.
+ * <p>
+ * Latencies are measured from the time an upload was due, not from when it was sent, so a server that falls behind
+ * shows up in the percentiles instead of slowing the load down. At most one second of uploads is in flight; beyond
+ * that the schedule slips and the rate reached drops below the target. Uploads are recorded when they complete
+ * within the recorded period, whenever they were due.
+ */
+final class PingLoad implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PingLoad.class);
+
+    // about 8 m northwards
+    private static final double DEGREES_PER_FIX = 0.00007;
+
+    private final LoadTestConfig config;
+    private final LoadTestClient client;
+    private final EndpointStats stats;
+    private final List<String> courierTokens;
+    private final ExecutorService requests;
+    private final long recordFromNanos;
+    private final long endNanos;
+    private final long uploadIntervalNanos;
+    private final long fixIntervalNanos;
+    private final Semaphore inFlight;
+
+    PingLoad(LoadTestConfig config, LoadTestClient client, EndpointStats stats, List<String> courierTokens,
+             ExecutorService requests, long recordFromNanos, long endNanos) {
+        this.config = config;
+        this.client = client;
+        this.stats = stats;
+        this.courierTokens = courierTokens;
+        this.requests = requests;
+        this.recordFromNanos = recordFromNanos;
+        this.endNanos = endNanos;
+        double uploadsPerSecond = (double) config.pingsPerSecond() / config.pingBatch();
+        this.uploadIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / uploadsPerSecond));
+        this.fixIntervalNanos = TimeUnit.SECONDS.toNanos(1) * courierTokens.size() / config.pingsPerSecond();
+        this.inFlight = new Semaphore(Math.max(64, (int) Math.ceil(uploadsPerSecond)));
+    }
+
+    @Override
+    public void run() {
+        long startNanos = System.nanoTime();
+        LocalDateTime startTime = LocalDateTime.now();
+        try {
+            for (long upload = 0; ; upload++) {
+                long dueNanos = startNanos + upload * uploadIntervalNanos;
+                if (dueNanos >= endNanos || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                if (!inFlight.tryAcquire(endNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                int courier = (int) (upload % courierTokens.size());
+                long round = upload / courierTokens.size();
+                LocalDateTime dueTime = startTime.plusNanos(dueNanos - startNanos);
+                requests.submit(() -> {
+                    try {
+                        send(courier, round, dueTime, dueNanos);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(int courier, long round, LocalDateTime dueTime, long dueNanos) {
+        HttpResponse<String> response = null;
+        try {
+            response = client.send("POST", "/v1/delivery/pings", batch(courier, round, dueTime),
+                    courierTokens.get(courier));
+        } catch (IOException ex) {
+            logger.debug("Upload of courier {} failed: {}", courier, ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long end = System.nanoTime();
+        if (end >= recordFromNanos && end <= endNanos) {
+            stats.record(end - dueNanos, response == null ? 0 : response.statusCode());
+        }
+    }
+
+    /**
+     * The fixes taken by the courier since their last upload, the last one when the upload was due. A late upload
+     * carries the fixes it would have carried on time.
+     */
+    private GpsPingBatch batch(int courier, long round, LocalDateTime dueTime) {
+        double startLatitude = 28.5 + (courier % 1000) * 0.0005;
+        double longitude = 77.0 + (courier / 1000) * 0.0005;
+        List<GpsPing> pings = new ArrayList<>(config.pingBatch());
+        for (int i = 0; i < config.pingBatch(); i++) {
+            long fix = round * config.pingBatch() + i;
+            pings.add(new GpsPing(startLatitude + fix * DEGREES_PER_FIX, longitude,
+                    dueTime.minusNanos((config.pingBatch() - 1 - i) * fixIntervalNanos)));
+        }
+        return new GpsPingBatch(pings);
+    }
+}
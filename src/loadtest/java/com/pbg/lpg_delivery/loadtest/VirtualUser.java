@@ -0,0 +1,168 @@
+package com.pbg.lpg_delivery.loadtest;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One customer calling the API in a closed loop. The user keeps track of its own orders so modify, cancel, assign
+ * and mark-delivered always target an order in the right state; when an operation has no eligible order the user
+ * places one instead.
+ */
+final class VirtualUser implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualUser.class);
+
+    private static final String LATEST_ORDER_ID = "SELECT MAX(o.order_id) FROM orders o " +
+            "JOIN users u ON u.user_id = o.user_id WHERE u.username = ?";
+
+    private final String username;
+    private final LoadTestConfig config;
+    private final LoadTestClient client;
+    private final Map<Operation, EndpointStats> stats;
+    private final JdbcTemplate jdbcTemplate;
+    private final String adminToken;
+    private final List<String> couriers;
+    private final List<String> courierTokens;
+    private final long recordFromNanos;
+    private final long endNanos;
+    private final Operation[] weightedOperations;
+
+    private final Deque<Long> pendingOrders = new ArrayDeque<>();
+    private final Deque<long[]> assignedOrders = new ArrayDeque<>();
+    private String token;
+    private volatile boolean failed;
+
+    VirtualUser(String username, LoadTestConfig config, LoadTestClient client,
+                Map<Operation, EndpointStats> stats, JdbcTemplate jdbcTemplate, String adminToken,
+                List<String> couriers, List<String> courierTokens, long recordFromNanos, long endNanos) {
+        this.username = username;
+        this.config = config;
+        this.client = client;
+        this.stats = stats;
+        this.jdbcTemplate = jdbcTemplate;
+        this.adminToken = adminToken;
+        this.couriers = couriers;
+        this.courierTokens = courierTokens;
+        this.recordFromNanos = recordFromNanos;
+        this.endNanos = endNanos;
+        this.weightedOperations = config.mix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Operation[]::new);
+    }
+
+    boolean failed() {
+        return failed;
+    }
+
+    @Override
+    public void run() {
+        try {
+            token = client.signIn(username, LoadTestRunner.PASSWORD);
+            while (System.nanoTime() < endNanos && !Thread.currentThread().isInterrupted()) {
+                execute(nextOperation());
+                if (!config.thinkTime().isZero()) {
+                    Thread.sleep(config.thinkTime().toMillis());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            failed = true;
+            logger.error("Virtual user {} stopped: {}", username, ex.getMessage(), ex);
+        }
+    }
+
+    private Operation nextOperation() {
+        Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+        return switch (operation) {
+            case MODIFY_ORDER, CANCEL_ORDER, ASSIGN_ORDER -> pendingOrders.isEmpty() ? Operation.CREATE_ORDER : operation;
+            case MARK_DELIVERED -> !assignedOrders.isEmpty() ? operation
+                    : pendingOrders.isEmpty() ? Operation.CREATE_ORDER : Operation.ASSIGN_ORDER;
+            default -> operation;
+        };
+    }
+
+    private void execute(Operation operation) throws InterruptedException {
+        switch (operation) {
+            case SIGNIN -> {
+                HttpResponse<String> response = call(operation, "POST", "/auth/signin",
+                        Map.of("username", username, "password", LoadTestRunner.PASSWORD), null);
+                if (isSuccess(response)) {
+                    token = readToken(response);
+                }
+            }
+            case CREATE_ORDER -> {
+                CylinderType type = randomType();
+                HttpResponse<String> response = call(operation, "POST", "/api/orders", order(type), token);
+                if (isSuccess(response)) {
+                    // the endpoint does not return the id; this user's orders are created one at a time
+                    pendingOrders.addLast(jdbcTemplate.queryForObject(LATEST_ORDER_ID, Long.class, username));
+                }
+            }
+            case MODIFY_ORDER -> call(operation, "PUT", "/api/orders/" + pendingOrders.peekFirst(), order(randomType()), token);
+            case CANCEL_ORDER -> call(operation, "DELETE", "/api/orders/" + pendingOrders.pollFirst(), null, token);
+            case ASSIGN_ORDER -> {
+                long orderId = pendingOrders.pollFirst();
+                int courier = ThreadLocalRandom.current().nextInt(couriers.size());
+                HttpResponse<String> response = call(operation, "PUT",
+                        "/v1/delivery/" + orderId + "/assign/" + couriers.get(courier), null, adminToken);
+                if (isSuccess(response)) {
+                    assignedOrders.addLast(new long[]{orderId, courier});
+                }
+            }
+            case MARK_DELIVERED -> {
+                long[] assigned = assignedOrders.pollFirst();
+                call(operation, "PUT", "/v1/delivery/" + assigned[0] + "/mark-delivered", null,
+                        courierTokens.get((int) assigned[1]));
+            }
+        }
+    }
+
+    private HttpResponse<String> call(Operation operation, String method, String path, Object body, String bearer)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try {
+            response = client.send(method, path, body, bearer);
+        } catch (IOException ex) {
+            logger.debug("{} {} failed: {}", method, path, ex.getMessage());
+        }
+        long end = System.nanoTime();
+        if (start >= recordFromNanos && end <= endNanos) {
+            stats.get(operation).record(end - start, response == null ? 0 : response.statusCode());
+        }
+        return response;
+    }
+
+    private String readToken(HttpResponse<String> response) {
+        try {
+            return client.token(response);
+        } catch (IOException ex) {
+            return token;
+        }
+    }
+
+    private static boolean isSuccess(HttpResponse<String> response) {
+        return response != null && response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private static CylinderType randomType() {
+        return ThreadLocalRandom.current().nextBoolean() ? CylinderType.DOMESTIC : CylinderType.COMMERCIAL;
+    }
+
+    private static Map<String, Object> order(CylinderType type) {
+        return Map.of("cylinderType", type.name(), "capacity", type.getCapacity(),
+                "quantity", 1 + ThreadLocalRandom.current().nextInt(3));
+    }
+}
@@ -2,9 +2,11 @@ package com.pbg.lpg_delivery;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication(scanBasePackages = "com.pbg.lpg_delivery")
+@EnableScheduling
 public class LpgDeliveryApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,21 @@
+package com.pbg.lpg_delivery.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Schema migrations live in {@code db/migration}. Databases that were created by hand before migrations existed
+ * already contain the V1 schema, so they are baselined at version 1 and only receive the later migrations.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchema() {
+        return configuration -> configuration
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .baselineDescription("hand-created schema");
+    }
+}
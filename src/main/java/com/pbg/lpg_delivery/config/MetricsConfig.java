@@ -0,0 +1,13 @@
+package com.pbg.lpg_delivery.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Loads the metric and management server defaults from {@code lpg-metrics.properties}. The file has the lowest
+ * precedence, so every value can still be overridden by the deployment's own configuration.
+ */
+@Configuration
+@PropertySource("classpath:lpg-metrics.properties")
+public class MetricsConfig {
+}
@@ -0,0 +1,13 @@
+package com.pbg.lpg_delivery.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Brings in the SMTP timeouts of {@code lpg-notifications.properties}: JavaMail waits forever on a mail server that
+ * stops answering, which would stall every mail thread.
+ */
+@Configuration
+@PropertySource("classpath:lpg-notifications.properties")
+public class NotificationConfig {
+}
@@ -0,0 +1,13 @@
+package com.pbg.lpg_delivery.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Sizes the embedded servlet container from {@code lpg-server.properties}. Like the other defaults files it has
+ * the lowest precedence, so a deployment can set its own limits.
+ */
+@Configuration
+@PropertySource("classpath:lpg-server.properties")
+public class ServerConfig {
+}
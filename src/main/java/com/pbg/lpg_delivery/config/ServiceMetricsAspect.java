@@ -0,0 +1,110 @@
+package com.pbg.lpg_delivery.config;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
+import com.pbg.lpg_delivery.exceptionHandler.UserUnauthorizedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public operation of the services and counts its failures.
+ * <p>
+ * {@code lpg.service.operation} is a timer tagged with the service, the operation and its outcome
+ * ({@code success}, {@code business_error}, {@code internal_error}, {@code unauthorized} or {@code unavailable}).
+ * {@code lpg.service.errors} counts the failures with the same tags plus the error code carried by the exception,
+ * so the error codes do not multiply the histogram series of the timer.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    static final String TIMER = "lpg.service.operation";
+    static final String ERRORS = "lpg.service.errors";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.pbg.lpg_delivery.service.*Service.*(..)) " +
+            "|| execution(public * com.pbg.lpg_delivery.security.AuthService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            successTimers.computeIfAbsent(method, key -> timer(key, "success"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable ex) {
+            long elapsed = System.nanoTime() - start;
+            String outcome = outcome(ex);
+            timer(method, outcome).record(Duration.ofNanos(elapsed));
+            Counter.builder(ERRORS)
+                    .description("Failed service operations by error code")
+                    .tag("service", method.getDeclaringClass().getSimpleName())
+                    .tag("operation", method.getName())
+                    .tag("outcome", outcome)
+                    .tag("error.code", errorCode(ex))
+                    .register(meterRegistry)
+                    .increment();
+            throw ex;
+        }
+    }
+
+    private Timer timer(Method method, String outcome) {
+        return Timer.builder(TIMER)
+                .description("Duration of service operations")
+                .tag("service", method.getDeclaringClass().getSimpleName())
+                .tag("operation", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private static String outcome(Throwable ex) {
+        if (ex instanceof ParentException) {
+            return "internal_error";
+        }
+        if (ex instanceof LpgException) {
+            return "business_error";
+        }
+        if (ex instanceof UserUnauthorizedException) {
+            return "unauthorized";
+        }
+        if (ex instanceof ServiceUnavailableException) {
+            return "unavailable";
+        }
+        return "internal_error";
+    }
+
+    private static String errorCode(Throwable ex) {
+        if (ex instanceof LpgException lpgException) {
+            return lpgException.getErrorCode();
+        }
+        if (ex instanceof UserUnauthorizedException unauthorized) {
+            return unauthorized.getErrorCode();
+        }
+        if (ex instanceof ServiceUnavailableException unavailable) {
+            return unavailable.getErrorCode();
+        }
+        return ex.getClass().getSimpleName();
+    }
+}
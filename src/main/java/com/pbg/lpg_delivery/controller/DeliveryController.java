@@ -3,7 +3,13 @@ package com.pbg.lpg_delivery.controller;
 import com.pbg.lpg_delivery.common.ResponseWrapper;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.ParentException;
-import com.pbg.lpg_delivery.model.responses.OrderDetails;
+import com.pbg.lpg_delivery.model.request.GpsPingBatch;
+import com.pbg.lpg_delivery.model.request.LocationRequest;
+import com.pbg.lpg_delivery.model.responses.AutoDispatchResult;
+import com.pbg.lpg_delivery.model.responses.NearbyCourier;
+import com.pbg.lpg_delivery.model.responses.NearbyOrder;
+import com.pbg.lpg_delivery.model.responses.RouteStop;
+import com.pbg.lpg_delivery.service.AutoDispatchService;
 import com.pbg.lpg_delivery.service.DeliveryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,6 +18,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -25,9 +32,11 @@ public class DeliveryController {
 
     private static final Logger logger = LoggerFactory.getLogger(DeliveryController.class);
     private final DeliveryService deliveryService;
+    private final AutoDispatchService autoDispatchService;
 
-    public DeliveryController(DeliveryService deliveryService) {
+    public DeliveryController(DeliveryService deliveryService, AutoDispatchService autoDispatchService) {
         this.deliveryService = deliveryService;
+        this.autoDispatchService = autoDispatchService;
     }
 
     @Operation(
@@ -60,6 +69,141 @@ public class DeliveryController {
         }
     }
 
+    @Operation(
+            summary = "Assign all pending orders automatically",
+            description = "Allows an admin to assign every pending order right away to the least loaded delivery persons, " +
+                    "within their daily capacity, instead of waiting for the scheduled run."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pending orders assigned"),
+            @ApiResponse(responseCode = "403", description = "User is not authorized to perform this action"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/auto-assign")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResponseWrapper<AutoDispatchResult>> autoAssignPendingOrders() {
+        try {
+            AutoDispatchResult result = autoDispatchService.dispatchPendingOrders();
+            return ResponseEntity.ok(new ResponseWrapper.Builder<AutoDispatchResult>().data(result).build());
+        } catch (LpgException ex) {
+            logger.error("Error auto assigning orders: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error while auto assigning orders: {}", ex.getMessage(), ex);
+            throw new ParentException("ST-5005", "An unexpected error occurred while auto assigning orders");
+        }
+    }
+
+    @Operation(
+            summary = "Find the delivery persons closest to an order",
+            description = "Allows an admin dispatching an order to see the delivery persons closest to the customer, " +
+                    "among those who reported their position recently, closest first."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Nearby delivery persons retrieved"),
+            @ApiResponse(responseCode = "400", description = "Unknown order or unknown customer location"),
+            @ApiResponse(responseCode = "403", description = "User is not authorized to perform this action"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{orderId}/nearest-couriers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResponseWrapper<List<NearbyCourier>>> findNearestCouriers(
+            @Parameter(description = "ID of the order to dispatch", example = "101")
+            @PathVariable Long orderId,
+            @Parameter(description = "Maximum number of delivery persons to return, at most 50", example = "5")
+            @RequestParam(defaultValue = "5") int limit) {
+        try {
+            List<NearbyCourier> couriers = deliveryService.findNearestCouriers(orderId, limit);
+            return ResponseEntity.ok(new ResponseWrapper.Builder<List<NearbyCourier>>().data(couriers).build());
+        } catch (LpgException ex) {
+            logger.error("Error finding couriers near order: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error while finding couriers near order: {}", ex.getMessage(), ex);
+            throw new ParentException("ST-5006", "An unexpected error occurred while finding nearby couriers");
+        }
+    }
+
+    @Operation(
+            summary = "Report the current position",
+            description = "Allows a delivery person to report where they are, so they can be offered nearby orders."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Position updated"),
+            @ApiResponse(responseCode = "400", description = "Invalid latitude or longitude"),
+            @ApiResponse(responseCode = "403", description = "User is not authorized to perform this action"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/location")
+    @PreAuthorize("hasRole('DELIVERY_PERSON')")
+    public ResponseEntity<ResponseWrapper<String>> updateLocation(@RequestBody LocationRequest request) {
+        try {
+            deliveryService.updateCurrentLocation(request);
+            return ResponseEntity.ok(new ResponseWrapper.Builder<String>().data("Location updated.").build());
+        } catch (LpgException ex) {
+            logger.error("Error updating location: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error while updating location: {}", ex.getMessage(), ex);
+            throw new ParentException("ST-5007", "An unexpected error occurred while updating the location");
+        }
+    }
+
+    @Operation(
+            summary = "Upload GPS pings",
+            description = "Allows a delivery person's device to upload the position fixes taken since its last " +
+                    "upload, up to 100 per request. Fixes not newer than the last one received are ignored, so a " +
+                    "batch can safely be sent again. The track is stored in the background."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Pings accepted, the data is the number of new fixes"),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch, or invalid fix"),
+            @ApiResponse(responseCode = "403", description = "User is not authorized to perform this action"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/pings")
+    @PreAuthorize("hasRole('DELIVERY_PERSON')")
+    public ResponseEntity<ResponseWrapper<Integer>> recordPings(@RequestBody GpsPingBatch batch) {
+        try {
+            int accepted = deliveryService.recordPings(batch);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new ResponseWrapper.Builder<Integer>().data(accepted).build());
+        } catch (LpgException ex) {
+            logger.error("Error recording pings: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error while recording pings: {}", ex.getMessage(), ex);
+            throw new ParentException("ST-5009", "An unexpected error occurred while recording the pings");
+        }
+    }
+
+    @Operation(
+            summary = "Find the pending orders closest to me",
+            description = "Allows a delivery person to see the pending orders closest to their last reported position."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Nearby pending orders retrieved"),
+            @ApiResponse(responseCode = "400", description = "No position reported yet"),
+            @ApiResponse(responseCode = "403", description = "User is not authorized to perform this action"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nearest-orders")
+    @PreAuthorize("hasRole('DELIVERY_PERSON')")
+    public ResponseEntity<ResponseWrapper<List<NearbyOrder>>> findNearestPendingOrders(
+            @Parameter(description = "Maximum number of orders to return, at most 50", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<NearbyOrder> orders = deliveryService.findNearestPendingOrders(limit);
+            return ResponseEntity.ok(new ResponseWrapper.Builder<List<NearbyOrder>>().data(orders).build());
+        } catch (LpgException ex) {
+            logger.error("Error finding nearby orders: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error while finding nearby orders: {}", ex.getMessage(), ex);
+            throw new ParentException("ST-5008", "An unexpected error occurred while finding nearby orders");
+        }
+    }
+
     @Operation(
             summary = "Mark an order as delivered",
             description = "Allows an admin or a delivery person to mark an order as delivered."
@@ -90,14 +234,14 @@ public class DeliveryController {
 
     @PreAuthorize("hasRole('DELIVERY_PERSON')")
     @GetMapping
-    @ApiResponse(responseCode = "200", description = "Retrieved all the  orders assigned")
+    @ApiResponse(responseCode = "200", description = "Retrieved all the  orders assigned, one stop per customer in route order")
     @ApiResponse(responseCode = "201", description = "Unauthroized person")
-    public ResponseEntity<ResponseWrapper<List<OrderDetails>>> getAllAssignedOrder(){
+    public ResponseEntity<ResponseWrapper<List<RouteStop>>> getAllAssignedOrder(){
         try {
-            List<OrderDetails> orderDetailsList = deliveryService.getAllAssignedOrders();
+            List<RouteStop> route = deliveryService.getAllAssignedOrders();
             return ResponseEntity.ok(
-                    new ResponseWrapper.Builder<List<OrderDetails>>()
-                           .data(orderDetailsList)
+                    new ResponseWrapper.Builder<List<RouteStop>>()
+                           .data(route)
                            .build());
         } catch (LpgException ex) {
             logger.error("Error retrieving all assigned orders: {}", ex.getMessage());
@@ -2,9 +2,15 @@ package com.pbg.lpg_delivery.controller;
 
 import com.pbg.lpg_delivery.common.ResponseWrapper;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.request.BatchOrderRequest;
 import com.pbg.lpg_delivery.model.request.ModifyOrderRequest;
 import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.model.responses.DeliverySlot;
 import com.pbg.lpg_delivery.model.responses.OrderDetails;
+import com.pbg.lpg_delivery.model.responses.OrderReportPage;
+import com.pbg.lpg_delivery.model.responses.OrderRequestStatusResponse;
+import com.pbg.lpg_delivery.service.OrderIntakeService;
+import com.pbg.lpg_delivery.service.OrderReportService;
 import com.pbg.lpg_delivery.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,10 +19,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -27,27 +37,49 @@ public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final OrderService orderService;
+    private final OrderReportService orderReportService;
+    private final OrderIntakeService orderIntakeService;
+    private final boolean asyncIntake;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderReportService orderReportService,
+                           OrderIntakeService orderIntakeService,
+                           @Value("${lpg.orders.intake.async:false}") boolean asyncIntake) {
         this.orderService = orderService;
+        this.orderReportService = orderReportService;
+        this.orderIntakeService = orderIntakeService;
+        this.asyncIntake = asyncIntake;
     }
 
     @Operation(
             summary = "Create a new order",
-            description = "Allows customers to place an LPG cylinder order."
+            description = "Allows customers to place an LPG cylinder order, booked into the first delivery shift " +
+                    "with capacity left in their zone. When the asynchronous intake is " +
+                    "enabled the order is only queued: the response is 202 with the tracking id as data and the " +
+                    "status URL in the Location header."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Order placed successfully"),
+            @ApiResponse(responseCode = "202", description = "Order queued, follow it with the returned tracking id"),
             @ApiResponse(responseCode = "400", description = "Invalid order request"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
     public ResponseEntity<ResponseWrapper<String>> createOrder(@RequestBody OrderRequest orderRequest) {
         try {
-            orderService.createOrder(orderRequest);
+            if (asyncIntake) {
+                String trackingId = orderIntakeService.submit(orderRequest);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/orders/requests/" + trackingId))
+                        .body(new ResponseWrapper.Builder<String>().data(trackingId).build());
+            }
+            DeliverySlot slot = orderService.createOrder(orderRequest);
+            String message = String.format("Order placed successfully, sit back and relax! Delivery expected " +
+                    "between %s and %s", slot.start(), slot.end());
             return ResponseEntity.status(HttpStatus.CREATED).body(
-                    new ResponseWrapper.Builder<String>().data("Order placed successfully, sit back and relax!").build());
+                    new ResponseWrapper.Builder<String>().data(message).build());
         } catch (LpgException ex) {
             logger.error("Order placement failed: {}", ex.getMessage());
             throw ex;
@@ -57,6 +89,77 @@ public class OrderController {
         }
     }
 
+    @Operation(
+            summary = "Get the next delivery slot",
+            description = "Returns the delivery shift an order placed now by the current customer would be booked into."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Delivery slot retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "No delivery slot available"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/slots/next")
+    public ResponseEntity<ResponseWrapper<DeliverySlot>> getNextDeliverySlot() {
+        try {
+            return ResponseEntity.ok(new ResponseWrapper.Builder<DeliverySlot>()
+                    .data(orderService.getNextDeliverySlot()).build());
+        } catch (LpgException ex) {
+            logger.error("Delivery slot retrieval failed: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error during delivery slot retrieval: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    @Operation(
+            summary = "Get the status of a queued order",
+            description = "Returns whether an order taken by the asynchronous intake is still queued, was placed or was rejected."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Status retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Unknown tracking id"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/requests/{trackingId}")
+    public ResponseEntity<ResponseWrapper<OrderRequestStatusResponse>> getOrderRequestStatus(
+            @Parameter(description = "Tracking id returned when the order was queued") @PathVariable String trackingId) {
+        try {
+            return ResponseEntity.ok(new ResponseWrapper.Builder<OrderRequestStatusResponse>()
+                    .data(orderIntakeService.getStatus(trackingId)).build());
+        } catch (LpgException ex) {
+            logger.error("Order request status retrieval failed: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error during order request status retrieval: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    @Operation(
+            summary = "Place orders in bulk",
+            description = "Allows an admin to place orders on behalf of several customers at once. Either all orders are placed or none."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Orders placed successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid order request or insufficient stock"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<ResponseWrapper<String>> createOrders(@RequestBody List<BatchOrderRequest> orderRequests) {
+        try {
+            int placed = orderService.createOrders(orderRequests);
+            return ResponseEntity.status(HttpStatus.CREATED).body(
+                    new ResponseWrapper.Builder<String>().data(String.format("%d orders placed successfully", placed)).build());
+        } catch (LpgException ex) {
+            logger.error("Bulk order placement failed: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error during bulk order placement: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
     @Operation(
             summary = "Get order details",
             description = "Retrieves order details based on username or phone number."
@@ -109,6 +212,64 @@ public class OrderController {
         }
     }
 
+    @Operation(
+            summary = "Get a page of orders within a date range",
+            description = "Fetches orders placed within a date range, ordered by order date. Pass the returned nextCursor to get the following page."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid date range, cursor or page size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/all/page")
+    public ResponseEntity<ResponseWrapper<OrderReportPage>> getOrdersPageByDateRange(
+            @Parameter(description = "Start date for filtering orders", example = "2024-02-01")
+            @RequestParam LocalDate startDate,
+            @Parameter(description = "End date for filtering orders", example = "2024-02-15")
+            @RequestParam LocalDate endDate,
+            @Parameter(description = "Cursor returned by the previous page, omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of orders per page (1-1000)", example = "100")
+            @RequestParam(required = false) Integer size) {
+        try {
+            var page = orderReportService.getOrdersPage(startDate, endDate, cursor, size);
+            return ResponseEntity.ok(new ResponseWrapper.Builder<OrderReportPage>().data(page).build());
+        } catch (LpgException ex) {
+            logger.error("Order page retrieval failed!: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error occurred!: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    @Operation(
+            summary = "Stream all orders within a date range",
+            description = "Streams every order placed within a date range as newline-delimited JSON, one order per line, in constant memory."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid date range"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/all/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamOrdersByDateRange(
+            @Parameter(description = "Start date for filtering orders", example = "2024-02-01")
+            @RequestParam LocalDate startDate,
+            @Parameter(description = "End date for filtering orders", example = "2024-02-15")
+            @RequestParam LocalDate endDate) {
+        try {
+            var body = orderReportService.streamOrders(startDate, endDate);
+            return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+        } catch (LpgException ex) {
+            logger.error("Order streaming failed!: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error occurred!: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
     @Operation(
             summary = "Modify an existing order",
             description = "Allows customers to update order details before it is processed."
@@ -0,0 +1,51 @@
+package com.pbg.lpg_delivery.controller;
+
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
+import com.pbg.lpg_delivery.notification.StatusUpdateHub;
+import com.pbg.lpg_delivery.utils.AuthUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/v1/updates")
+@Tag(name = "Status Updates", description = "Push of order and delivery status changes")
+public class StatusUpdateController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusUpdateController.class);
+
+    private final StatusUpdateHub statusUpdateHub;
+
+    public StatusUpdateController(StatusUpdateHub statusUpdateHub) {
+        this.statusUpdateHub = statusUpdateHub;
+    }
+
+    @Operation(
+            summary = "Subscribe to status updates",
+            description = "Opens a Server-Sent Events stream of the status changes of the current user's orders, " +
+                    "or of the deliveries assigned to them. Each event is named after the change and carries a " +
+                    "StatusUpdate as JSON, with the event id as SSE id. Heartbeat comments are sent while idle, and " +
+                    "the server closes the stream after a while; clients reconnect and read the current state once."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stream opened"),
+            @ApiResponse(responseCode = "503", description = "Too many streams are open, retry later")
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        try {
+            return statusUpdateHub.subscribe(AuthUtils.getCurrentPrincipal());
+        } catch (ServiceUnavailableException ex) {
+            logger.warn("Status stream refused: {}", ex.getErrorMessage());
+            throw ex;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.pbg.lpg_delivery.exceptionHandler;
 
 
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -30,4 +31,11 @@ public class GlobalExceptionHandler {
     ResponseEntity<ConcreteErrorResponse> handleAuthException(UserUnauthorizedException ex) {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(new ConcreteErrorResponse(ex.getErrorCode(), ex.getErrorMessage()));  }
+
+    @ExceptionHandler({ServiceUnavailableException.class})
+    ResponseEntity<ConcreteErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ConcreteErrorResponse(ex.getErrorCode(), ex.getErrorMessage()));
+    }
 }
@@ -0,0 +1,11 @@
+package com.pbg.lpg_delivery.exceptionHandler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private  final String errorCode;
+    private  final String errorMessage;
+}
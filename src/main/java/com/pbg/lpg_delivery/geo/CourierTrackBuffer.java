@@ -0,0 +1,373 @@
+package com.pbg.lpg_delivery.geo;
+
+import com.pbg.lpg_delivery.utils.LongIntHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers the GPS pings of delivery persons in memory and writes a downsampled track to {@code courier_tracks}.
+ * <p>
+ * Every courier gets a ring buffer of {@code lpg.tracks.ring-size} pings, locked only by that courier's requests and
+ * the flusher. Couriers are found through a {@link LongIntHashMap} from user id to ring, which is only read, so
+ * lookups take no lock. Couriers reporting for the first time are kept in a concurrent map until enough of them
+ * arrived to be worth a copy of the index, so registering a courier costs a constant amount on average. The ring also
+ * holds the latest position of its courier, served by {@link #latest}.
+ * <p>
+ * Every {@code lpg.tracks.flush-interval-ms} the flusher drains the rings and keeps a ping only if it is at least
+ * {@code lpg.tracks.min-interval-ms} or {@code lpg.tracks.min-distance-m} away from the last kept one. The kept
+ * pings are inserted with JDBC batches, and the latest positions are copied to {@code users} so that the geo index
+ * rebuild finds them, unless a newer position is stored there already. A ring the flusher does not drain in time overwrites its oldest pings; rows that fail to be
+ * written are retried on the next flush, up to {@code lpg.tracks.max-unwritten} of them.
+ * <p>
+ * Pings not newer than the last buffered one of the courier are ignored, so a client may resend a batch it is not
+ * sure was received. Like the stock ledger, buffered pings are lost if the process dies.
+ * <p>
+ * Track points older than {@code lpg.tracks.retention-days} are deleted {@code lpg.tracks.purge-batch-size} rows per
+ * statement, so the purge never holds locks on a large part of the table.
+ */
+@Component
+public class CourierTrackBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourierTrackBuffer.class);
+
+    private static final String INSERT_TRACK = "INSERT INTO courier_tracks " +
+            "(delivery_person_id, latitude, longitude, recorded_at) VALUES (?, ?, ?, ?)";
+    // another instance, or a courier switching instances, may have stored a newer position already
+    private static final String UPDATE_LOCATION = "UPDATE users SET latitude = ?, longitude = ?, " +
+            "location_updated_at = ? WHERE user_id = ? " +
+            "AND (location_updated_at IS NULL OR location_updated_at < ?)";
+    private static final String PURGE_TRACKS = "DELETE FROM courier_tracks WHERE recorded_at < ? LIMIT ?";
+
+    /** New couriers are added to the index once there are this many of them, or a quarter of the known ones. */
+    private static final int MIN_REGISTRATION_BATCH = 64;
+
+    /** Pings dated further in the future than this are rejected, they would hide every later ping. */
+    private static final long MAX_CLOCK_SKEW_MILLIS = Duration.ofMinutes(5).toMillis();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int ringSize;
+    private final long minIntervalMillis;
+    private final double minDistanceKm;
+    private final int batchSize;
+    private final int maxUnwritten;
+    private final Duration retention;
+    private final int purgeBatchSize;
+
+    // tracks[0..trackCount) are the known couriers; the array only grows, by doubling, under the registration lock
+    private final Object registration = new Object();
+    private volatile Track[] tracks = new Track[16];
+    private volatile int trackCount;
+    private volatile LongIntHashMap trackIndex = new LongIntHashMap(16, -1);
+    private final Map<Long, Track> unindexed = new ConcurrentHashMap<>();
+    private List<Object[]> unwritten = new ArrayList<>();
+
+    private final Counter accepted;
+    private final Counter ignored;
+    private final Counter overwritten;
+    private final Counter written;
+    private final Counter dropped;
+    private final Timer flushes;
+
+    public CourierTrackBuffer(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                              @Value("${lpg.tracks.ring-size:256}") int ringSize,
+                              @Value("${lpg.tracks.min-interval-ms:10000}") long minIntervalMillis,
+                              @Value("${lpg.tracks.min-distance-m:25}") double minDistanceMetres,
+                              @Value("${lpg.tracks.batch-size:500}") int batchSize,
+                              @Value("${lpg.tracks.max-unwritten:100000}") int maxUnwritten,
+                              @Value("${lpg.tracks.retention-days:30}") long retentionDays,
+                              @Value("${lpg.tracks.purge-batch-size:5000}") int purgeBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ringSize = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.minIntervalMillis = minIntervalMillis;
+        this.minDistanceKm = minDistanceMetres / 1000;
+        this.batchSize = batchSize;
+        this.maxUnwritten = maxUnwritten;
+        this.retention = Duration.ofDays(retentionDays);
+        this.purgeBatchSize = purgeBatchSize;
+
+        this.accepted = Counter.builder("lpg.tracks.pings")
+                .description("GPS pings accepted into the ring buffers")
+                .register(meterRegistry);
+        this.ignored = Counter.builder("lpg.tracks.ignored")
+                .description("GPS pings ignored because they were not newer than the last one or dated in the future")
+                .register(meterRegistry);
+        this.overwritten = Counter.builder("lpg.tracks.overwritten")
+                .description("GPS pings overwritten in a full ring buffer before being flushed")
+                .register(meterRegistry);
+        this.written = Counter.builder("lpg.tracks.written")
+                .description("Track points inserted into courier_tracks")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("lpg.tracks.dropped")
+                .description("Track points given up on after failed writes")
+                .register(meterRegistry);
+        this.flushes = Timer.builder("lpg.tracks.flush")
+                .description("Time taken to drain the ring buffers and write the track points and positions")
+                .register(meterRegistry);
+        Gauge.builder("lpg.tracks.couriers", this, buffer -> buffer.trackCount)
+                .description("Delivery persons with a ring buffer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the pings of one courier to their ring buffer, in the order given.
+     *
+     * @return the number of pings accepted, the others were not newer than the last buffered one or were dated in
+     * the future
+     */
+    public int append(long courierId, List<Ping> pings) {
+        Track track = trackOf(courierId);
+        long latestAllowed = System.currentTimeMillis() + MAX_CLOCK_SKEW_MILLIS;
+        int count = 0;
+        int lost = 0;
+        synchronized (track) {
+            for (Ping ping : pings) {
+                long recordedAt = toMillis(ping.recordedAt());
+                if (recordedAt <= track.lastRecordedAt || recordedAt > latestAllowed) {
+                    continue;
+                }
+                if (track.appended - track.drained == ringSize) {
+                    track.drained++;
+                    lost++;
+                }
+                int slot = (int) (track.appended++ & (ringSize - 1));
+                track.latitudes[slot] = ping.position().latitude();
+                track.longitudes[slot] = ping.position().longitude();
+                track.recordedAt[slot] = recordedAt;
+                track.lastRecordedAt = recordedAt;
+                track.moved = true;
+                count++;
+            }
+        }
+        accepted.increment(count);
+        ignored.increment(pings.size() - count);
+        overwritten.increment(lost);
+        return count;
+    }
+
+    /**
+     * The last position buffered for the courier, or null if they have not sent any ping since startup.
+     */
+    public Ping latest(long courierId) {
+        Track track = find(courierId);
+        if (track == null) {
+            return null;
+        }
+        synchronized (track) {
+            if (track.appended == 0) {
+                return null;
+            }
+            int slot = (int) ((track.appended - 1) & (ringSize - 1));
+            return new Ping(new GeoPoint(track.latitudes[slot], track.longitudes[slot]),
+                    toLocalDateTime(track.recordedAt[slot]));
+        }
+    }
+
+    /**
+     * Drains every ring buffer and writes the downsampled track points and latest positions to the database.
+     */
+    @Scheduled(fixedDelayString = "${lpg.tracks.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        long start = System.nanoTime();
+        List<Object[]> points = unwritten;
+        List<Object[]> locations = new ArrayList<>();
+        int count = trackCount;
+        Track[] known = tracks;
+        for (int i = 0; i < count; i++) {
+            drain(known[i], points, locations);
+        }
+        unwritten = new ArrayList<>();
+        if (points.isEmpty() && locations.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_TRACK, points, batchSize, (statement, point) -> {
+                statement.setLong(1, (Long) point[0]);
+                statement.setDouble(2, (Double) point[1]);
+                statement.setDouble(3, (Double) point[2]);
+                statement.setTimestamp(4, (Timestamp) point[3]);
+            });
+            written.increment(points.size());
+        } catch (RuntimeException ex) {
+            int kept = Math.min(points.size(), maxUnwritten);
+            unwritten = new ArrayList<>(points.subList(points.size() - kept, points.size()));
+            dropped.increment(points.size() - kept);
+            logger.error("Failed to write {} track point(s), will retry: {}", points.size(), ex.getMessage(), ex);
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LOCATION, locations, batchSize, (statement, location) -> {
+                statement.setDouble(1, (Double) location[1]);
+                statement.setDouble(2, (Double) location[2]);
+                statement.setTimestamp(3, (Timestamp) location[3]);
+                statement.setLong(4, (Long) location[0]);
+                statement.setTimestamp(5, (Timestamp) location[3]);
+            });
+        } catch (RuntimeException ex) {
+            // the next ping of these couriers writes their position again
+            logger.error("Failed to store the latest position of {} courier(s): {}", locations.size(), ex.getMessage(), ex);
+        }
+        flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Flushed {} track point(s) and {} position(s)", points.size(), locations.size());
+    }
+
+    /**
+     * Deletes the track points older than the retention, one batch of rows per statement until none are left.
+     */
+    @Scheduled(fixedDelayString = "${lpg.tracks.purge-interval-ms:3600000}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_TRACKS, cutoff, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        if (purged > 0) {
+            logger.info("Purged {} track point(s) older than {}", purged, retention);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void drain(Track track, List<Object[]> points, List<Object[]> locations) {
+        synchronized (track) {
+            for (long i = track.drained; i < track.appended; i++) {
+                int slot = (int) (i & (ringSize - 1));
+                double latitude = track.latitudes[slot];
+                double longitude = track.longitudes[slot];
+                long recordedAt = track.recordedAt[slot];
+                if (recordedAt - track.keptRecordedAt >= minIntervalMillis
+                        || distanceKm(track.keptLatitude, track.keptLongitude, latitude, longitude) >= minDistanceKm) {
+                    points.add(new Object[]{track.courierId, latitude, longitude, new Timestamp(recordedAt)});
+                    track.keptLatitude = latitude;
+                    track.keptLongitude = longitude;
+                    track.keptRecordedAt = recordedAt;
+                }
+            }
+            track.drained = track.appended;
+            if (track.moved) {
+                int slot = (int) ((track.appended - 1) & (ringSize - 1));
+                locations.add(new Object[]{track.courierId, track.latitudes[slot], track.longitudes[slot],
+                        new Timestamp(track.recordedAt[slot])});
+                track.moved = false;
+            }
+        }
+    }
+
+    private Track trackOf(long courierId) {
+        Track track = find(courierId);
+        if (track != null) {
+            return track;
+        }
+        synchronized (registration) {
+            track = find(courierId);
+            if (track != null) {
+                return track;
+            }
+            track = new Track(courierId, ringSize);
+            int count = trackCount;
+            if (count == tracks.length) {
+                tracks = Arrays.copyOf(tracks, count * 2);
+            }
+            // the slot before the count, so the flusher never reads a slot that is not filled yet
+            tracks[count] = track;
+            trackCount = count + 1;
+            unindexed.put(courierId, track);
+            if (unindexed.size() >= Math.max(MIN_REGISTRATION_BATCH, count / 4)) {
+                LongIntHashMap grownIndex = trackIndex.copy();
+                for (int i = count + 1 - unindexed.size(); i <= count; i++) {
+                    grownIndex.put(tracks[i].courierId, i);
+                }
+                // the index before clearing the map, so a courier is always in one of them
+                trackIndex = grownIndex;
+                unindexed.clear();
+            }
+            return track;
+        }
+    }
+
+    private Track find(long courierId) {
+        int index = trackIndex.get(courierId);
+        if (index >= 0) {
+            return tracks[index];
+        }
+        return unindexed.get(courierId);
+    }
+
+    /**
+     * Equirectangular approximation, accurate to well under a metre at the distances downsampling compares.
+     */
+    private static double distanceKm(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double x = (toLongitude - fromLongitude) * Math.cos(Math.toRadians((fromLatitude + toLatitude) / 2));
+        double y = toLatitude - fromLatitude;
+        return Math.sqrt(x * x + y * y) * GeoPoint.KM_PER_DEGREE;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * A position reported by a courier.
+     */
+    public record Ping(GeoPoint position, LocalDateTime recordedAt) {
+    }
+
+    /**
+     * The ring buffer of one courier. Pings {@code drained} (inclusive) to {@code appended} (exclusive) are waiting
+     * for the flusher; both only grow, the slot of ping {@code i} is {@code i & (ringSize - 1)}.
+     */
+    private static final class Track {
+
+        private final long courierId;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] recordedAt;
+        private long appended;
+        private long drained;
+        private long lastRecordedAt = Long.MIN_VALUE;
+        private boolean moved;
+
+        // last point written to the track, for downsampling; far enough in the past for the first ping to be kept,
+        // close enough for the difference not to overflow
+        private double keptLatitude;
+        private double keptLongitude;
+        private long keptRecordedAt = Long.MIN_VALUE / 2;
+
+        private Track(long courierId, int ringSize) {
+            this.courierId = courierId;
+            this.latitudes = new double[ringSize];
+            this.longitudes = new double[ringSize];
+            this.recordedAt = new long[ringSize];
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.pbg.lpg_delivery.geo;
+
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventListener;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where the delivery persons and the pending orders are, for nearest-courier dispatch.
+ * <p>
+ * Both live in a {@link GridIndex}. Couriers move when they report their position, pending orders are added and
+ * removed from the order events of the outbox, at the position of their customer. The indexes are built from the
+ * database at startup and reconciled with it every {@code lpg.geo.rebuild-interval-ms}, which also brings in the
+ * changes made through other instances.
+ * <p>
+ * A courier whose last position is older than {@code lpg.geo.courier-stale-minutes} is not offered for dispatch.
+ */
+@Component
+public class DispatchGeoIndex implements OrderEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchGeoIndex.class);
+
+    private static final String SELECT_COURIERS = "SELECT user_id, username, latitude, longitude, location_updated_at " +
+            "FROM users WHERE role = 'DELIVERY_PERSON' AND latitude IS NOT NULL AND longitude IS NOT NULL";
+    private static final String SELECT_PENDING_ORDERS = "SELECT o.order_id, u.latitude, u.longitude, o.created_at " +
+            "FROM orders o JOIN users u ON u.user_id = o.user_id " +
+            "WHERE o.status = 'PENDING' AND u.latitude IS NOT NULL AND u.longitude IS NOT NULL";
+    private static final String SELECT_USER_LOCATION = "SELECT latitude, longitude FROM users " +
+            "WHERE user_id = ? AND latitude IS NOT NULL AND longitude IS NOT NULL";
+    private static final String SELECT_ORDER_LOCATION = "SELECT u.latitude, u.longitude FROM orders o " +
+            "JOIN users u ON u.user_id = o.user_id " +
+            "WHERE o.order_id = ? AND u.latitude IS NOT NULL AND u.longitude IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GridIndex couriers;
+    private final GridIndex pendingOrders;
+    private final Map<Long, String> courierNames = new ConcurrentHashMap<>();
+    private final double maxSearchKm;
+    private final Duration courierStaleAfter;
+
+    public DispatchGeoIndex(JdbcTemplate jdbcTemplate,
+                            @Value("${lpg.geo.cell-size-deg:0.01}") double cellDegrees,
+                            @Value("${lpg.geo.max-search-km:25}") double maxSearchKm,
+                            @Value("${lpg.geo.courier-stale-minutes:30}") long courierStaleMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.couriers = new GridIndex(cellDegrees);
+        this.pendingOrders = new GridIndex(cellDegrees);
+        this.maxSearchKm = maxSearchKm;
+        this.courierStaleAfter = Duration.ofMinutes(courierStaleMinutes);
+    }
+
+    /**
+     * Loads the couriers with a known position and the pending orders of customers with a known position, then
+     * drops the entries the database no longer has. Entries updated while the rebuild ran are kept.
+     */
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            Set<Long> courierIds = new HashSet<>();
+            jdbcTemplate.query(SELECT_COURIERS, rs -> {
+                long userId = rs.getLong("user_id");
+                Timestamp updatedAt = rs.getTimestamp("location_updated_at");
+                courierIds.add(userId);
+                courierNames.put(userId, rs.getString("username"));
+                couriers.put(userId, new GeoPoint(rs.getDouble("latitude"), rs.getDouble("longitude")),
+                        updatedAt == null ? 0 : updatedAt.getTime());
+            });
+            couriers.removeOlderThan(startedAt, courierIds::contains);
+            courierNames.keySet().removeIf(userId -> couriers.get(userId) == null);
+
+            Set<Long> orderIds = new HashSet<>();
+            jdbcTemplate.query(SELECT_PENDING_ORDERS, rs -> {
+                long orderId = rs.getLong("order_id");
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                orderIds.add(orderId);
+                pendingOrders.put(orderId, new GeoPoint(rs.getDouble("latitude"), rs.getDouble("longitude")),
+                        createdAt == null ? 0 : createdAt.getTime());
+            });
+            pendingOrders.removeOlderThan(startedAt, orderIds::contains);
+
+            logger.debug("Geo index rebuilt with {} courier(s) and {} pending order(s) in {} ms", couriers.size(),
+                    pendingOrders.size(), System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to rebuild the geo index, keeping the current one: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${lpg.geo.rebuild-interval-ms:300000}",
+            fixedDelayString = "${lpg.geo.rebuild-interval-ms:300000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public void moveCourier(long userId, String username, GeoPoint position, LocalDateTime at) {
+        courierNames.put(userId, username);
+        couriers.put(userId, position, toMillis(at));
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        switch (event.type()) {
+            case ORDER_CREATED -> jdbcTemplate.query(SELECT_USER_LOCATION, rs -> {
+                pendingOrders.put(event.orderId(), new GeoPoint(rs.getDouble(1), rs.getDouble(2)),
+                        toMillis(event.occurredAt()));
+            }, event.userId());
+            case ORDER_ASSIGNED, ORDER_CANCELLED, ORDER_DELIVERED -> pendingOrders.remove(event.orderId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * @return the position of the order's customer, or null if it is unknown
+     */
+    public GeoPoint locationOfOrder(long orderId) {
+        GeoPoint indexed = pendingOrders.get(orderId);
+        if (indexed != null) {
+            return indexed;
+        }
+        List<GeoPoint> found = jdbcTemplate.query(SELECT_ORDER_LOCATION,
+                (rs, rowNum) -> new GeoPoint(rs.getDouble(1), rs.getDouble(2)), orderId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * @return the last reported position of the courier, or null if unknown
+     */
+    public GeoPoint locationOfCourier(long userId) {
+        return couriers.get(userId);
+    }
+
+    /**
+     * The {@code k} couriers closest to the point that reported their position recently, closest first.
+     */
+    public List<GridIndex.Neighbour> nearestCouriers(GeoPoint point, int k) {
+        return couriers.nearest(point, k, maxSearchKm, System.currentTimeMillis() - courierStaleAfter.toMillis());
+    }
+
+    /**
+     * The {@code k} pending orders closest to the point, closest first.
+     */
+    public List<GridIndex.Neighbour> nearestPendingOrders(GeoPoint point, int k) {
+        return pendingOrders.nearest(point, k, maxSearchKm, Long.MIN_VALUE);
+    }
+
+    public String courierName(long userId) {
+        return courierNames.get(userId);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,45 @@
+package com.pbg.lpg_delivery.geo;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+
+/**
+ * A position on earth in decimal degrees (WGS84).
+ */
+public record GeoPoint(double latitude, double longitude) {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    public GeoPoint {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new LpgException("ST-1010", "Invalid location: latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+    }
+
+    /**
+     * Returns the point of optional coordinates, or null if neither is given.
+     *
+     * @throws LpgException if only one of them is given or they are out of range
+     */
+    public static GeoPoint ofNullable(Double latitude, Double longitude) {
+        if (latitude == null && longitude == null) {
+            return null;
+        }
+        if (latitude == null || longitude == null) {
+            throw new LpgException("ST-1010", "Invalid location: latitude and longitude must be given together");
+        }
+        return new GeoPoint(latitude, longitude);
+    }
+
+    /**
+     * Great-circle distance to the other point, in kilometres (haversine formula).
+     */
+    public double distanceKm(GeoPoint other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,204 @@
+package com.pbg.lpg_delivery.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory spatial index of points identified by a {@code long} id, answering k-nearest-neighbour queries.
+ * <p>
+ * The world is cut into square cells of {@code cellDegrees} on each side, and every point is listed in the cell it
+ * falls in. A query scans the cells in rings of growing size around the origin and stops as soon as the k-th
+ * best distance found is shorter than the distance to the next ring, so it only looks at the points around the
+ * origin whatever the size of the index.
+ * <p>
+ * The index is safe for concurrent use: updates of one id are serialized, and queries never block. A query running
+ * while a point moves sees it either at its old or at its new position.
+ */
+public final class GridIndex {
+
+    private final double cellDegrees;
+    private final int latCells;
+    private final int lonCells;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public GridIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 10)) {
+            throw new IllegalArgumentException("Cell size must be within (0, 10] degrees: " + cellDegrees);
+        }
+        this.cellDegrees = cellDegrees;
+        this.latCells = (int) Math.ceil(180 / cellDegrees) + 1;
+        this.lonCells = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * Adds the point or moves it to its new position. An update older than the one already indexed is ignored.
+     */
+    public void put(long id, GeoPoint point, long updatedAtMillis) {
+        int latCell = latCell(point.latitude());
+        int lonCell = lonCell(point.longitude());
+        long cell = cellKey(latCell, lonCell);
+        entries.compute(id, (key, current) -> {
+            if (current != null && current.updatedAtMillis() > updatedAtMillis) {
+                return current;
+            }
+            if (current != null && current.cell() != cell) {
+                removeFromCell(current.cell(), id);
+            }
+            if (current == null || current.cell() != cell) {
+                cells.computeIfAbsent(cell, ignored -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return new Entry(point, updatedAtMillis, cell);
+        });
+    }
+
+    /**
+     * @return true if the id was indexed
+     */
+    public boolean remove(long id) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(id, (key, current) -> {
+            removeFromCell(current.cell(), id);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Removes the ids last updated before the given time that the predicate does not keep.
+     */
+    public void removeOlderThan(long updatedAtMillis, LongPredicate keep) {
+        for (Long id : entries.keySet()) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.updatedAtMillis() < updatedAtMillis && !keep.test(id)) {
+                entries.computeIfPresent(id, (key, current) -> {
+                    if (current.updatedAtMillis() >= updatedAtMillis) {
+                        return current;
+                    }
+                    removeFromCell(current.cell(), id);
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * @return the indexed position of the id, or null
+     */
+    public GeoPoint get(long id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.point();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the {@code k} points closest to the origin within {@code maxDistanceKm}, among those updated at or after
+     * {@code updatedSinceMillis}, closest first.
+     */
+    public List<Neighbour> nearest(GeoPoint origin, int k, double maxDistanceKm, long updatedSinceMillis) {
+        if (k <= 0 || entries.isEmpty()) {
+            return List.of();
+        }
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Neighbour::distanceKm).reversed());
+        int originLat = latCell(origin.latitude());
+        int originLon = lonCell(origin.longitude());
+        int maxRing = lonCells / 2 - 1;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                int latCell = originLat + dLat;
+                if (latCell < 0 || latCell >= latCells) {
+                    continue;
+                }
+                // the top and bottom rows of the ring are scanned entirely, the other rows only at both ends
+                int step = Math.abs(dLat) == ring ? 1 : Math.max(1, 2 * ring);
+                for (int dLon = -ring; dLon <= ring; dLon += step) {
+                    scanCell(cellKey(latCell, Math.floorMod(originLon + dLon, lonCells)), origin, k, maxDistanceKm,
+                            updatedSinceMillis, best);
+                }
+            }
+
+            // every point beyond this ring is at least ring cells away from the origin's cell
+            double reachedKm = ring * minCellSideKm(origin.latitude(), ring + 1);
+            if (reachedKm > maxDistanceKm || (best.size() == k && best.peek().distanceKm() <= reachedKm)) {
+                break;
+            }
+        }
+
+        List<Neighbour> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbour::distanceKm));
+        return result;
+    }
+
+    private void scanCell(long cell, GeoPoint origin, int k, double maxDistanceKm, long updatedSinceMillis,
+                          PriorityQueue<Neighbour> best) {
+        Set<Long> ids = cells.get(cell);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            Entry entry = entries.get(id);
+            // skip ids that moved out of the cell since it was listed
+            if (entry == null || entry.cell() != cell || entry.updatedAtMillis() < updatedSinceMillis) {
+                continue;
+            }
+            double distance = origin.distanceKm(entry.point());
+            if (distance > maxDistanceKm) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(new Neighbour(id, entry.point(), distance, entry.updatedAtMillis()));
+            } else if (distance < best.peek().distanceKm()) {
+                best.poll();
+                best.add(new Neighbour(id, entry.point(), distance, entry.updatedAtMillis()));
+            }
+        }
+    }
+
+    /**
+     * Shortest side of the cells up to {@code rings} rings away from the latitude: the east-west side shrinks
+     * towards the poles.
+     */
+    private double minCellSideKm(double latitude, int rings) {
+        double farthestLatitude = Math.min(90, Math.abs(latitude) + rings * cellDegrees);
+        return cellDegrees * GeoPoint.KM_PER_DEGREE * Math.min(1, Math.cos(Math.toRadians(farthestLatitude)));
+    }
+
+    private void removeFromCell(long cell, long id) {
+        Set<Long> ids = cells.get(cell);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    private int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), lonCells);
+    }
+
+    private long cellKey(int latCell, int lonCell) {
+        return (long) latCell * lonCells + lonCell;
+    }
+
+    /**
+     * A point found by {@link #nearest}.
+     */
+    public record Neighbour(long id, GeoPoint point, double distanceKm, long updatedAtMillis) {
+    }
+
+    private record Entry(GeoPoint point, long updatedAtMillis, long cell) {
+    }
+}
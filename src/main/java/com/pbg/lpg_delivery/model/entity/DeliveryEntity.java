@@ -19,7 +19,7 @@ public class DeliveryEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long deliveryId;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private OrderEntity order;
 
@@ -34,6 +34,8 @@ public class DeliveryEntity {
 
     private LocalDateTime expectedDeliveryDate;
 
+    private LocalDateTime assignedAt;
+
     private String notes;
 
     public static DeliveryEntity createDelivery(OrderEntity order, UserEntity deliveryPerson) {
@@ -41,15 +43,18 @@ public class DeliveryEntity {
         delivery.setOrder(order);
         delivery.setDeliveryPerson(deliveryPerson);
         delivery.setStatus(DeliveryStatus.IN_TRANSIT);
-        delivery.setExpectedDeliveryDate(calculateExpectedDeliveryDate(LocalDateTime.now()));
+        LocalDateTime now = LocalDateTime.now();
+        delivery.setAssignedAt(now.withNano(0));
+        delivery.setExpectedDeliveryDate(order.getSlotEnd() != null ? order.getSlotEnd() : calculateExpectedDeliveryDate(now));
         delivery.setNotes("Delivery in progress");
         return delivery;
     }
 
     /**
-     * Calculates the expected delivery date: 24 hours after assignment, skipping Sundays.
+     * Calculates the expected delivery date of an order placed without a delivery shift, before shifts were booked:
+     * 24 hours after assignment, skipping Sundays.
      */
-    private static LocalDateTime calculateExpectedDeliveryDate(LocalDateTime assignmentTime) {
+    public static LocalDateTime calculateExpectedDeliveryDate(LocalDateTime assignmentTime) {
         LocalDateTime expected = assignmentTime.plusHours(24);
 
         if (expected.getDayOfWeek() == DayOfWeek.SUNDAY) {
@@ -39,11 +39,6 @@ public class LpgCylinderEntity {
     }
 
 
-    public void updateStockAndPrice(LpgCylinderRequest request) {
-        this.stockQuantity += request.stockQuantity();
-        this.price = request.price();
-    }
-
     public Cylinder mapToDto(){
         return Cylinder.builder()
                 .cylinderType(type)
@@ -15,6 +15,11 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Entity
+@NamedEntityGraph(name = OrderEntity.WITH_DETAILS, attributeNodes = {
+        @NamedAttributeNode("delivery"),
+        @NamedAttributeNode("payment"),
+        @NamedAttributeNode("feedback")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -22,6 +27,13 @@ import java.util.stream.Collectors;
 @Builder
 @Table(name = "orders")
 public class OrderEntity {
+
+    /**
+     * Fetch plan that joins the delivery, payment and feedback of an order. They are mapped on the inverse side of a
+     * one-to-one, which Hibernate cannot load lazily, so without it every loaded order costs three more selects.
+     */
+    public static final String WITH_DETAILS = "OrderEntity.withDetails";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long orderId;
@@ -46,6 +58,12 @@ public class OrderEntity {
 
     private LocalDateTime deliveryDate;
 
+    private LocalDateTime slotStart;
+
+    private LocalDateTime slotEnd; // expected delivery date
+
+    private Long deliveryZone; // null for customers without a position
+
     @OneToOne(mappedBy = "order", cascade = CascadeType.ALL)
     private DeliveryEntity delivery;
 
@@ -73,6 +91,9 @@ public class OrderEntity {
                 .status(status)
                 .orderDate(orderDate)
                 .deliveryDate(deliveryDate)
+                .slotStart(slotStart)
+                .slotEnd(slotEnd)
+                .deliveryZone(deliveryZone)
                 .delivery(delivery)
                 .payment(payment)
                 .feedback(feedback)
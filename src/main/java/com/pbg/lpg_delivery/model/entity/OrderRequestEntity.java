@@ -0,0 +1,110 @@
+package com.pbg.lpg_delivery.model.entity;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.model.responses.OrderRequestStatusResponse;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An order taken through the asynchronous intake. It waits as {@code QUEUED} until the intake worker either places
+ * the order ({@code ACCEPTED}, with the id of the created order) or turns it down ({@code REJECTED}, with the error).
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "order_requests")
+public class OrderRequestEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long requestId;
+
+    @Column(nullable = false, updatable = false, length = 36)
+    private String trackingId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private UserEntity user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CylinderType cylinderType;
+
+    @Column(nullable = false)
+    private Double capacity;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderRequestStatus status;
+
+    private Long orderId;
+
+    @Column(length = 32)
+    private String errorCode;
+
+    private String errorMessage;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    /** Failed attempts at processing the request on its own. */
+    @Column(nullable = false)
+    private int attempts;
+
+    public static OrderRequestEntity queue(OrderRequest request, UserEntity user) {
+        return OrderRequestEntity.builder()
+                .trackingId(UUID.randomUUID().toString())
+                .user(user)
+                .cylinderType(request.cylinderType())
+                .capacity(request.capacity())
+                .quantity(request.quantity())
+                .status(OrderRequestStatus.QUEUED)
+                .createdAt(LocalDateTime.now().withNano(0))
+                .build();
+    }
+
+    public OrderRequest toOrderRequest() {
+        return new OrderRequest(cylinderType, capacity, quantity);
+    }
+
+    public void accept(Long orderId, LocalDateTime processedAt) {
+        this.status = OrderRequestStatus.ACCEPTED;
+        this.orderId = orderId;
+        this.processedAt = processedAt;
+    }
+
+    public void reject(String errorCode, String errorMessage, LocalDateTime processedAt) {
+        this.status = OrderRequestStatus.REJECTED;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+        this.processedAt = processedAt;
+    }
+
+    /**
+     * Counts a failed attempt at processing the request and rejects it once it failed {@code maxAttempts} times.
+     */
+    public void fail(int maxAttempts, LocalDateTime processedAt) {
+        attempts++;
+        if (attempts >= maxAttempts) {
+            reject("LP-415", "The order could not be processed. Please place it again.", processedAt);
+        }
+    }
+
+    public OrderRequestStatusResponse toStatusResponse() {
+        return new OrderRequestStatusResponse(trackingId, status, cylinderType, capacity, quantity, orderId,
+                errorCode, errorMessage, createdAt, processedAt);
+    }
+}
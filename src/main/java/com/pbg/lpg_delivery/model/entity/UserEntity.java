@@ -7,7 +7,6 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -38,6 +37,12 @@ public class UserEntity {
 
     private String address;
 
+    private Double latitude;
+
+    private Double longitude;
+
+    private LocalDateTime locationUpdatedAt;
+
     @Enumerated(EnumType.STRING)
     private Role role;
 
@@ -57,24 +62,30 @@ public class UserEntity {
         this.createdAt = LocalDateTime.now().withNano(0);
     }
 
-    public static UserEntity mapToEntity(SignupRequest signupRequest, PasswordEncoder passwordEncoder){
+    public static UserEntity mapToEntity(SignupRequest signupRequest, String encodedPassword){
         return UserEntity.builder()
                .username(signupRequest.username())
-               .password(passwordEncoder.encode(signupRequest.password()))
+               .password(encodedPassword)
                .email(signupRequest.email())
                .phoneNumber(signupRequest.phoneNumber())
                .address(signupRequest.address())
+               .latitude(signupRequest.latitude())
+               .longitude(signupRequest.longitude())
+               .locationUpdatedAt(signupRequest.latitude() == null ? null : LocalDateTime.now().withNano(0))
                .role(Role.CUSTOMER)
                .build();
     }
 
-    public static UserEntity mapToEntityForUser(SignupRequest signupRequest, PasswordEncoder passwordEncoder){
+    public static UserEntity mapToEntityForUser(SignupRequest signupRequest, String encodedPassword){
         return UserEntity.builder()
                 .username(signupRequest.username())
-                .password(passwordEncoder.encode(signupRequest.password()))
+                .password(encodedPassword)
                 .email(signupRequest.email())
                 .phoneNumber(signupRequest.phoneNumber())
                 .address(signupRequest.address())
+                .latitude(signupRequest.latitude())
+                .longitude(signupRequest.longitude())
+                .locationUpdatedAt(signupRequest.latitude() == null ? null : LocalDateTime.now().withNano(0))
                 .role(signupRequest.role())
                 .build();
     }
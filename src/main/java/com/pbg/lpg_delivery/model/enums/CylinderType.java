@@ -2,13 +2,13 @@ package com.pbg.lpg_delivery.model.enums;
 
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 
-import java.util.Arrays;
-
 public enum CylinderType {
 
     COMMERCIAL(18.5),
     DOMESTIC(14.5);
 
+    private static final CylinderType[] VALUES = values();
+
     private final double capacity;
 
     CylinderType(double capacity) {
@@ -20,10 +20,13 @@ public enum CylinderType {
     }
 
     public static CylinderType fromString(String type) {
-        return Arrays.stream(CylinderType.values())
-                .filter(t -> t.name().equalsIgnoreCase(type))
-                .findFirst()
-                .orElseThrow(() -> new LpgException("LH-405", "Invalid cylinder type. Must be 'COMMERCIAL' or 'DOMESTIC'."));
+        // values() clones the array on every call, so iterate over a cached copy
+        for (CylinderType t : VALUES) {
+            if (t.name().equalsIgnoreCase(type)) {
+                return t;
+            }
+        }
+        throw new LpgException("LH-405", "Invalid cylinder type. Must be 'COMMERCIAL' or 'DOMESTIC'.");
     }
 }
 
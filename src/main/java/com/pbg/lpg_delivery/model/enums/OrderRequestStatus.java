@@ -0,0 +1,7 @@
+package com.pbg.lpg_delivery.model.enums;
+
+public enum OrderRequestStatus {
+    QUEUED,
+    ACCEPTED,
+    REJECTED
+}
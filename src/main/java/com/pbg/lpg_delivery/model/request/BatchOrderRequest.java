@@ -0,0 +1,23 @@
+package com.pbg.lpg_delivery.model.request;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "One order of a bulk order placed on behalf of a customer.")
+public record BatchOrderRequest(
+        @Schema(description = "Username of the customer the order is placed for", example = "john_doe")
+        String username,
+
+        @Schema(description = "Type of LPG cylinder (e.g., COMMERCIAL or DOMESTIC)", example = "COMMERCIAL")
+        CylinderType cylinderType,
+
+        @Schema(description = "Capacity of the LPG cylinder in kilograms", example = "18.5")
+        Double capacity,
+
+        @Schema(description = "Number of cylinders requested", example = "4")
+        Integer quantity
+) {
+    public OrderRequest toOrderRequest() {
+        return new OrderRequest(cylinderType, capacity, quantity);
+    }
+}
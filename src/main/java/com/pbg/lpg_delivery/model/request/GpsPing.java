@@ -0,0 +1,18 @@
+package com.pbg.lpg_delivery.model.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "One position fix reported by the device of a delivery person.")
+public record GpsPing(
+
+        @Schema(description = "Latitude in decimal degrees", example = "28.6139")
+        Double latitude,
+
+        @Schema(description = "Longitude in decimal degrees", example = "77.2090")
+        Double longitude,
+
+        @Schema(description = "When the device took the fix", example = "2024-02-01T10:15:30")
+        LocalDateTime recordedAt
+) {}
@@ -0,0 +1,12 @@
+package com.pbg.lpg_delivery.model.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Request payload for a delivery person uploading the position fixes taken since the last upload.")
+public record GpsPingBatch(
+
+        @Schema(description = "Position fixes, oldest first")
+        List<GpsPing> pings
+) {}
@@ -0,0 +1,13 @@
+package com.pbg.lpg_delivery.model.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Request payload for a delivery person reporting their current position.")
+public record LocationRequest(
+
+        @Schema(description = "Latitude in decimal degrees", example = "28.6139")
+        Double latitude,
+
+        @Schema(description = "Longitude in decimal degrees", example = "77.2090")
+        Double longitude
+) {}
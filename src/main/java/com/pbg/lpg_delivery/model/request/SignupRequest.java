@@ -22,5 +22,11 @@ public record SignupRequest(
         String address,
 
         @Schema(description = "Role of the user (CUSTOMER, ADMIN, DELIVERY_PERSON)", example = "CUSTOMER")
-        Role role
+        Role role,
+
+        @Schema(description = "Latitude of the address in decimal degrees, optional", example = "28.6139")
+        Double latitude,
+
+        @Schema(description = "Longitude of the address in decimal degrees, optional", example = "77.2090")
+        Double longitude
 ) {}
@@ -0,0 +1,18 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of one run of the automatic delivery assignment.")
+public record AutoDispatchResult(
+
+        @Schema(description = "Pending orders assigned to a delivery person in this run", example = "120")
+        int assigned,
+
+        @Schema(description = "Pending orders left unassigned because every delivery person reached the daily capacity",
+                example = "0")
+        int unassigned,
+
+        @Schema(description = "Delivery persons that still had capacity at the start of the run", example = "8")
+        int availableCouriers
+) {
+}
@@ -0,0 +1,14 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Number of orders a delivery person currently has on the road.")
+public record CourierWorkload(
+
+        @Schema(description = "Username of the delivery person", example = "delivery_guy")
+        String username,
+
+        @Schema(description = "Orders assigned to the delivery person that are still in transit", example = "4")
+        long inTransit
+) {
+}
@@ -0,0 +1,17 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Delivery shift during which an order is brought to the customer.")
+public record DeliverySlot(
+
+        @Schema(description = "Start of the delivery shift", example = "2025-02-21T09:00:00")
+        LocalDateTime start,
+
+        @Schema(description = "End of the delivery shift, which is also the expected delivery date",
+                example = "2025-02-21T13:00:00")
+        LocalDateTime end
+) {
+}
@@ -0,0 +1,25 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "A delivery person close to an order, with their last reported position.")
+public record NearbyCourier(
+
+        @Schema(description = "Username of the delivery person", example = "delivery_guy")
+        String username,
+
+        @Schema(description = "Last reported latitude", example = "28.6139")
+        double latitude,
+
+        @Schema(description = "Last reported longitude", example = "77.2090")
+        double longitude,
+
+        @Schema(description = "Straight-line distance to the order in kilometres", example = "1.8")
+        double distanceKm,
+
+        @Schema(description = "When the position was reported")
+        LocalDateTime reportedAt
+) {
+}
@@ -0,0 +1,20 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "A pending order close to a delivery person.")
+public record NearbyOrder(
+
+        @Schema(description = "ID of the pending order", example = "101")
+        Long orderId,
+
+        @Schema(description = "Latitude of the customer's address", example = "28.6139")
+        double latitude,
+
+        @Schema(description = "Longitude of the customer's address", example = "77.2090")
+        double longitude,
+
+        @Schema(description = "Straight-line distance from the delivery person in kilometres", example = "0.7")
+        double distanceKm
+) {
+}
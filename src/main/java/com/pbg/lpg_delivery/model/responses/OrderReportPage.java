@@ -0,0 +1,17 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "A page of the admin order report, ordered by order date and order id.")
+public record OrderReportPage(
+
+        @Schema(description = "Orders of this page")
+        List<OrderReportRow> orders,
+
+        @Schema(description = "Cursor to pass to get the next page, null when this is the last page",
+                example = "MjAyNS0wMi0yMFQxMDozMDowMHwxMDI0")
+        String nextCursor
+) {
+}
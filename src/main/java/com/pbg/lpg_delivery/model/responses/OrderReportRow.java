@@ -0,0 +1,77 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "One order of the admin order report, together with the customer who placed it.")
+public record OrderReportRow(
+
+        @Schema(description = "Unique identifier of the order", example = "1024")
+        Long orderId,
+
+        @Schema(description = "Username of the customer", example = "john_doe")
+        String username,
+
+        @Schema(description = "Email address of the customer", example = "john.doe@example.com")
+        String email,
+
+        @Schema(description = "Phone number of the customer", example = "+1234567890")
+        String phoneNumber,
+
+        @Schema(description = "Delivery address of the customer", example = "123 Main Street, Springfield")
+        String address,
+
+        @Schema(description = "Type of LPG cylinder (COMMERCIAL or DOMESTIC)", example = "DOMESTIC")
+        CylinderType cylinderType,
+
+        @Schema(description = "Capacity of the cylinder in kilograms", example = "14.5")
+        Double capacity,
+
+        @Schema(description = "Number of cylinders ordered", example = "2")
+        Integer quantity,
+
+        @Schema(description = "Total price of the order in local currency", example = "1700.00")
+        Double totalPrice,
+
+        @Schema(description = "Current status of the order", example = "PENDING")
+        OrderStatus status,
+
+        @Schema(description = "Date and time when the order was placed", example = "2025-02-20T10:30:00")
+        LocalDateTime orderDate,
+
+        @Schema(description = "Expected delivery date and time", example = "2025-02-22T15:00:00")
+        LocalDateTime deliveryDate
+) {
+
+    public Order toOrder() {
+        return new Order(cylinderType, capacity, quantity, totalPrice, status, orderDate, deliveryDate);
+    }
+
+    public UserInfo toUserInfo() {
+        return new UserInfo(username, email, phoneNumber, address);
+    }
+
+    /**
+     * Groups rows into one {@link OrderDetails} per customer, keeping the order in which customers first appear.
+     */
+    public static List<OrderDetails> groupByUser(List<OrderReportRow> rows) {
+        Map<String, List<OrderReportRow>> rowsByUser = new LinkedHashMap<>();
+        for (OrderReportRow row : rows) {
+            rowsByUser.computeIfAbsent(row.username(), username -> new ArrayList<>()).add(row);
+        }
+
+        List<OrderDetails> details = new ArrayList<>(rowsByUser.size());
+        for (List<OrderReportRow> userRows : rowsByUser.values()) {
+            details.add(new OrderDetails(userRows.get(0).toUserInfo(),
+                    userRows.stream().map(OrderReportRow::toOrder).toList()));
+        }
+        return details;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Outcome of an order placed through the asynchronous intake.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderRequestStatusResponse(
+
+        @Schema(description = "Tracking id returned when the order was received", example = "3f0e5c1a-8d2b-4c55-9a57-0b8f0c2d7e11")
+        String trackingId,
+
+        @Schema(description = "QUEUED while waiting, ACCEPTED once the order is placed, REJECTED if it could not be placed",
+                example = "ACCEPTED")
+        OrderRequestStatus status,
+
+        @Schema(description = "Type of LPG cylinder (COMMERCIAL or DOMESTIC)", example = "DOMESTIC")
+        CylinderType cylinderType,
+
+        @Schema(description = "Capacity of the cylinder in kilograms", example = "14.5")
+        Double capacity,
+
+        @Schema(description = "Number of cylinders requested", example = "2")
+        Integer quantity,
+
+        @Schema(description = "Id of the placed order, once accepted", example = "1024")
+        Long orderId,
+
+        @Schema(description = "Error code, when rejected", example = "LP-103")
+        String errorCode,
+
+        @Schema(description = "Reason of the rejection", example = "Insufficient stock available.")
+        String errorMessage,
+
+        @Schema(description = "When the order was received", example = "2025-02-20T10:30:00")
+        LocalDateTime receivedAt,
+
+        @Schema(description = "When the order was accepted or rejected", example = "2025-02-20T10:30:01")
+        LocalDateTime processedAt
+) {
+}
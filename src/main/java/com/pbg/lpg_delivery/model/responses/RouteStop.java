@@ -0,0 +1,31 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "One stop of a delivery person's route: a customer and the orders to deliver there.")
+public record RouteStop(
+
+        @Schema(description = "Position of the stop in the route, starting at 1", example = "1")
+        int sequence,
+
+        @Schema(description = "Information about the customer to deliver to")
+        UserInfo userInfo,
+
+        @Schema(description = "Orders to deliver at this stop")
+        List<Order> order,
+
+        @Schema(description = "Latitude of the stop, absent if the customer has no known location", example = "28.6139")
+        Double latitude,
+
+        @Schema(description = "Longitude of the stop, absent if the customer has no known location", example = "77.2090")
+        Double longitude,
+
+        @Schema(description = "Straight-line distance from the previous stop, or from the delivery person for the " +
+                "first one, in kilometres", example = "1.25")
+        Double distanceKm
+) {
+}
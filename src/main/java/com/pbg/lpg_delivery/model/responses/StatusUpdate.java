@@ -0,0 +1,42 @@
+package com.pbg.lpg_delivery.model.responses;
+
+import com.pbg.lpg_delivery.model.enums.DeliveryStatus;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "A status change of an order or its delivery, pushed to the customer and the delivery person.")
+public record StatusUpdate(
+
+        @Schema(description = "ID of the order that changed", example = "101")
+        Long orderId,
+
+        @Schema(description = "What happened to the order", example = "ORDER_ASSIGNED")
+        OrderEventType type,
+
+        @Schema(description = "Status of the order after the change", example = "IN_TRANSIT")
+        OrderStatus orderStatus,
+
+        @Schema(description = "Status of the delivery after the change, absent if the delivery did not change", example = "IN_TRANSIT")
+        DeliveryStatus deliveryStatus,
+
+        @Schema(description = "Username of the delivery person, when one is involved", example = "delivery_guy")
+        String courier,
+
+        @Schema(description = "When the change was made")
+        LocalDateTime occurredAt
+) {
+
+    public static StatusUpdate from(OrderEvent event) {
+        DeliveryStatus deliveryStatus = switch (event.type()) {
+            case ORDER_ASSIGNED -> DeliveryStatus.IN_TRANSIT;
+            case ORDER_DELIVERED -> DeliveryStatus.DELIVERED;
+            default -> null;
+        };
+        return new StatusUpdate(event.orderId(), event.type(), event.status(), deliveryStatus, event.courier(),
+                event.occurredAt());
+    }
+}
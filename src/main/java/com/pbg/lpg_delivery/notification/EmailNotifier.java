@@ -0,0 +1,277 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends customer emails in the background.
+ * <p>
+ * {@link #enqueue} only records the notification and returns; rendering and SMTP happen on a small pool of
+ * {@code lpg.notifications.mail.threads} daemon threads, so no caller ever waits on the mail server. At most
+ * {@code lpg.notifications.mail.queue-capacity} notifications are held at a time, beyond that {@link #enqueue}
+ * refuses new ones.
+ * <p>
+ * Notifications for the same recipient are collected for {@code lpg.notifications.mail.coalesce-ms} and then sent
+ * together: one email if there is a single one, one digest otherwise. A failed send is retried with an exponential
+ * backoff up to {@code lpg.notifications.mail.max-attempts} times, then dropped. Templates are rendered by the
+ * caching Thymeleaf engine and parsed once at startup.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.mail.host")
+public class EmailNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailNotifier.class);
+
+    private final JavaMailSender mailSender;
+    private final ITemplateEngine templateEngine;
+    private final String from;
+    private final int queueCapacity;
+    private final Duration coalesceWindow;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Cache<Long, Boolean> recentlySent;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dropped;
+    private final Counter rejected;
+
+    public EmailNotifier(JavaMailSender mailSender, ITemplateEngine templateEngine, MeterRegistry meterRegistry,
+                         @Value("${lpg.notifications.mail.from:no-reply@lpg-delivery.local}") String from,
+                         @Value("${lpg.notifications.mail.threads:2}") int threads,
+                         @Value("${lpg.notifications.mail.queue-capacity:1000}") int queueCapacity,
+                         @Value("${lpg.notifications.mail.coalesce-ms:500}") long coalesceMillis,
+                         @Value("${lpg.notifications.mail.max-attempts:3}") int maxAttempts,
+                         @Value("${lpg.notifications.mail.retry-backoff-ms:2000}") long retryBackoffMillis) {
+        this.mailSender = mailSender;
+        this.templateEngine = templateEngine;
+        this.from = from;
+        this.queueCapacity = queueCapacity;
+        this.coalesceWindow = Duration.ofMillis(coalesceMillis);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "lpg-mail-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        // event ids of sent notifications, so an event the outbox delivers twice is not mailed twice
+        this.recentlySent = Caffeine.newBuilder()
+                .maximumSize(Math.max(queueCapacity, 1) * 10L)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+
+        this.sent = Counter.builder("lpg.notifications.sent")
+                .description("Emails handed to the mail server")
+                .register(meterRegistry);
+        this.retried = Counter.builder("lpg.notifications.retried")
+                .description("Email sends that failed and were scheduled again")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("lpg.notifications.dropped")
+                .description("Notifications given up on after the last attempt or a rendering failure")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("lpg.notifications.rejected")
+                .description("Notifications dropped because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("lpg.notifications.queued", queued, AtomicInteger::get)
+                .description("Notifications waiting to be sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parses every template once, so the first emails do not pay for it; the engine keeps them cached.
+     */
+    @PostConstruct
+    void warmTemplates() {
+        OrderEvent sample = new OrderEvent(0L, 0L, OrderEventType.ORDER_CREATED, OrderStatus.PENDING, 0L,
+                CylinderType.DOMESTIC, 14.5, 1, 0.0, "courier", LocalDateTime.now());
+        List<Notification> samples = new ArrayList<>();
+        for (NotificationType type : NotificationType.values()) {
+            Notification notification = new Notification(type, "customer@example.com", "customer", sample);
+            samples.add(notification);
+            render(List.of(notification));
+        }
+        render(samples);
+        logger.info("Mail templates compiled, sending from {}", from);
+    }
+
+    /**
+     * Queues a notification for sending.
+     *
+     * @return false if the queue is full and the notification was not accepted, true otherwise (including when the
+     * same event was already queued or sent)
+     */
+    public boolean enqueue(Notification notification) {
+        Long eventId = notification.event().eventId();
+        if (eventId != null && recentlySent.getIfPresent(eventId) != null) {
+            return true;
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        mailboxes.compute(notification.recipient(), (recipient, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                executor.schedule(() -> flush(recipient), coalesceWindow.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (!mailbox.add(notification)) {
+                queued.decrementAndGet();
+            }
+            return mailbox;
+        });
+        return true;
+    }
+
+    /**
+     * Number of notifications accepted but not sent or dropped yet.
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        if (queued.get() > 0) {
+            logger.warn("{} email notification(s) not sent at shutdown", queued.get());
+        }
+    }
+
+    private void flush(String recipient) {
+        // removed before sending: notifications arriving from now on open a new mailbox and a new window
+        Mailbox mailbox = mailboxes.remove(recipient);
+        if (mailbox != null) {
+            send(recipient, mailbox.notifications, 1);
+        }
+    }
+
+    private void send(String recipient, List<Notification> notifications, int attempt) {
+        MimeMessage message;
+        try {
+            message = render(notifications);
+            message.setRecipients(MimeMessage.RecipientType.TO, recipient);
+        } catch (RuntimeException | MessagingException ex) {
+            logger.error("Failed to render email for {}, dropping {} notification(s): {}", recipient,
+                    notifications.size(), ex.getMessage(), ex);
+            done(notifications, dropped);
+            return;
+        }
+
+        try {
+            mailSender.send(message);
+            notifications.forEach(notification -> {
+                if (notification.event().eventId() != null) {
+                    recentlySent.put(notification.event().eventId(), Boolean.TRUE);
+                }
+            });
+            done(notifications, sent);
+        } catch (MailException ex) {
+            if (attempt >= maxAttempts) {
+                logger.error("Failed to send email to {} after {} attempt(s), dropping {} notification(s): {}",
+                        recipient, attempt, notifications.size(), ex.getMessage());
+                done(notifications, dropped);
+                return;
+            }
+            Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+            logger.warn("Failed to send email to {} (attempt {}), retrying in {}: {}", recipient, attempt, backoff,
+                    ex.getMessage());
+            retried.increment();
+            executor.schedule(() -> send(recipient, notifications, attempt + 1), backoff.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private MimeMessage render(List<Notification> notifications) {
+        Context context = new Context();
+        String template;
+        String subject;
+        if (notifications.size() == 1) {
+            Notification notification = notifications.get(0);
+            context.setVariable("username", notification.username());
+            context.setVariable("event", notification.event());
+            template = notification.type().getTemplate();
+            subject = notification.type().subjectFor(notification.event().orderId());
+        } else {
+            context.setVariable("username", notifications.get(0).username());
+            context.setVariable("notifications", notifications);
+            template = NotificationType.DIGEST_TEMPLATE;
+            subject = String.format(NotificationType.DIGEST_SUBJECT, notifications.size());
+        }
+        String body = templateEngine.process(template, context);
+
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+            helper.setFrom(from);
+            helper.setSubject(subject);
+            helper.setText(body, true);
+            return message;
+        } catch (MessagingException ex) {
+            throw new IllegalStateException("Could not build email: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void done(List<Notification> notifications, Counter outcome) {
+        queued.addAndGet(-notifications.size());
+        outcome.increment(notifications.size());
+    }
+
+    /**
+     * Notifications collected for one recipient during the coalescing window. Only modified inside
+     * {@code mailboxes.compute}, and only read once removed from the map.
+     */
+    private static final class Mailbox {
+        private final List<Notification> notifications = new ArrayList<>();
+
+        private boolean add(Notification notification) {
+            Long eventId = notification.event().eventId();
+            if (eventId != null && notifications.stream().anyMatch(queued -> eventId.equals(queued.event().eventId()))) {
+                return false;
+            }
+            return notifications.add(notification);
+        }
+    }
+}
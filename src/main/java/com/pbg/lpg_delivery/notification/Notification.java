@@ -0,0 +1,14 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+
+/**
+ * One email to send to a customer about an order event.
+ *
+ * @param type      which email to send
+ * @param recipient email address of the customer
+ * @param username  username of the customer, used in the greeting
+ * @param event     the order event the email is about; its id identifies duplicates
+ */
+public record Notification(NotificationType type, String recipient, String username, OrderEvent event) {
+}
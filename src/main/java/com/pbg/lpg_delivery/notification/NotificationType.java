@@ -0,0 +1,46 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+
+import java.util.Optional;
+
+/**
+ * The emails sent to customers, with the Thymeleaf template under {@code templates/mail} each one is rendered with.
+ */
+public enum NotificationType {
+
+    ORDER_PLACED("mail/order-placed", "Your LPG order #%d is placed"),
+    OUT_FOR_DELIVERY("mail/out-for-delivery", "Your LPG order #%d is out for delivery"),
+    DELIVERED("mail/delivered", "Your LPG order #%d was delivered");
+
+    /**
+     * Template of the single email sent when several notifications for one customer are coalesced.
+     */
+    static final String DIGEST_TEMPLATE = "mail/order-updates";
+    static final String DIGEST_SUBJECT = "Updates on %d of your LPG orders";
+
+    private final String template;
+    private final String subject;
+
+    NotificationType(String template, String subject) {
+        this.template = template;
+        this.subject = subject;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String subjectFor(Long orderId) {
+        return String.format(subject, orderId);
+    }
+
+    public static Optional<NotificationType> forEvent(OrderEventType eventType) {
+        return switch (eventType) {
+            case ORDER_CREATED -> Optional.of(ORDER_PLACED);
+            case ORDER_ASSIGNED -> Optional.of(OUT_FOR_DELIVERY);
+            case ORDER_DELIVERED -> Optional.of(DELIVERED);
+            default -> Optional.empty();
+        };
+    }
+}
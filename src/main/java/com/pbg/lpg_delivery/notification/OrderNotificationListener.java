@@ -0,0 +1,72 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventListener;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Turns order events from the outbox into customer emails. Only active when a mail server is configured
+ * ({@code spring.mail.host}).
+ * <p>
+ * This runs on the outbox dispatcher, never on a request thread, and only queues the email. The customers of a batch
+ * are loaded with one query before it is delivered. When the mail queue is full the email is dropped and counted
+ * ({@code lpg.notifications.rejected}); the event still counts as published, so a slow mail server never holds up
+ * the outbox.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.mail.host")
+public class OrderNotificationListener implements OrderEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNotificationListener.class);
+
+    private final UserRepository userRepository;
+    private final EmailNotifier emailNotifier;
+
+    /** Customers of the batch being delivered; the dispatcher delivers one batch at a time. */
+    private volatile Map<Long, UserEntity> recipients = Map.of();
+
+    public OrderNotificationListener(UserRepository userRepository, EmailNotifier emailNotifier) {
+        this.userRepository = userRepository;
+        this.emailNotifier = emailNotifier;
+    }
+
+    @Override
+    public void beforeBatch(List<OrderEvent> events) {
+        Set<Long> userIds = events.stream()
+                .filter(event -> NotificationType.forEvent(event.type()).isPresent())
+                .map(OrderEvent::userId)
+                .collect(Collectors.toSet());
+        Map<Long, UserEntity> users = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findAllById(userIds).forEach(user -> users.put(user.getUserId(), user));
+        }
+        recipients = users;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        NotificationType.forEvent(event.type()).ifPresent(type -> recipient(event.userId())
+                .ifPresentOrElse(user -> {
+                    if (!emailNotifier.enqueue(new Notification(type, user.getEmail(), user.getUsername(), event))) {
+                        logger.warn("Email queue full, dropped the {} email of order {}", type, event.orderId());
+                    }
+                }, () -> logger.warn("No user {} to notify about order {}", event.userId(), event.orderId())));
+    }
+
+    private Optional<UserEntity> recipient(Long userId) {
+        UserEntity user = recipients.get(userId);
+        return user != null ? Optional.of(user) : userRepository.findById(userId);
+    }
+}
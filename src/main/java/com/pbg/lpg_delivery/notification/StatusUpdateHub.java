@@ -0,0 +1,324 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
+import com.pbg.lpg_delivery.model.responses.StatusUpdate;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventTail;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order and delivery status changes to the users concerned over Server-Sent Events.
+ * <p>
+ * Every event of the outbox goes to the streams of the customer who placed the order and, for assignment, delivery
+ * and cancellation of an assigned order, to the streams of the delivery person. The streams are asynchronous
+ * requests, so an open stream holds a socket but no thread; a short-lived virtual thread is only started to write
+ * when a stream has something to send. Each stream buffers at most {@code lpg.streams.buffer-size} updates: a client
+ * reading slower than updates arrive loses the oldest ones first and keeps the latest status of each order.
+ * <p>
+ * A comment is sent every {@code lpg.streams.heartbeat-ms} to keep proxies from closing quiet streams and to notice
+ * clients that went away. Streams that could not be written to for {@code lpg.streams.idle-timeout-ms} are closed,
+ * and every stream is closed after {@code lpg.streams.max-lifetime-ms}, after which clients are expected to
+ * reconnect and read the current state once. Updates carry the outbox event id as SSE id, so duplicates from the
+ * at-least-once outbox can be recognised.
+ * <p>
+ * Every instance reads the events itself with {@link OrderEventTail}, every {@code lpg.streams.poll-interval-ms},
+ * so a stream receives the updates of its user whichever instance it was opened on and whichever instance changed
+ * the order. Updates are pushed as soon as the event is written, not when the outbox dispatcher gets to it.
+ */
+@Component
+public class StatusUpdateHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusUpdateHub.class);
+
+    private final OrderEventTail eventTail;
+    private final int bufferSize;
+    private final int maxStreams;
+    private final int maxStreamsPerUser;
+    private final long maxLifetimeMillis;
+    private final long idleTimeoutNanos;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Long> userIds = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("lpg-stream-", 0).factory());
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter reaped;
+    private final Counter rejected;
+
+    public StatusUpdateHub(OrderEventTail eventTail, MeterRegistry meterRegistry,
+                           @Value("${lpg.streams.buffer-size:16}") int bufferSize,
+                           @Value("${lpg.streams.max-open:50000}") int maxStreams,
+                           @Value("${lpg.streams.max-per-user:4}") int maxStreamsPerUser,
+                           @Value("${lpg.streams.max-lifetime-ms:1800000}") long maxLifetimeMillis,
+                           @Value("${lpg.streams.idle-timeout-ms:45000}") long idleTimeoutMillis) {
+        this.eventTail = eventTail;
+        this.bufferSize = bufferSize;
+        this.maxStreams = maxStreams;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        this.sent = Counter.builder("lpg.streams.sent")
+                .description("Status updates handed to streams for writing")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("lpg.streams.dropped")
+                .description("Status updates discarded because a stream's buffer was full")
+                .register(meterRegistry);
+        this.reaped = Counter.builder("lpg.streams.reaped")
+                .description("Streams closed because nothing could be written to them")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("lpg.streams.rejected")
+                .description("Streams refused because too many were open")
+                .register(meterRegistry);
+        Gauge.builder("lpg.streams.open", open, AtomicInteger::get)
+                .description("Open status update streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the status updates of the given user. When the user already has
+     * {@code lpg.streams.max-per-user} streams, the oldest one is closed.
+     */
+    public SseEmitter subscribe(AuthenticatedUser user) {
+        return subscribe(user.getUserId(), user.getUsername(), new SseEmitter(maxLifetimeMillis));
+    }
+
+    SseEmitter subscribe(Long userId, String username, SseEmitter emitter) {
+        if (open.incrementAndGet() > maxStreams) {
+            open.decrementAndGet();
+            rejected.increment();
+            throw new ServiceUnavailableException("NT-5032", "Too many open update streams, please retry later");
+        }
+
+        Subscriber subscriber = new Subscriber(userId, username, emitter);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> remove(subscriber));
+        try {
+            // held until the stream starts, then sent with the headers so the client knows it is connected
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException ex) {
+            open.decrementAndGet();
+            throw new UncheckedIOException(ex);
+        }
+
+        Subscriber[] evicted = new Subscriber[1];
+        subscribers.compute(userId, (id, streams) -> {
+            if (streams == null) {
+                streams = new CopyOnWriteArrayList<>();
+            }
+            if (streams.size() >= maxStreamsPerUser) {
+                evicted[0] = streams.getFirst();
+            }
+            streams.add(subscriber);
+            userIds.put(username, id);
+            return streams;
+        });
+        if (evicted[0] != null) {
+            evicted[0].close();
+        }
+        logger.debug("User {} opened a status stream, {} open", username, open.get());
+        return emitter;
+    }
+
+    /**
+     * Publishes the order events written since the last poll, on whichever instance they were written.
+     */
+    @Scheduled(fixedDelayString = "${lpg.streams.poll-interval-ms:250}")
+    public void pollEvents() {
+        try {
+            eventTail.poll().forEach(this::onOrderEvent);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not read the new order events: {}", ex.getMessage());
+        }
+    }
+
+    public void onOrderEvent(OrderEvent event) {
+        StatusUpdate update = StatusUpdate.from(event);
+        publish(event.userId(), event.eventId(), update);
+        if (event.courier() != null) {
+            Long courierId = userIds.get(event.courier());
+            if (courierId != null && !courierId.equals(event.userId())) {
+                publish(courierId, event.eventId(), update);
+            }
+        }
+    }
+
+    /**
+     * Sends a heartbeat on every stream and closes the ones that could not be written to for too long.
+     */
+    @Scheduled(fixedDelayString = "${lpg.streams.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> {
+            if (now - subscriber.lastWriteNanos > idleTimeoutNanos) {
+                reaped.increment();
+                logger.debug("Closing idle status stream of user {}", subscriber.username);
+                subscriber.close();
+            } else if (subscriber.heartbeatDue()) {
+                write(subscriber);
+            }
+        }));
+    }
+
+    public int openStreams() {
+        return open.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.values().forEach(streams -> streams.forEach(Subscriber::close));
+        writers.shutdownNow();
+    }
+
+    private void publish(Long userId, Long eventId, StatusUpdate update) {
+        List<Subscriber> streams = subscribers.get(userId);
+        if (streams == null) {
+            return;
+        }
+        for (Subscriber subscriber : streams) {
+            if (subscriber.offer(new Pending(eventId, update))) {
+                write(subscriber);
+            }
+        }
+    }
+
+    private void write(Subscriber subscriber) {
+        try {
+            writers.execute(subscriber::drain);
+        } catch (RejectedExecutionException ex) {
+            // shutting down, the stream is being closed
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.userId, (userId, streams) -> {
+            streams.remove(subscriber);
+            if (streams.isEmpty()) {
+                userIds.remove(subscriber.username, userId);
+                return null;
+            }
+            return streams;
+        });
+        open.decrementAndGet();
+    }
+
+    private record Pending(Long eventId, StatusUpdate update) {
+    }
+
+    /**
+     * One open stream. Updates are queued in a bounded buffer and written by at most one task at a time, which
+     * keeps them in order and never blocks the event poll on a slow client.
+     */
+    private final class Subscriber {
+
+        private final Long userId;
+        private final String username;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Pending> buffer = new ArrayDeque<>();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private boolean writing;
+        private boolean heartbeatDue;
+        private volatile long lastWriteNanos = System.nanoTime();
+
+        private Subscriber(Long userId, String username, SseEmitter emitter) {
+            this.userId = userId;
+            this.username = username;
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return true if a write task must be started
+         */
+        private synchronized boolean offer(Pending pending) {
+            if (buffer.size() >= bufferSize) {
+                buffer.pollFirst();
+                dropped.increment();
+            }
+            buffer.addLast(pending);
+            return startWriting();
+        }
+
+        private synchronized boolean heartbeatDue() {
+            heartbeatDue = true;
+            return startWriting();
+        }
+
+        private boolean startWriting() {
+            if (writing || removed.get()) {
+                return false;
+            }
+            writing = true;
+            return true;
+        }
+
+        private synchronized SseEmitter.SseEventBuilder next() {
+            Pending pending = buffer.pollFirst();
+            if (pending != null) {
+                heartbeatDue = false;
+                sent.increment();
+                return SseEmitter.event()
+                        .id(String.valueOf(pending.eventId()))
+                        .name(pending.update().type().name())
+                        .data(pending.update(), MediaType.APPLICATION_JSON);
+            }
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                return SseEmitter.event().comment("heartbeat");
+            }
+            writing = false;
+            return null;
+        }
+
+        private void drain() {
+            try {
+                for (SseEmitter.SseEventBuilder event = next(); event != null; event = next()) {
+                    emitter.send(event);
+                    lastWriteNanos = System.nanoTime();
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // the client went away or the stream is already complete; the container completes the request
+                logger.debug("Status stream of user {} closed: {}", username, ex.getMessage());
+                remove(this);
+            }
+        }
+
+        private void close() {
+            remove(this);
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ex) {
+                // already completed
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.pbg.lpg_delivery.outbox;
+
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change in the lifecycle of an order, as stored in the outbox and handed to {@link OrderEventListener}s.
+ * It carries a snapshot of the order at the time of the change, so listeners do not need to read it back.
+ *
+ * @param eventId      position of the event in the outbox, increasing per order; null until stored
+ * @param orderId      id of the order that changed
+ * @param type         what happened to the order
+ * @param status       status of the order after the change
+ * @param userId       id of the customer who placed the order
+ * @param cylinderType type of cylinder ordered
+ * @param capacity     capacity of the cylinder in kilograms
+ * @param quantity     number of cylinders ordered
+ * @param totalPrice   total price of the order
+ * @param courier      username of the delivery person, for assignment, delivery and cancellation of an assigned
+ *                     order
+ * @param occurredAt   when the change was made
+ */
+public record OrderEvent(Long eventId, Long orderId, OrderEventType type, OrderStatus status, Long userId,
+                         CylinderType cylinderType, Double capacity, Integer quantity, Double totalPrice,
+                         String courier, LocalDateTime occurredAt) {
+
+    public static OrderEvent of(OrderEventType type, OrderEntity order) {
+        return of(type, order, null);
+    }
+
+    public static OrderEvent of(OrderEventType type, OrderEntity order, String courier) {
+        return new OrderEvent(null, order.getOrderId(), type, order.getStatus(), order.getUser().getUserId(),
+                order.getCylinderType(), order.getCapacity(), order.getQuantity(), order.getTotalPrice(), courier,
+                LocalDateTime.now());
+    }
+
+    OrderEvent withEventId(Long eventId) {
+        return new OrderEvent(eventId, orderId, type, status, userId, cylinderType, capacity, quantity, totalPrice,
+                courier, occurredAt);
+    }
+}
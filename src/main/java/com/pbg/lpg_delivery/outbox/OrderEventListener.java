@@ -0,0 +1,23 @@
+package com.pbg.lpg_delivery.outbox;
+
+import java.util.List;
+
+/**
+ * Receives order lifecycle events from the outbox. Every bean implementing this interface is called for every event.
+ * <p>
+ * Delivery is at least once: an event is published again if a listener throws or the application stops before the
+ * event is marked as published, so listeners must tolerate duplicates (the event id identifies them). Events of one
+ * order arrive in the order they were written; events of different orders may interleave.
+ */
+public interface OrderEventListener {
+
+    void onOrderEvent(OrderEvent event);
+
+    /**
+     * Called with the events of a batch before they are delivered one by one, so a listener can load what it needs
+     * for all of them at once. Some of them may then not be delivered, because an earlier event of their order
+     * failed. A listener that throws here still gets every event.
+     */
+    default void beforeBatch(List<OrderEvent> events) {
+    }
+}
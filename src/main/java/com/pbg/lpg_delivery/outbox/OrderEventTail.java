@@ -0,0 +1,113 @@
+package com.pbg.lpg_delivery.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the events of the outbox as they are written, on every instance. The dispatcher only runs on the instance
+ * holding the outbox lease; state that every instance keeps for its own clients (like the open status streams)
+ * follows the events through this instead. Events are read at most once per instance, and only those written after
+ * it started.
+ * <p>
+ * Event ids are taken when a row is inserted but become visible when its transaction commits, so an event can show
+ * up after events with higher ids were read. The ids skipped by a read are looked for again by the next reads, for
+ * at most {@code lpg.outbox.tail.gap-wait-ms}. Ids of rolled back transactions never show up and are given up then.
+ * <p>
+ * The cursor is shared, so there must be one reader per instance.
+ */
+@Component
+public class OrderEventTail {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventTail.class);
+
+    private static final String SELECT_LAST = "SELECT MAX(event_id) FROM order_events";
+    private static final String SELECT_AFTER = "SELECT event_id, payload FROM order_events WHERE event_id > ? " +
+            "ORDER BY event_id LIMIT ?";
+    private static final String SELECT_GAPS = "SELECT event_id, payload FROM order_events WHERE event_id IN (%s) " +
+            "ORDER BY event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long gapWaitNanos;
+
+    private long cursor;
+    /** Ids skipped by a read, and when to give up on them (System.nanoTime). */
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    public OrderEventTail(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                          @Value("${lpg.outbox.tail.batch-size:500}") int batchSize,
+                          @Value("${lpg.outbox.tail.gap-wait-ms:10000}") long gapWaitMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.gapWaitNanos = TimeUnit.MILLISECONDS.toNanos(gapWaitMillis);
+    }
+
+    /**
+     * Starts after the last event written so far.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        Long last = jdbcTemplate.queryForObject(SELECT_LAST, Long.class);
+        cursor = last != null ? last : 0;
+        gaps.clear();
+    }
+
+    /**
+     * Returns the events that became visible since the last call: skipped events that showed up first, then new
+     * ones in id order. At most {@code lpg.outbox.tail.batch-size} new events are returned per call.
+     */
+    public synchronized List<OrderEvent> poll() {
+        long now = System.nanoTime();
+        List<OrderEvent> events = new ArrayList<>();
+        gaps.values().removeIf(giveUpAt -> now - giveUpAt > 0);
+        if (!gaps.isEmpty()) {
+            readGaps(events);
+        }
+
+        List<Row> rows = jdbcTemplate.query(SELECT_AFTER,
+                (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2)), cursor, batchSize);
+        for (Row row : rows) {
+            for (long skipped = cursor + 1; skipped < row.eventId() && gaps.size() < batchSize; skipped++) {
+                gaps.put(skipped, now + gapWaitNanos);
+            }
+            add(events, row);
+            cursor = row.eventId();
+        }
+        return events;
+    }
+
+    private void readGaps(List<OrderEvent> events) {
+        String placeholders = String.join(",", Collections.nCopies(gaps.size(), "?"));
+        List<Row> rows = jdbcTemplate.query(String.format(SELECT_GAPS, placeholders),
+                (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2)), gaps.keySet().toArray());
+        for (Row row : rows) {
+            gaps.remove(row.eventId());
+            add(events, row);
+        }
+    }
+
+    private void add(List<OrderEvent> events, Row row) {
+        try {
+            events.add(objectMapper.readValue(row.payload(), OrderEvent.class).withEventId(row.eventId()));
+        } catch (IOException ex) {
+            logger.warn("Skipping unreadable order event {}: {}", row.eventId(), ex.getMessage());
+        }
+    }
+
+    private record Row(long eventId, String payload) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.pbg.lpg_delivery.outbox;
+
+public enum OrderEventType {
+    ORDER_CREATED,
+    ORDER_MODIFIED,
+    ORDER_CANCELLED,
+    ORDER_ASSIGNED,
+    ORDER_DELIVERED
+}
@@ -0,0 +1,60 @@
+package com.pbg.lpg_delivery.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes order events to the {@code order_events} table. It joins the caller's transaction, so an event is stored if
+ * and only if the state change it describes is committed.
+ */
+@Component
+public class OrderOutbox {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO order_events (order_id, event_type, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(OrderEvent event) {
+        append(List.of(event));
+    }
+
+    /**
+     * Stores the events with one JDBC batch, in list order.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.orderId());
+            ps.setString(2, event.type().name());
+            ps.setString(3, toJson(event));
+            ps.setTimestamp(4, createdAt);
+        });
+    }
+
+    private String toJson(OrderEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize order event " + event, ex);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.pbg.lpg_delivery.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatches the events of the {@code order_events} outbox to every {@link OrderEventListener}.
+ * <p>
+ * Only one instance dispatches at a time: the one holding the {@code outbox_leases} row, which it renews on every
+ * poll and every third of {@code lpg.outbox.lease-ms} while a batch runs. If that instance dies the lease runs out
+ * and another instance takes over from the first unpublished event, so nothing is lost across restarts or
+ * failovers. A single dispatcher reading the outbox in id order is what keeps the events of an order in order: an
+ * instance that finds its lease taken stops delivering, and events are only marked as published while the lease is
+ * still held by the instance that delivered them.
+ * <p>
+ * Events are read in batches of {@code lpg.outbox.batch-size} and marked as published with one batched update once
+ * every listener accepted them. When a listener throws, the event is retried with an exponential backoff and the
+ * later events of the same order wait for it; events of other orders go on. Events waiting for a retry are not read
+ * until they are due, and after {@code lpg.outbox.max-attempts} failures an event is parked as a dead letter
+ * ({@code dead_at}) so the rest of its order goes on.
+ */
+@Component
+public class OrderOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxDispatcher.class);
+
+    static final String LEASE_NAME = "order-events";
+
+    private static final String ACQUIRE_LEASE = "UPDATE outbox_leases SET owner = ?, lease_until = ? " +
+            "WHERE name = ? AND (owner = ? OR owner IS NULL OR lease_until < ?)";
+    // an event is read once it is due and no earlier event of its order is still waiting for a retry
+    private static final String SELECT_PENDING = "SELECT e.event_id, e.order_id, e.payload, e.created_at, e.attempts " +
+            "FROM order_events e WHERE e.published_at IS NULL AND e.dead_at IS NULL AND NOT EXISTS (" +
+            "SELECT 1 FROM order_events w WHERE w.order_id = e.order_id AND w.event_id <= e.event_id " +
+            "AND w.published_at IS NULL AND w.dead_at IS NULL AND w.next_attempt_at > ?) " +
+            "ORDER BY e.event_id LIMIT ?";
+    private static final String MARK_PUBLISHED = "UPDATE order_events SET published_at = ? WHERE event_id = ? " +
+            "AND EXISTS (SELECT 1 FROM outbox_leases WHERE name = '" + LEASE_NAME + "' AND owner = ?)";
+    private static final String SCHEDULE_RETRY = "UPDATE order_events SET attempts = ?, next_attempt_at = ? WHERE event_id = ?";
+    private static final String PARK_DEAD_LETTER = "UPDATE order_events SET attempts = ?, dead_at = ? WHERE event_id = ?";
+    private static final String RELEASE_LEASE = "UPDATE outbox_leases SET owner = NULL, lease_until = NULL " +
+            "WHERE name = ? AND owner = ?";
+    private static final String PURGE_PUBLISHED = "DELETE FROM order_events WHERE published_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<OrderEventListener> listeners;
+    private final String instanceId;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration retention;
+
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+    private volatile boolean leader;
+    private final Timer deliveryLag;
+    private final Counter dispatched;
+    private final Counter failures;
+    private final Counter deadLetters;
+
+    public OrderOutboxDispatcher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, List<OrderEventListener> listeners,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${lpg.outbox.instance-id:}") String instanceId,
+                                 @Value("${lpg.outbox.batch-size:100}") int batchSize,
+                                 @Value("${lpg.outbox.max-attempts:10}") int maxAttempts,
+                                 @Value("${lpg.outbox.lease-ms:10000}") long leaseMillis,
+                                 @Value("${lpg.outbox.retry-backoff-ms:1000}") long retryBackoffMillis,
+                                 @Value("${lpg.outbox.max-retry-backoff-ms:300000}") long maxRetryBackoffMillis,
+                                 @Value("${lpg.outbox.retention-hours:72}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.listeners = listeners;
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+        this.maxRetryBackoff = Duration.ofMillis(maxRetryBackoffMillis);
+        this.retention = Duration.ofHours(retentionHours);
+
+        this.deliveryLag = Timer.builder("lpg.outbox.delivery.lag")
+                .description("Time between an event being written and all listeners accepting it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("lpg.outbox.dispatched")
+                .description("Events accepted by all listeners")
+                .register(meterRegistry);
+        this.failures = Counter.builder("lpg.outbox.failures")
+                .description("Event deliveries that failed and were scheduled for a retry")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("lpg.outbox.dead")
+                .description("Events parked as dead letters after failing lpg.outbox.max-attempts times")
+                .register(meterRegistry);
+        Gauge.builder("lpg.outbox.lag", oldestPendingMillis, millis -> millis.get() / 1000.0)
+                .description("Age of the oldest unpublished event at the last poll")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("lpg.outbox.leader", this, dispatcher -> dispatcher.leader ? 1 : 0)
+                .description("1 if this instance currently holds the dispatch lease")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Dispatches pending events, batch after batch, as long as this instance holds the lease, full batches come back
+     * and they publish something.
+     */
+    @Scheduled(fixedDelayString = "${lpg.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        try {
+            BatchResult result;
+            do {
+                leader = acquireLease();
+                if (!leader) {
+                    return;
+                }
+                result = dispatchBatch();
+            } while (result.read() == batchSize && result.published() > 0);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to dispatch order events, will retry: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Deletes published events older than {@code lpg.outbox.retention-hours}.
+     */
+    @Scheduled(fixedDelayString = "${lpg.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        if (!leader) {
+            return;
+        }
+        try {
+            int deleted = jdbcTemplate.update(PURGE_PUBLISHED, Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+            logger.debug("Purged {} published order events", deleted);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to purge published order events: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Gives the lease up on shutdown, so another instance takes over right away instead of waiting for it to expire.
+     */
+    @PreDestroy
+    void releaseLease() {
+        if (!leader) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_LEASE, LEASE_NAME, instanceId);
+            leader = false;
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to release the order event lease, it will expire: {}", ex.getMessage());
+        }
+    }
+
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(ACQUIRE_LEASE, instanceId, Timestamp.valueOf(now.plus(lease)), LEASE_NAME,
+                instanceId, Timestamp.valueOf(now)) == 1;
+    }
+
+    private BatchResult dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingEvent> batch = jdbcTemplate.query(SELECT_PENDING, (rs, rowNum) -> new PendingEvent(
+                rs.getLong("event_id"),
+                rs.getLong("order_id"),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getInt("attempts")), Timestamp.valueOf(now), batchSize);
+
+        oldestPendingMillis.set(batch.isEmpty() ? 0 : Duration.between(batch.get(0).createdAt(), now).toMillis());
+        OrderEvent[] events = parse(batch);
+
+        long renewAt = System.nanoTime() + lease.toNanos() / 3;
+        Set<Long> blockedOrders = new HashSet<>();
+        List<Object[]> delivered = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEvent pending = batch.get(i);
+            if (blockedOrders.contains(pending.orderId())) {
+                continue;
+            }
+            if (System.nanoTime() - renewAt >= 0) {
+                // a slow batch must not outlive the lease, or a second instance would deliver concurrently
+                leader = acquireLease();
+                if (!leader) {
+                    logger.warn("Lost the order event lease during a batch, leaving the rest to the new owner");
+                    break;
+                }
+                renewAt = System.nanoTime() + lease.toNanos() / 3;
+            }
+            if (deliver(pending, events[i])) {
+                LocalDateTime publishedAt = LocalDateTime.now();
+                delivered.add(new Object[]{Timestamp.valueOf(publishedAt), pending.eventId(), instanceId});
+                deliveryLag.record(Duration.between(pending.createdAt(), publishedAt));
+            } else {
+                blockedOrders.add(pending.orderId());
+            }
+        }
+
+        int published = 0;
+        if (!delivered.isEmpty()) {
+            // fenced on the lease owner: after a takeover the new owner delivers these events again
+            for (int updated : jdbcTemplate.batchUpdate(MARK_PUBLISHED, delivered)) {
+                published += updated == 0 ? 0 : 1;
+            }
+            dispatched.increment(published);
+            if (published < delivered.size()) {
+                logger.warn("{} order event(s) delivered after the lease was taken over, they will be delivered again",
+                        delivered.size() - published);
+            }
+        }
+        return new BatchResult(batch.size(), published);
+    }
+
+    /**
+     * Reads the events of the batch and hands them to the listeners' {@link OrderEventListener#beforeBatch}. An
+     * event that cannot be read is left null, and fails when it is delivered.
+     */
+    private OrderEvent[] parse(List<PendingEvent> batch) {
+        OrderEvent[] events = new OrderEvent[batch.size()];
+        List<OrderEvent> readable = new ArrayList<>(batch.size());
+        for (int i = 0; i < events.length; i++) {
+            try {
+                events[i] = read(batch.get(i));
+                readable.add(events[i]);
+            } catch (IOException ex) {
+                // reported by deliver, with the retry
+            }
+        }
+        if (!readable.isEmpty()) {
+            for (OrderEventListener listener : listeners) {
+                try {
+                    listener.beforeBatch(readable);
+                } catch (RuntimeException ex) {
+                    logger.warn("Listener {} failed to prepare a batch of order events: {}",
+                            listener.getClass().getSimpleName(), ex.getMessage());
+                }
+            }
+        }
+        return events;
+    }
+
+    private OrderEvent read(PendingEvent pending) throws IOException {
+        return objectMapper.readValue(pending.payload(), OrderEvent.class).withEventId(pending.eventId());
+    }
+
+    private boolean deliver(PendingEvent pending, OrderEvent parsed) {
+        try {
+            OrderEvent event = parsed != null ? parsed : read(pending);
+            for (OrderEventListener listener : listeners) {
+                listener.onOrderEvent(event);
+            }
+            return true;
+        } catch (Exception ex) {
+            int attempts = pending.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                jdbcTemplate.update(PARK_DEAD_LETTER, attempts, Timestamp.valueOf(LocalDateTime.now()), pending.eventId());
+                deadLetters.increment();
+                logger.error("Delivery of order event {} of order {} failed {} times, parked as a dead letter: {}",
+                        pending.eventId(), pending.orderId(), attempts, ex.getMessage(), ex);
+                return false;
+            }
+            Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+            if (backoff.compareTo(maxRetryBackoff) > 0) {
+                backoff = maxRetryBackoff;
+            }
+            jdbcTemplate.update(SCHEDULE_RETRY, attempts, Timestamp.valueOf(LocalDateTime.now().plus(backoff)),
+                    pending.eventId());
+            failures.increment();
+            logger.warn("Delivery of order event {} of order {} failed (attempt {}), retrying in {}: {}",
+                    pending.eventId(), pending.orderId(), attempts, backoff, ex.getMessage());
+            return false;
+        }
+    }
+
+    private record PendingEvent(long eventId, long orderId, String payload, LocalDateTime createdAt, int attempts) {
+    }
+
+    private record BatchResult(int read, int published) {
+    }
+}
@@ -2,6 +2,7 @@ package com.pbg.lpg_delivery.repository;
 
 import com.pbg.lpg_delivery.model.entity.DeliveryEntity;
 import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.CourierWorkload;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,4 +16,12 @@ public interface DeliveryRepository extends JpaRepository<DeliveryEntity,Long> {
     List<Long> findOrderIdsByDeliveryPersonAndStatus(@Param("deliveryPersonId") Long deliveryPersonId,
                                                      @Param("status") OrderStatus status);
 
+    /**
+     * Counts, per delivery person, the assigned orders that are in the given status.
+     */
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.CourierWorkload(u.username, COUNT(o)) " +
+            "FROM DeliveryEntity d JOIN d.order o JOIN d.deliveryPerson u " +
+            "WHERE o.status = :status GROUP BY u.username")
+    List<CourierWorkload> countOrdersPerCourier(@Param("status") OrderStatus status);
+
 }
@@ -4,6 +4,7 @@ package com.pbg.lpg_delivery.repository;
 import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
 import com.pbg.lpg_delivery.model.enums.CylinderType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -23,5 +24,55 @@ public interface LpgCylinderRepository extends JpaRepository<LpgCylinderEntity,L
             @Param("weight") Double weight
     );
 
+    /**
+     * Atomically takes {@code quantity} cylinders out of stock. The guard on the stock level is part of the
+     * UPDATE itself, so concurrent reservations can never drive the stock below zero.
+     *
+     * @return the number of rows updated: 1 if the stock was reserved, 0 if the cylinder does not exist
+     * or there is not enough stock left
+     */
+    @Modifying
+    @Query("UPDATE LpgCylinderEntity c SET c.stockQuantity = c.stockQuantity - :quantity " +
+            "WHERE c.type = :type AND c.weight = :weight AND c.stockQuantity >= :quantity")
+    int reserveStock(@Param("type") CylinderType type,
+                     @Param("weight") Double weight,
+                     @Param("quantity") int quantity);
+
+    /**
+     * Atomically puts {@code quantity} cylinders back into stock, e.g. when an order is modified or cancelled.
+     *
+     * @return the number of rows updated: 1 if the stock was restored, 0 if the cylinder does not exist
+     */
+    @Modifying
+    @Query("UPDATE LpgCylinderEntity c SET c.stockQuantity = c.stockQuantity + :quantity " +
+            "WHERE c.type = :type AND c.weight = :weight")
+    int releaseStock(@Param("type") CylinderType type,
+                     @Param("weight") Double weight,
+                     @Param("quantity") int quantity);
+
+    /**
+     * Applies a signed stock change, used by the {@code StockLedger} to write back its net deltas.
+     */
+    @Modifying
+    @Query("UPDATE LpgCylinderEntity c SET c.stockQuantity = c.stockQuantity + :delta " +
+            "WHERE c.type = :type AND c.weight = :weight")
+    int adjustStock(@Param("type") CylinderType type,
+                    @Param("weight") Double weight,
+                    @Param("delta") int delta);
+
+    /**
+     * Adds restocked cylinders and sets the new price in one statement, without overwriting concurrent
+     * stock changes made by orders.
+     *
+     * @return the number of rows updated: 0 if the cylinder does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE LpgCylinderEntity c SET c.stockQuantity = c.stockQuantity + :quantity, c.price = :price " +
+            "WHERE c.type = :type AND c.weight = :weight")
+    int restock(@Param("type") CylinderType type,
+                @Param("weight") Double weight,
+                @Param("quantity") int quantity,
+                @Param("price") Double price);
+
 }
 
@@ -0,0 +1,14 @@
+package com.pbg.lpg_delivery.repository;
+
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+
+import java.util.List;
+
+public interface OrderBatchRepository {
+
+    /**
+     * Inserts new orders with JDBC batching and sets the generated ids on the given entities.
+     * The entities are not attached to the persistence context.
+     */
+    void insertAll(List<OrderEntity> orders);
+}
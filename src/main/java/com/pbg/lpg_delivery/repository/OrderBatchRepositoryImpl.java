@@ -0,0 +1,87 @@
+package com.pbg.lpg_delivery.repository;
+
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch insert for orders. {@link OrderEntity} keeps its IDENTITY ids, which stops Hibernate from batching inserts,
+ * so bulk orders are written through plain JDBC batches instead. On MySQL the datasource URL should set
+ * {@code rewriteBatchedStatements=true} so the driver sends each batch as a multi-row INSERT.
+ */
+class OrderBatchRepositoryImpl implements OrderBatchRepository {
+
+    private static final String INSERT_ORDER = "INSERT INTO orders (user_id, cylinder_type, capacity, quantity, total_price, " +
+            "status, order_date, delivery_date, slot_start, slot_end, delivery_zone, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    OrderBatchRepositoryImpl(JdbcTemplate jdbcTemplate, @Value("${lpg.orders.batch-insert-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<OrderEntity> orders) {
+        LocalDateTime createdAt = LocalDateTime.now().withNano(0);
+        for (int from = 0; from < orders.size(); from += batchSize) {
+            List<OrderEntity> chunk = orders.subList(from, Math.min(from + batchSize, orders.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ORDER, new String[]{"order_id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            OrderEntity order = chunk.get(i);
+                            order.setCreatedAt(createdAt);
+                            ps.setLong(1, order.getUser().getUserId());
+                            ps.setString(2, order.getCylinderType().name());
+                            ps.setDouble(3, order.getCapacity());
+                            ps.setInt(4, order.getQuantity());
+                            ps.setDouble(5, order.getTotalPrice());
+                            ps.setString(6, order.getStatus().name());
+                            ps.setObject(7, order.getOrderDate());
+                            if (order.getDeliveryDate() != null) {
+                                ps.setObject(8, order.getDeliveryDate());
+                            } else {
+                                ps.setNull(8, Types.TIMESTAMP);
+                            }
+                            if (order.getSlotStart() != null) {
+                                ps.setObject(9, order.getSlotStart());
+                                ps.setObject(10, order.getSlotEnd());
+                            } else {
+                                ps.setNull(9, Types.TIMESTAMP);
+                                ps.setNull(10, Types.TIMESTAMP);
+                            }
+                            if (order.getDeliveryZone() != null) {
+                                ps.setLong(11, order.getDeliveryZone());
+                            } else {
+                                ps.setNull(11, Types.BIGINT);
+                            }
+                            ps.setObject(12, createdAt);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }, keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < keys.size() && i < chunk.size(); i++) {
+                chunk.get(i).setOrderId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+        }
+    }
+}
@@ -3,8 +3,17 @@ package com.pbg.lpg_delivery.repository;
 import com.pbg.lpg_delivery.model.entity.OrderEntity;
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.Order;
+import com.pbg.lpg_delivery.model.responses.OrderReportRow;
+import com.pbg.lpg_delivery.model.responses.WorklistRow;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -12,32 +21,119 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<OrderEntity,Long> {
+public interface OrderRepository extends JpaRepository<OrderEntity,Long>, OrderBatchRepository {
 
-    @Query("SELECT o FROM OrderEntity o WHERE o.user.username = :username")
+    @Override
+    @EntityGraph(OrderEntity.WITH_DETAILS)
+    Optional<OrderEntity> findById(Long orderId);
+
+    // The user is matched in a subquery: with the entity graph's outer joins listed first, a join on users would make
+    // the database drive the query from orders and scan the whole table.
+    @EntityGraph(OrderEntity.WITH_DETAILS)
+    @Query("SELECT o FROM OrderEntity o WHERE o.user.userId IN " +
+            "(SELECT u.userId FROM UserEntity u WHERE u.username = :username)")
     List<OrderEntity> findByUsername(@Param("username") String username);
 
-    @Query("SELECT o FROM OrderEntity o WHERE o.user.username = :username AND o.user.phoneNumber = :phoneNumber")
+    @EntityGraph(OrderEntity.WITH_DETAILS)
+    @Query("SELECT o FROM OrderEntity o WHERE o.user.userId IN " +
+            "(SELECT u.userId FROM UserEntity u WHERE u.username = :username AND u.phoneNumber = :phoneNumber)")
     List<OrderEntity> findByUsernameAndPhoneNumber(@Param("username") String username,
                                                    @Param("phoneNumber") String phoneNumber);
 
+    @EntityGraph(OrderEntity.WITH_DETAILS)
     @Query("SELECT o FROM OrderEntity o WHERE o.orderDate BETWEEN :startDate AND :endDate")
     List<OrderEntity> findByOrderDateBetween(@Param("startDate") LocalDateTime startDate,
                                              @Param("endDate") LocalDateTime endDate);
 
+    @EntityGraph(OrderEntity.WITH_DETAILS)
     @Query("SELECT o FROM OrderEntity o WHERE o.orderId = :orderId AND o.user = :user")
     Optional<OrderEntity> findByIdAndUser(@Param("orderId") Long orderId, @Param("user") UserEntity user);
 
-    @Query("SELECT o FROM OrderEntity o LEFT JOIN FETCH o.delivery WHERE o.id = :orderId")
+    /**
+     * Locks the order until the end of the transaction, so the auto dispatch skips it and concurrent changes to it
+     * wait. Its details are read after the lock is taken.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OrderEntity o WHERE o.orderId = :orderId")
+    Optional<OrderEntity> lockById(@Param("orderId") Long orderId);
+
+    @EntityGraph(OrderEntity.WITH_DETAILS)
+    @Query("SELECT o FROM OrderEntity o WHERE o.id = :orderId")
     Optional<OrderEntity> findByOrderIdWithDelivery(@Param("orderId") Long orderId);
 
+    @EntityGraph(OrderEntity.WITH_DETAILS)
     @Query("SELECT o FROM OrderEntity o WHERE o.status = 'IN_TRANSIT'")
     List<OrderEntity> findAllAssignedOrder();
 
+    @EntityGraph(OrderEntity.WITH_DETAILS)
     List<OrderEntity> findByOrderIdInAndStatus(List<Long> orderIds, OrderStatus status);
 
+    // Read-only projections: rows are built straight from the selected columns, so no entity is loaded or tracked
+
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.Order(o.cylinderType, o.capacity, o.quantity, o.totalPrice, " +
+            "o.status, o.orderDate, o.deliveryDate) " +
+            "FROM OrderEntity o WHERE o.user.userId = :userId ORDER BY o.orderDate, o.orderId")
+    List<Order> findOrderViewsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.OrderReportRow(o.orderId, u.username, u.email, u.phoneNumber, " +
+            "u.address, o.cylinderType, o.capacity, o.quantity, o.totalPrice, o.status, o.orderDate, o.deliveryDate) " +
+            "FROM OrderEntity o JOIN o.user u WHERE u.username = :username AND u.phoneNumber = :phoneNumber " +
+            "ORDER BY o.orderDate, o.orderId")
+    List<OrderReportRow> findOrderRowsByUsernameAndPhoneNumber(@Param("username") String username,
+                                                               @Param("phoneNumber") String phoneNumber);
+
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.OrderReportRow(o.orderId, u.username, u.email, u.phoneNumber, " +
+            "u.address, o.cylinderType, o.capacity, o.quantity, o.totalPrice, o.status, o.orderDate, o.deliveryDate) " +
+            "FROM OrderEntity o JOIN o.user u WHERE o.orderDate >= :startDate AND o.orderDate < :endDate " +
+            "ORDER BY o.orderDate, o.orderId")
+    List<OrderReportRow> findOrderRowsByOrderDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                         @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * The orders of a delivery person in the given status, with the customer and its location, for the route.
+     */
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.WorklistRow(o.orderId, u.userId, u.username, u.email, " +
+            "u.phoneNumber, u.address, u.latitude, u.longitude, o.cylinderType, o.capacity, o.quantity, o.totalPrice, " +
+            "o.status, o.orderDate, o.deliveryDate) " +
+            "FROM DeliveryEntity d JOIN d.order o JOIN o.user u " +
+            "WHERE d.deliveryPerson.userId = :deliveryPersonId AND o.status = :status " +
+            "ORDER BY o.orderDate, o.orderId")
+    List<WorklistRow> findWorklistRowsByDeliveryPersonAndStatus(@Param("deliveryPersonId") Long deliveryPersonId,
+                                                                @Param("status") OrderStatus status);
+
+    /**
+     * Keyset page of the order report: orders placed before {@code endDate} that come strictly after the
+     * {@code (afterDate, afterId)} cursor in {@code (orderDate, orderId)} order. Only the page size of the
+     * {@link Pageable} is used, the offset must be zero.
+     */
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.OrderReportRow(o.orderId, u.username, u.email, u.phoneNumber, " +
+            "u.address, o.cylinderType, o.capacity, o.quantity, o.totalPrice, o.status, o.orderDate, o.deliveryDate) " +
+            "FROM OrderEntity o JOIN o.user u " +
+            "WHERE o.orderDate >= :afterDate AND o.orderDate < :endDate " +
+            "AND (o.orderDate > :afterDate OR o.orderId > :afterId) " +
+            "ORDER BY o.orderDate, o.orderId")
+    List<OrderReportRow> findReportPage(@Param("afterDate") LocalDateTime afterDate,
+                                        @Param("afterId") Long afterId,
+                                        @Param("endDate") LocalDateTime endDate,
+                                        Pageable pageable);
+
+    /**
+     * Streams the order report of a date range in {@code (orderDate, orderId)} order. Rows are DTOs, so nothing
+     * accumulates in the persistence context; the stream must be consumed and closed inside a transaction.
+     * On MySQL the datasource URL needs {@code useCursorFetch=true} for the fetch size to be honoured.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.pbg.lpg_delivery.model.responses.OrderReportRow(o.orderId, u.username, u.email, u.phoneNumber, " +
+            "u.address, o.cylinderType, o.capacity, o.quantity, o.totalPrice, o.status, o.orderDate, o.deliveryDate) " +
+            "FROM OrderEntity o JOIN o.user u " +
+            "WHERE o.orderDate >= :startDate AND o.orderDate < :endDate " +
+            "ORDER BY o.orderDate, o.orderId")
+    Stream<OrderReportRow> streamReport(@Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
+
 
 
 }
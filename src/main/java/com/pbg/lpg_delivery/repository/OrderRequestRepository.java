@@ -0,0 +1,38 @@
+package com.pbg.lpg_delivery.repository;
+
+import com.pbg.lpg_delivery.model.entity.OrderRequestEntity;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderRequestRepository extends JpaRepository<OrderRequestEntity, Long> {
+
+    Optional<OrderRequestEntity> findByTrackingId(String trackingId);
+
+    /**
+     * Locks the oldest requests in the given status, so two workers never process the same request.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM OrderRequestEntity r WHERE r.status = :status ORDER BY r.requestId")
+    List<OrderRequestEntity> lockOldestByStatus(@Param("status") OrderRequestStatus status, Pageable pageable);
+
+    @Query("SELECT r.requestId FROM OrderRequestEntity r WHERE r.status = :status ORDER BY r.requestId")
+    List<Long> findOldestIdsByStatus(@Param("status") OrderRequestStatus status, Pageable pageable);
+
+    /**
+     * Locks the request if it is still in the given status.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM OrderRequestEntity r WHERE r.requestId = :requestId AND r.status = :status")
+    Optional<OrderRequestEntity> lockByIdAndStatus(@Param("requestId") Long requestId,
+                                                   @Param("status") OrderRequestStatus status);
+}
@@ -2,11 +2,32 @@ package com.pbg.lpg_delivery.repository;
 
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByUsername(String username);
+
+    List<UserEntity> findByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Stores the position a user reported, without loading the user.
+     *
+     * @return the number of rows updated: 0 if the user does not exist
+     */
+    @Modifying
+    @Query("UPDATE UserEntity u SET u.latitude = :latitude, u.longitude = :longitude, u.locationUpdatedAt = :updatedAt " +
+            "WHERE u.userId = :userId")
+    int updateLocation(@Param("userId") Long userId,
+                       @Param("latitude") double latitude,
+                       @Param("longitude") double longitude,
+                       @Param("updatedAt") LocalDateTime updatedAt);
 }
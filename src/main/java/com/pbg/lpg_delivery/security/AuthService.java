@@ -3,13 +3,14 @@ package com.pbg.lpg_delivery.security;
 import com.pbg.lpg_delivery.common.Role;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
 import com.pbg.lpg_delivery.exceptionHandler.UserUnauthorizedException;
+import com.pbg.lpg_delivery.geo.GeoPoint;
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.model.request.SignupRequest;
 import com.pbg.lpg_delivery.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.EnumSet;
@@ -23,12 +24,15 @@ public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtils;
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtils) {
+    private final UserDetailsCache userDetailsCache;
+    public AuthService(UserRepository userRepository, PasswordHasher passwordHasher, JwtUtil jwtUtils,
+                       UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtils = jwtUtils;
+        this.userDetailsCache = userDetailsCache;
     }
     private static final EnumSet<Role> ROLE_TYPE = EnumSet.of(Role.ADMIN, Role.DELIVERY_PERSON,Role.CUSTOMER);
 
@@ -51,6 +55,8 @@ public class AuthService {
                     throw new LpgException("ST-1004", "Invalid role provided");
                 }
 
+                GeoPoint.ofNullable(request.latitude(), request.longitude());
+
             Optional<UserEntity> existingUser = userRepository.findByUsername(request.username());
 
             if (existingUser.isPresent()) {
@@ -58,17 +64,21 @@ public class AuthService {
                 throw new LpgException("ST-1001","User already present in DB");
             }
 
-            UserEntity user = UserEntity.mapToEntity(request, passwordEncoder);
+            UserEntity user = UserEntity.mapToEntity(request, passwordHasher.encode(request.password()));
             userRepository.save(user);
+            userDetailsCache.evict(user.getUsername());
 
             logger.info("User registered successfully with username: {}", request.username());
 
         } catch (LpgException ex) {
             logger.error("User registration error: {}", ex.getMessage());
             throw ex;
+        } catch (ServiceUnavailableException ex) {
+            logger.warn("User registration rejected: {}", ex.getErrorMessage());
+            throw ex;
         } catch (Exception ex) {
             logger.error("Unexpected error during user registration: {}", ex.getMessage(), ex);
-            throw new ParentException("An unexpected error occurred during user registration", "ST-5001");
+            throw new ParentException("ST-5001", "An unexpected error occurred during user registration");
         }
     }
 
@@ -85,13 +95,13 @@ public class AuthService {
                         return new LpgException("ST-1002","Invalid username or password");
                     });
 
-            if (!passwordEncoder.matches(authRequest.password(), dbUser.getPassword())) {
+            if (!passwordHasher.matches(authRequest.password(), dbUser.getPassword())) {
                 logger.warn("Authentication failed: Incorrect password for user {}", dbUser.getUsername());
                 throw new UserUnauthorizedException("ST-1002","Invalid username or password");
             }
 
             logger.info("Generating token for user: {}", dbUser.getUsername());
-            return jwtUtils.generateToken(dbUser.getUsername());
+            return jwtUtils.generateToken(dbUser.getUsername(), dbUser.getUserId(), dbUser.getRole());
 
         } catch (LpgException ex) {
             logger.error("User Authentication error: {}", ex.getMessage());
@@ -100,15 +110,21 @@ public class AuthService {
             logger.error("Authentication error: {}", ex.getErrorMessage());
             throw ex;
         }
+        catch (ServiceUnavailableException ex) {
+            logger.warn("Authentication rejected: {}", ex.getErrorMessage());
+            throw ex;
+        }
         catch (Exception ex) {
             logger.error("Unexpected error during authentication: {}", ex.getMessage(), ex);
-            throw new ParentException("An unexpected error occurred during authentication", "ST-5002");
+            throw new ParentException("ST-5002", "An unexpected error occurred during authentication");
         }
     }
 
 
     public void createDeliveryPersonOrAdmin(SignupRequest request) {
         try {
+            GeoPoint.ofNullable(request.latitude(), request.longitude());
+
             Optional<UserEntity> existingUser = userRepository.findByUsername(request.username());
 
             if (existingUser.isPresent()) {
@@ -116,17 +132,21 @@ public class AuthService {
                 throw new LpgException( "ST-1001","User already exists in DB");
             }
 
-            UserEntity user = UserEntity.mapToEntityForUser(request, passwordEncoder);
+            UserEntity user = UserEntity.mapToEntityForUser(request, passwordHasher.encode(request.password()));
             userRepository.save(user);
+            userDetailsCache.evict(user.getUsername());
 
             logger.info("Delivery person created successfully with username: {}", request.username());
 
         } catch (LpgException ex) {
             logger.error("Business error while creating delivery person: {}", ex.getMessage());
             throw ex;
+        } catch (ServiceUnavailableException ex) {
+            logger.warn("Delivery person creation rejected: {}", ex.getErrorMessage());
+            throw ex;
         } catch (Exception ex) {
             logger.error("Unexpected error occurred while creating delivery person: {}", ex.getMessage(), ex);
-            throw new ParentException("An unexpected error occurred while creating delivery person", "ST-5001");
+            throw new ParentException("ST-5001", "An unexpected error occurred while creating delivery person");
         }
     }
 
@@ -0,0 +1,90 @@
+package com.pbg.lpg_delivery.security;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal stored in the security context for the duration of a request. It carries the user id and role so
+ * services can authorize and link entities without looking the user up again.
+ */
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long userId;
+    private final String username;
+    private final String password;
+    private final Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long userId, String username, String password, Role role) {
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    /**
+     * Builds the principal from the claims of a verified token; such a principal has no password.
+     */
+    public static AuthenticatedUser fromClaims(Long userId, String username, Role role) {
+        return new AuthenticatedUser(userId, username, null, role);
+    }
+
+    public static AuthenticatedUser fromEntity(UserEntity user) {
+        return new AuthenticatedUser(user.getUserId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser[userId=" + userId + ", username=" + username + ", role=" + role + "]";
+    }
+}
@@ -22,11 +22,11 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
 
     private final JwtUtil jwtUtil;
-    private final MyUserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
 
-    public JwtRequestFilter(JwtUtil jwtUtil, MyUserDetailsService userDetailsService) {
+    public JwtRequestFilter(JwtUtil jwtUtil, UserDetailsCache userDetailsCache) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -35,19 +35,22 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        VerifiedToken token = null;
 
         try {
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-                jwt = authorizationHeader.substring(7);
-                username = jwtUtil.extractUsername(jwt);
+                // Signature and expiry are checked once here; repeated tokens are served from the verified-token cache
+                token = jwtUtil.verify(authorizationHeader.substring(7));
             }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Tokens carry the user id and role; only tokens issued before that need a user lookup
+                UserDetails userDetails = token.principal();
+                if (userDetails == null) {
+                    userDetails = this.userDetailsCache.loadUserByUsername(token.username());
+                }
 
-                if (Boolean.TRUE.equals(jwtUtil.validateToken(jwt, userDetails.getUsername()))) {
+                if (userDetails.getUsername().equals(token.username()) && !token.isExpired()) {
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -1,25 +1,104 @@
 package com.pbg.lpg_delivery.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pbg.lpg_delivery.common.Role;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    private static final String USER_ID_CLAIM = "userId";
+    private static final String ROLE_CLAIM = "role";
 
-    @Value("${spring.jwt.secret}")
-    private String secretKey;
+    private final Key signingKey;
 
-    @Value("${spring.jwt.expiration}")
-    private long jwtExpirationMs;
+    private final long jwtExpirationMs;
+
+    /**
+     * Recently verified tokens, keyed by the SHA-256 digest of the token so raw bearer tokens are not kept in memory.
+     * Each entry expires together with its token.
+     */
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtUtil(@Value("${spring.jwt.secret}") String secretKey,
+                   @Value("${spring.jwt.expiration}") long jwtExpirationMs,
+                   @Value("${lpg.security.token-cache.max-size:10000}") long tokenCacheSize) {
+        // jjwt decodes a String key as Base64 on every call, so build the key once
+        this.signingKey = new SecretKeySpec(TextCodec.BASE64.decode(secretKey), SignatureAlgorithm.HS256.getJcaName());
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        long remainingMs = token.expiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Verifies the signature and expiration of the token and returns its claims. The token is parsed at most once
+     * while it stays in the cache of recently verified tokens.
+     *
+     * @param token the JWT token
+     * @return the verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, has an invalid signature or has expired
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        VerifiedToken verified = parseAndVerify(token);
+        verifiedTokens.put(digest, verified);
+        return verified;
+    }
+
+    /**
+     * Parses and verifies the token without looking at the cache.
+     */
+    VerifiedToken parseAndVerify(String token) {
+        Claims claims = extractAllClaims(token);
+        Object userId = claims.get(USER_ID_CLAIM);
+        Object role = claims.get(ROLE_CLAIM);
+        return new VerifiedToken(
+                claims.getSubject(),
+                userId instanceof Number number ? number.longValue() : null,
+                role instanceof String name ? Role.valueOf(name) : null,
+                claims.getExpiration());
+    }
 
     /**
      * Extracts the username (subject) from the token.
@@ -28,7 +107,7 @@ public class JwtUtil {
      * @return the username
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     /**
@@ -38,7 +117,7 @@ public class JwtUtil {
      * @return the expiration date
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verify(token).expiration();
     }
 
     /**
@@ -55,36 +134,40 @@ public class JwtUtil {
     }
 
     /**
-     * Extracts all claims from the token.
+     * Extracts the authenticated principal from the user id and role claims of the token.
      *
      * @param token the JWT token
-     * @return all claims
+     * @return the principal, or null for tokens issued without these claims
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey)
-                .parseClaimsJws(token)
-                .getBody();
+    public AuthenticatedUser extractAuthenticatedUser(String token) {
+        return verify(token).principal();
     }
 
     /**
-     * Checks if the token has expired.
+     * Extracts all claims from the token.
      *
      * @param token the JWT token
-     * @return true if expired, false otherwise
+     * @return all claims
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Claims extractAllClaims(String token) {
+        return Jwts.parser()
+                .setSigningKey(signingKey)
+                .parseClaimsJws(token)
+                .getBody();
     }
 
     /**
-     * Generates a JWT token with the given username.
+     * Generates a JWT token for the given user, carrying the user id and role as claims.
      *
      * @param username the username (subject) for the token
+     * @param userId   the id of the user
+     * @param role     the role of the user
      * @return the generated JWT token
      */
-    public String generateToken(String username) {
+    public String generateToken(String username, Long userId, Role role) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(ROLE_CLAIM, role.name());
         return createToken(claims, username);
     }
 
@@ -101,20 +184,28 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(SignatureAlgorithm.HS256, secretKey)
+                .signWith(SignatureAlgorithm.HS256, signingKey)
                 .compact();
     }
 
     /**
-     * Validates the token by checking its subject and expiration.
+     * Validates the token by checking its signature, subject and expiration.
      *
      * @param token    the JWT token
      * @param username the expected username
      * @return true if valid, false otherwise
      */
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final VerifiedToken verified = verify(token);
+        return (verified.username().equals(username) && !verified.isExpired());
     }
-}
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.pbg.lpg_delivery.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Matches requests that arrived on the separate management server ({@code management.server.port}).
+ * <p>
+ * The port is taken from the started management server rather than from the configuration, so a random port works
+ * as well. When actuator shares the application port nothing matches and actuator stays behind authentication.
+ */
+@Component
+public class ManagementPortRequestMatcher implements RequestMatcher, ApplicationListener<WebServerInitializedEvent> {
+
+    private volatile int managementPort = -1;
+
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if ("management".equals(event.getApplicationContext().getServerNamespace())) {
+            managementPort = event.getWebServer().getPort();
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return request.getLocalPort() == managementPort;
+    }
+}
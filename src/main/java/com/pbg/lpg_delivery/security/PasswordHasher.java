@@ -0,0 +1,129 @@
+package com.pbg.lpg_delivery.security;
+
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded thread pool.
+ * <p>
+ * A hash takes around 100 ms of CPU, so a login spike on request threads would starve every other endpoint. Here at
+ * most {@code lpg.security.hashing.threads} hashes run at once and at most
+ * {@code lpg.security.hashing.queue-capacity} wait; anything beyond that fails immediately with a 503, which bounds
+ * the number of request threads a login storm can hold.
+ * <p>
+ * The pool stays on platform threads even with {@code spring.threads.virtual.enabled}: hashing is CPU-bound, and the
+ * point of the pool is to cap how many cores it can take. Request threads waiting for a hash park cheaply either way.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                          @Value("${lpg.security.hashing.threads:4}") int threads,
+                          @Value("${lpg.security.hashing.queue-capacity:32}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("lpg.auth.password.hash")
+                .description("Time spent hashing or verifying a password, excluding the wait in the queue")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("lpg.auth.password.hash")
+                .description("Time spent hashing or verifying a password, excluding the wait in the queue")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("lpg.auth.password.rejected")
+                .description("Hashing requests rejected because the hashing pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("lpg.auth.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Hashing requests waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("lpg.auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently busy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hashes a raw password.
+     *
+     * @throws ServiceUnavailableException if the hashing pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * Verifies a raw password against its stored hash.
+     *
+     * @throws ServiceUnavailableException if the hashing pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            logger.warn("Password hashing pool saturated, rejecting request (queue size {})", queueSize());
+            throw new ServiceUnavailableException("AUTH-5031", "Too many sign-in requests, please retry shortly");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
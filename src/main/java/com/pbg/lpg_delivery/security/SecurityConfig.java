@@ -1,5 +1,6 @@
 package com.pbg.lpg_delivery.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -21,16 +22,22 @@ public class SecurityConfig {
 
     private final JwtRequestFilter jwtRequestFilter;
     private final MyUserDetailsService myUserDetailsService;
+    private final ManagementPortRequestMatcher managementPortRequestMatcher;
 
-    public SecurityConfig(JwtRequestFilter jwtRequestFilter, MyUserDetailsService myUserDetailsService) {
+    public SecurityConfig(JwtRequestFilter jwtRequestFilter, MyUserDetailsService myUserDetailsService,
+                          ManagementPortRequestMatcher managementPortRequestMatcher) {
         this.jwtRequestFilter = jwtRequestFilter;
         this.myUserDetailsService = myUserDetailsService;
+        this.managementPortRequestMatcher = managementPortRequestMatcher;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
+                        // streamed responses end with an async dispatch of a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(managementPortRequestMatcher).permitAll() // Actuator, reachable only on the management port
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-resources/**", "/webjars/**").permitAll()
                         .requestMatchers("/auth/**").permitAll() // Public endpoint for authentication
                         .anyRequest().authenticated() // Protect other endpoints
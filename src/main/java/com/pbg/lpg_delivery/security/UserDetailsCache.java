@@ -0,0 +1,72 @@
+package com.pbg.lpg_delivery.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded cache of {@link UserDetails} in front of {@link MyUserDetailsService}, so authenticated requests do not
+ * query the {@code users} table every time. Entries expire after {@code lpg.security.user-cache.ttl-seconds} so
+ * role changes made outside of {@link AuthService} are picked up, and unknown usernames are never cached.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final MyUserDetailsService userDetailsService;
+    private final Cache<String, UserDetails> cache;
+
+    public UserDetailsCache(MyUserDetailsService userDetailsService,
+                            @Value("${lpg.security.user-cache.max-size:10000}") long maxSize,
+                            @Value("${lpg.security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached user details, loading them from the database on a miss.
+     * <p>
+     * The load deliberately runs outside of the cache: {@code Cache.get(key, loader)} runs the loader inside a
+     * {@code ConcurrentHashMap} bin lock, which is a {@code synchronized} block and would pin a virtual thread to its
+     * carrier for the whole query. Two concurrent misses for the same user may both hit the database, which is cheap.
+     *
+     * @throws UsernameNotFoundException if the user does not exist
+     */
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        UserDetails loaded = userDetailsService.loadUserByUsername(username);
+        cache.put(username, loaded);
+        return loaded;
+    }
+
+    /**
+     * Drops the cached entry of a user whose account was created or changed.
+     */
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+}
@@ -0,0 +1,27 @@
+package com.pbg.lpg_delivery.security;
+
+import com.pbg.lpg_delivery.common.Role;
+
+import java.util.Date;
+
+/**
+ * Claims of a JWT whose signature has been verified by {@link JwtUtil#verify(String)}.
+ *
+ * @param username   the subject of the token
+ * @param userId     the user id claim, null for tokens issued without it
+ * @param role       the role claim, null for tokens issued without it
+ * @param expiration the expiration of the token
+ */
+public record VerifiedToken(String username, Long userId, Role role, Date expiration) {
+
+    public boolean isExpired() {
+        return expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    /**
+     * @return the principal described by the token, or null if the token does not carry the user id and role
+     */
+    public AuthenticatedUser principal() {
+        return userId == null || role == null ? null : AuthenticatedUser.fromClaims(userId, username, role);
+    }
+}
@@ -0,0 +1,305 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.model.entity.DeliveryEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.AutoDispatchResult;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import com.pbg.lpg_delivery.outbox.OrderOutbox;
+import com.pbg.lpg_delivery.utils.LongIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assigns pending orders to delivery persons without an admin picking each one.
+ * <p>
+ * Every run takes up to {@code lpg.dispatch.auto.max-orders} PENDING orders, oldest first, and hands each one to the
+ * delivery person with the fewest orders in transit, who has not reached {@code lpg.dispatch.auto.daily-capacity}
+ * assignments today. The couriers sit in a min-heap keyed on their workload, so a run costs O(orders * log couriers)
+ * on top of four queries; the deliveries, order updates and outbox events are written with JDBC batches, all in one
+ * transaction. Modifications, cancellations and manual assignments lock the order first (see
+ * {@link com.pbg.lpg_delivery.repository.OrderRepository#lockById}): a run skips the orders they hold and picks them
+ * up next time, and they wait for a run holding the order and then see it assigned.
+ * <p>
+ * Runs are serialized across instances on the {@code auto-dispatch} row of {@code outbox_leases}, which a run locks
+ * before counting the couriers' workloads and holds until it commits, so two runs never fill a courier past the daily
+ * capacity together. A scheduled run is skipped while another instance is dispatching; a run triggered by hand waits
+ * for it.
+ * <p>
+ * The schedule only runs with {@code lpg.dispatch.auto.enabled=true}; admins can also trigger a run by hand.
+ */
+@Service
+public class AutoDispatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoDispatchService.class);
+
+    private static final String LOCK_DISPATCH = "SELECT name FROM outbox_leases WHERE name = 'auto-dispatch' FOR UPDATE";
+    private static final String TRY_LOCK_DISPATCH = LOCK_DISPATCH + " SKIP LOCKED";
+    private static final String SELECT_PENDING_ORDERS = "SELECT order_id, user_id, cylinder_type, capacity, quantity, " +
+            "total_price, slot_end FROM orders WHERE status = 'PENDING' ORDER BY order_id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String SELECT_COURIERS = "SELECT user_id, username FROM users WHERE role = 'DELIVERY_PERSON' " +
+            "ORDER BY user_id";
+    private static final String COUNT_IN_TRANSIT = "SELECT delivery_person_id, COUNT(*) FROM deliveries " +
+            "WHERE status = 'IN_TRANSIT' GROUP BY delivery_person_id";
+    private static final String COUNT_ASSIGNED_SINCE = "SELECT delivery_person_id, COUNT(*) FROM deliveries " +
+            "WHERE assigned_at >= ? GROUP BY delivery_person_id";
+    private static final String INSERT_DELIVERY = "INSERT INTO deliveries (order_id, delivery_person_id, status, " +
+            "expected_delivery_date, assigned_at, notes) VALUES (?, ?, 'IN_TRANSIT', ?, ?, 'Delivery in progress')";
+    private static final String MARK_IN_TRANSIT = "UPDATE orders SET status = 'IN_TRANSIT' WHERE order_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderOutbox orderOutbox;
+    private final CourierWorklistCache worklistCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int dailyCapacity;
+    private final int maxOrders;
+    private final int batchSize;
+
+    public AutoDispatchService(JdbcTemplate jdbcTemplate, OrderOutbox orderOutbox, CourierWorklistCache worklistCache,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${lpg.dispatch.auto.enabled:false}") boolean enabled,
+                               @Value("${lpg.dispatch.auto.daily-capacity:40}") int dailyCapacity,
+                               @Value("${lpg.dispatch.auto.max-orders:5000}") int maxOrders,
+                               @Value("${lpg.dispatch.auto.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderOutbox = orderOutbox;
+        this.worklistCache = worklistCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.dailyCapacity = dailyCapacity;
+        this.maxOrders = maxOrders;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${lpg.dispatch.auto.interval-ms:60000}")
+    public void scheduledDispatch() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            AutoDispatchResult result = dispatch(TRY_LOCK_DISPATCH);
+            if (result == null) {
+                logger.debug("Auto dispatch skipped, another instance is dispatching");
+                return;
+            }
+            if (result.assigned() > 0 || result.unassigned() > 0) {
+                logger.info("Auto dispatch assigned {} order(s), {} left for lack of capacity", result.assigned(),
+                        result.unassigned());
+            }
+        } catch (RuntimeException ex) {
+            logger.error("Auto dispatch failed, will retry on the next run: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Assigns the pending orders in one transaction, once no other run is dispatching. Nothing is assigned if any
+     * write fails.
+     */
+    public AutoDispatchResult dispatchPendingOrders() {
+        return dispatch(LOCK_DISPATCH);
+    }
+
+    /**
+     * Runs the dispatch if the lock query returns the dispatch row, and returns null if it is held elsewhere.
+     */
+    private AutoDispatchResult dispatch(String lock) {
+        try {
+            return transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForList(lock, String.class).isEmpty() ? null : assignPending());
+        } catch (Exception ex) {
+            logger.error("Unexpected error occurred while auto dispatching orders", ex);
+            throw new ParentException("DLBE-103", "some internal error occurred while auto dispatching orders");
+        }
+    }
+
+    private AutoDispatchResult assignPending() {
+        List<PendingOrder> orders = jdbcTemplate.query(SELECT_PENDING_ORDERS, (rs, rowNum) -> new PendingOrder(
+                rs.getLong("order_id"),
+                rs.getLong("user_id"),
+                CylinderType.valueOf(rs.getString("cylinder_type")),
+                rs.getDouble("capacity"),
+                rs.getInt("quantity"),
+                rs.getDouble("total_price"),
+                rs.getTimestamp("slot_end")), maxOrders);
+        if (orders.isEmpty()) {
+            return new AutoDispatchResult(0, 0, 0);
+        }
+
+        CourierHeap couriers = loadCouriers();
+        int available = couriers.size();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp assignedAt = Timestamp.valueOf(now.withNano(0));
+        Timestamp expectedWithoutSlot = Timestamp.valueOf(DeliveryEntity.calculateExpectedDeliveryDate(now));
+
+        List<Object[]> deliveries = new ArrayList<>(orders.size());
+        List<Object[]> inTransit = new ArrayList<>(orders.size());
+        List<OrderEvent> events = new ArrayList<>(orders.size());
+        for (PendingOrder order : orders) {
+            int courier = couriers.pollLeastLoaded();
+            if (courier < 0) {
+                break;
+            }
+            Timestamp expected = order.slotEnd() != null ? order.slotEnd() : expectedWithoutSlot;
+            deliveries.add(new Object[]{order.orderId(), couriers.userId(courier), expected, assignedAt});
+            inTransit.add(new Object[]{order.orderId()});
+            events.add(new OrderEvent(null, order.orderId(), OrderEventType.ORDER_ASSIGNED, OrderStatus.IN_TRANSIT,
+                    order.userId(), order.cylinderType(), order.capacity(), order.quantity(), order.totalPrice(),
+                    couriers.username(courier), now));
+        }
+
+        if (!deliveries.isEmpty()) {
+            batchUpdate(INSERT_DELIVERY, deliveries);
+            batchUpdate(MARK_IN_TRANSIT, inTransit);
+            orderOutbox.append(events);
+            worklistCache.invalidate(deliveries.stream().map(delivery -> (Long) delivery[1]).distinct().sorted().toList());
+        }
+        return new AutoDispatchResult(deliveries.size(), orders.size() - deliveries.size(), available);
+    }
+
+    private CourierHeap loadCouriers() {
+        List<Object[]> rows = jdbcTemplate.query(SELECT_COURIERS,
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)});
+        LongIntHashMap indexById = new LongIntHashMap(rows.size(), -1);
+        long[] userIds = new long[rows.size()];
+        String[] usernames = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            userIds[i] = (Long) rows.get(i)[0];
+            usernames[i] = (String) rows.get(i)[1];
+            indexById.put(userIds[i], i);
+        }
+
+        int[] inTransit = new int[userIds.length];
+        int[] assignedToday = new int[userIds.length];
+        jdbcTemplate.query(COUNT_IN_TRANSIT, rs -> {
+            int index = indexById.get(rs.getLong(1));
+            if (index >= 0) {
+                inTransit[index] = rs.getInt(2);
+            }
+        });
+        jdbcTemplate.query(COUNT_ASSIGNED_SINCE, rs -> {
+            int index = indexById.get(rs.getLong(1));
+            if (index >= 0) {
+                assignedToday[index] = rs.getInt(2);
+            }
+        }, Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+
+        return new CourierHeap(userIds, usernames, inTransit, assignedToday, dailyCapacity);
+    }
+
+    private void batchUpdate(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    private record PendingOrder(long orderId, long userId, CylinderType cylinderType, double capacity, int quantity,
+                                double totalPrice, Timestamp slotEnd) {
+    }
+
+    /**
+     * Binary min-heap of courier indexes, ordered by orders in transit, then by assignments today, then by user id
+     * so runs are deterministic. Couriers at the daily capacity leave the heap.
+     */
+    static final class CourierHeap {
+
+        private final long[] userIds;
+        private final String[] usernames;
+        private final int[] load;
+        private final int[] assignedToday;
+        private final int dailyCapacity;
+        private final int[] heap;
+        private int size;
+
+        CourierHeap(long[] userIds, String[] usernames, int[] load, int[] assignedToday, int dailyCapacity) {
+            this.userIds = userIds;
+            this.usernames = usernames;
+            this.load = load;
+            this.assignedToday = assignedToday;
+            this.dailyCapacity = dailyCapacity;
+            this.heap = new int[userIds.length];
+            for (int courier = 0; courier < userIds.length; courier++) {
+                if (assignedToday[courier] < dailyCapacity) {
+                    heap[size++] = courier;
+                }
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long userId(int courier) {
+            return userIds[courier];
+        }
+
+        String username(int courier) {
+            return usernames[courier];
+        }
+
+        /**
+         * Returns the least loaded courier with capacity left and counts one more order for them, or -1 if every
+         * courier is full.
+         */
+        int pollLeastLoaded() {
+            if (size == 0) {
+                return -1;
+            }
+            int courier = heap[0];
+            load[courier]++;
+            if (++assignedToday[courier] >= dailyCapacity) {
+                heap[0] = heap[--size];
+            }
+            siftDown(0);
+            return courier;
+        }
+
+        private void siftDown(int position) {
+            int courier = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && lessThan(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!lessThan(heap[child], courier)) {
+                    break;
+                }
+                heap[position] = heap[child];
+                position = child;
+            }
+            if (position < size) {
+                heap[position] = courier;
+            }
+        }
+
+        private boolean lessThan(int a, int b) {
+            if (load[a] != load[b]) {
+                return load[a] < load[b];
+            }
+            if (assignedToday[a] != assignedToday[b]) {
+                return assignedToday[a] < assignedToday[b];
+            }
+            return userIds[a] < userIds[b];
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.pbg.lpg_delivery.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.pbg.lpg_delivery.model.responses.WorklistRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-courier snapshot of the orders in transit, so a courier refreshing their worklist does not run the worklist
+ * query while nothing changed for them.
+ * <p>
+ * Every change to a courier's worklist bumps {@code users.worklist_version} in the transaction making the change,
+ * and a snapshot is only served while it was loaded at the current version. Checking the version is a primary key
+ * read, and sees the changes made on every instance. A refresh racing with a change can store a snapshot under the
+ * version read before the commit, but that version is never current again. Snapshots also expire after
+ * {@code lpg.delivery.worklist-cache.ttl-seconds}, as a bound on changes made outside of the services (customer
+ * details, direct database edits).
+ */
+@Component
+public class CourierWorklistCache {
+
+    private static final String SELECT_VERSION = "SELECT worklist_version FROM users WHERE user_id = ?";
+    private static final String BUMP_VERSION =
+            "UPDATE users SET worklist_version = worklist_version + 1 WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, Snapshot> snapshots;
+
+    public CourierWorklistCache(JdbcTemplate jdbcTemplate,
+                                @Value("${lpg.delivery.worklist-cache.max-size:10000}") long maxSize,
+                                @Value("${lpg.delivery.worklist-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the courier's current snapshot, loading it on a miss. The load runs outside of the cache, like in
+     * {@code UserDetailsCache}, so it does not hold a map lock (and pin a virtual thread) during the query.
+     */
+    public List<WorklistRow> get(Long courierId, Supplier<List<WorklistRow>> loader) {
+        List<Long> found = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, courierId);
+        long version = found.isEmpty() ? 0 : found.get(0);
+        Snapshot cached = snapshots.getIfPresent(courierId);
+        if (cached != null && cached.version() == version) {
+            return cached.rows();
+        }
+        List<WorklistRow> rows = List.copyOf(loader.get());
+        snapshots.put(courierId, new Snapshot(version, rows));
+        return rows;
+    }
+
+    /**
+     * Invalidates the courier's snapshot on every instance once the current transaction commits. Must be called in
+     * the transaction that changes the worklist.
+     */
+    public void invalidate(Long courierId) {
+        jdbcTemplate.update(BUMP_VERSION, courierId);
+    }
+
+    /**
+     * Same as {@link #invalidate(Long)} for several couriers, in one batch. The ids must be in ascending order, so
+     * concurrent batches lock the couriers' rows in the same order.
+     */
+    public void invalidate(Collection<Long> courierIds) {
+        jdbcTemplate.batchUpdate(BUMP_VERSION, courierIds.stream().map(courierId -> new Object[]{courierId}).toList());
+    }
+
+    public CacheStats stats() {
+        return snapshots.stats();
+    }
+
+    private record Snapshot(long version, List<WorklistRow> rows) {
+    }
+}
@@ -4,13 +4,11 @@ import com.pbg.lpg_delivery.common.Role;
 import com.pbg.lpg_delivery.controller.OrderController;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.ParentException;
-import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.model.enums.CylinderType;
 import com.pbg.lpg_delivery.model.request.LpgCylinderRequest;
 import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
 import com.pbg.lpg_delivery.model.responses.Cylinder;
 import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
-import com.pbg.lpg_delivery.repository.UserRepository;
 import com.pbg.lpg_delivery.utils.AuthUtils;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
@@ -27,17 +25,16 @@ public class CylinderService {
     private static final Logger logger = LoggerFactory.getLogger(CylinderService.class);
 
     private final LpgCylinderRepository lpgCylinderRepository;
-    private final UserRepository userRepository;
-    public CylinderService(LpgCylinderRepository lpgCylinderRepository, UserRepository userRepository) {
+    private final StockReservation stockReservation;
+    public CylinderService(LpgCylinderRepository lpgCylinderRepository, StockReservation stockReservation) {
         this.lpgCylinderRepository = lpgCylinderRepository;
-        this.userRepository = userRepository;
+        this.stockReservation = stockReservation;
     }
 
     @Transactional
     public String createOrUpdateCylinder(LpgCylinderRequest request) {
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
-            if (user.getRole() != Role.ADMIN) {
+            if (AuthUtils.getCurrentPrincipal().getRole() != Role.ADMIN) {
                 throw new LpgException("LP-403", "Unauthorized access. Only ADMIN can modify the stock.");
             }
 
@@ -46,14 +43,11 @@ public class CylinderService {
                 throw new LpgException("LP-4001", "Invalid cylinder type or weight. Only COMMERCIAL (18.5 kg) or DOMESTIC (14.5 kg) are allowed.");
             }
 
-            lpgCylinderRepository.findByTypeAndWeight(request.type(), request.weight())
-                    .ifPresentOrElse(cylinder -> {
-                        cylinder.updateStockAndPrice(request);
-                        lpgCylinderRepository.save(cylinder);
-                    }, () -> {
-                        LpgCylinderEntity newCylinder = LpgCylinderEntity.createNewCylinder(request);
-                        lpgCylinderRepository.save(newCylinder);
-                    });
+            if (lpgCylinderRepository.restock(request.type(), request.weight(), request.stockQuantity(), request.price()) == 0) {
+                LpgCylinderEntity newCylinder = LpgCylinderEntity.createNewCylinder(request);
+                lpgCylinderRepository.saveAndFlush(newCylinder);
+            }
+            stockReservation.restocked(request.type(), request.weight(), request.stockQuantity());
 
             return "Cylinder stock successfully updated.";
 
@@ -74,8 +68,7 @@ public class CylinderService {
 
     public List<Cylinder> getCylindersByType(CylinderType type) {
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
-            if (user.getRole() != Role.ADMIN) {
+            if (AuthUtils.getCurrentPrincipal().getRole() != Role.ADMIN) {
                 throw new LpgException("LP-403", "Unauthorized access. Only ADMIN can view the stock.");
             }
             List<LpgCylinderEntity> cylinders = lpgCylinderRepository.findByType(type);
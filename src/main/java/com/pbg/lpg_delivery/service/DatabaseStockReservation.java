@@ -0,0 +1,35 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reserves stock with a single guarded UPDATE per call on the {@code lpg_cylinders} row.
+ */
+@Service
+@ConditionalOnProperty(name = "lpg.inventory.mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseStockReservation implements StockReservation {
+
+    private final LpgCylinderRepository lpgCylinderRepository;
+
+    public DatabaseStockReservation(LpgCylinderRepository lpgCylinderRepository) {
+        this.lpgCylinderRepository = lpgCylinderRepository;
+    }
+
+    @Override
+    public boolean reserve(CylinderType type, Double weight, int quantity) {
+        return lpgCylinderRepository.reserveStock(type, weight, quantity) > 0;
+    }
+
+    @Override
+    public boolean release(CylinderType type, Double weight, int quantity) {
+        return lpgCylinderRepository.releaseStock(type, weight, quantity) > 0;
+    }
+
+    @Override
+    public void restocked(CylinderType type, Double weight, int quantity) {
+        // the row is the source of truth, nothing else to update
+    }
+}
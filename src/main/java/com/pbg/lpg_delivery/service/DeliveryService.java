@@ -3,60 +3,91 @@ package com.pbg.lpg_delivery.service;
 import com.pbg.lpg_delivery.common.Role;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.geo.CourierTrackBuffer;
+import com.pbg.lpg_delivery.geo.DispatchGeoIndex;
+import com.pbg.lpg_delivery.geo.GeoPoint;
+import com.pbg.lpg_delivery.geo.GridIndex;
 import com.pbg.lpg_delivery.model.entity.DeliveryEntity;
 import com.pbg.lpg_delivery.model.entity.OrderEntity;
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.model.enums.DeliveryStatus;
 import com.pbg.lpg_delivery.model.enums.OrderStatus;
-import com.pbg.lpg_delivery.model.responses.OrderDetails;
+import com.pbg.lpg_delivery.model.request.GpsPing;
+import com.pbg.lpg_delivery.model.request.GpsPingBatch;
+import com.pbg.lpg_delivery.model.request.LocationRequest;
+import com.pbg.lpg_delivery.model.responses.NearbyCourier;
+import com.pbg.lpg_delivery.model.responses.NearbyOrder;
+import com.pbg.lpg_delivery.model.responses.RouteStop;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import com.pbg.lpg_delivery.outbox.OrderOutbox;
 import com.pbg.lpg_delivery.repository.DeliveryRepository;
 import com.pbg.lpg_delivery.repository.OrderRepository;
 import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
 import com.pbg.lpg_delivery.utils.AuthUtils;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 
 @Service
 public class DeliveryService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeliveryService.class);
+    private static final int MAX_NEARBY_RESULTS = 50;
+    private static final int MAX_PINGS_PER_BATCH = 100;
     private  final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final DeliveryRepository deliveryRepository;
+    private final OrderOutbox orderOutbox;
+    private final DispatchGeoIndex geoIndex;
+    private final RoutePlanningService routePlanningService;
+    private final CourierWorklistCache worklistCache;
+    private final CourierTrackBuffer trackBuffer;
 
     public DeliveryService(UserRepository userRepository,OrderRepository orderRepository,
-                           DeliveryRepository deliveryRepository) {
+                           DeliveryRepository deliveryRepository, OrderOutbox orderOutbox,
+                           DispatchGeoIndex geoIndex, RoutePlanningService routePlanningService,
+                           CourierWorklistCache worklistCache, CourierTrackBuffer trackBuffer) {
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.deliveryRepository = deliveryRepository;
+        this.orderOutbox = orderOutbox;
+        this.geoIndex = geoIndex;
+        this.routePlanningService = routePlanningService;
+        this.worklistCache = worklistCache;
+        this.trackBuffer = trackBuffer;
     }
 
+    @Transactional
     public void assignOrderToDelivery(Long orderId, String userName) {
 
         try {
-            OrderEntity order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new LpgException("Order not found", "ST-1003"));
+            OrderEntity order = orderRepository.lockById(orderId)
+                    .orElseThrow(() -> new LpgException("ST-1003", "Order not found"));
 
             UserEntity deliveryPerson = userRepository.findByUsername(userName)
-                    .orElseThrow(() -> new LpgException("Delivery person not found", "ST-1004"));
+                    .orElseThrow(() -> new LpgException("ST-1004", "Delivery person not found"));
 
             if (deliveryPerson.getRole() != Role.DELIVERY_PERSON) {
                 logger.warn("User {} is not a valid delivery person", userName);
-                throw new LpgException("User is not a delivery person", "ST-1005");
+                throw new LpgException("ST-1005", "User is not a delivery person");
             }
 
             if (order.getDelivery() != null) {
                 logger.warn("Order {} is already assigned to a delivery person", orderId);
-                throw new LpgException("Order is already assigned to a delivery person", "ST-1006");
+                throw new LpgException("ST-1006", "Order is already assigned to a delivery person");
             }
 
 
@@ -65,6 +96,8 @@ public class DeliveryService {
             order.setDelivery(delivery);
             order.setStatus(OrderStatus.IN_TRANSIT);
             orderRepository.save(order);
+            orderOutbox.append(OrderEvent.of(OrderEventType.ORDER_ASSIGNED, order, userName));
+            worklistCache.invalidate(deliveryPerson.getUserId());
 
             logger.info("Order {} assigned to delivery person {}. Expected delivery: {}", orderId, userName, delivery.getExpectedDeliveryDate());
 
@@ -83,18 +116,18 @@ public class DeliveryService {
 
         try {
             OrderEntity order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new LpgException("Order not found", "ST-1003"));
+                    .orElseThrow(() -> new LpgException("ST-1003", "Order not found"));
 
             if (order.getDelivery() == null) {
-                throw new LpgException("No delivery assigned to this order", "ST-1007");
+                throw new LpgException("ST-1007", "No delivery assigned to this order");
             }
 
-            UserEntity currentUser = AuthUtils.getCurrentUser(userRepository);
+            AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
 
 
             if (currentUser.getRole() == Role.DELIVERY_PERSON &&
-                    !order.getDelivery().getDeliveryPerson().equals(currentUser)) {
-                throw new LpgException("Unauthorized: Only the assigned delivery person or admin can update the delivery status", "ST-1008");
+                    !order.getDelivery().getDeliveryPerson().getUserId().equals(currentUser.getUserId())) {
+                throw new LpgException("ST-1008", "Unauthorized: Only the assigned delivery person or admin can update the delivery status");
             }
 
 
@@ -107,6 +140,9 @@ public class DeliveryService {
 
             deliveryRepository.save(delivery);
             orderRepository.save(order);
+            orderOutbox.append(OrderEvent.of(OrderEventType.ORDER_DELIVERED, order,
+                    delivery.getDeliveryPerson().getUsername()));
+            worklistCache.invalidate(delivery.getDeliveryPerson().getUserId());
             logger.info("Order {} marked as delivered by {}", orderId, currentUser.getUsername());
         }catch (LpgException ex){
             logger.error("Error occurred while marking for delivery for the orderId {}",orderId);
@@ -118,27 +154,156 @@ public class DeliveryService {
 
     }
 
-    public List<OrderDetails> getAllAssignedOrders() {
-        UserEntity currentUser = AuthUtils.getCurrentUser(userRepository);
+    /**
+     * Stores the position reported by the current delivery person and moves them in the geo index once committed.
+     */
+    @Transactional
+    public void updateCurrentLocation(LocationRequest request) {
+        try {
+            AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
+            if (currentUser.getRole() != Role.DELIVERY_PERSON) {
+                throw new LpgException("ST-1009", "Unauthorized: Only Delivery Person can access this functionality");
+            }
+            GeoPoint position = GeoPoint.ofNullable(request.latitude(), request.longitude());
+            if (position == null) {
+                throw new LpgException("ST-1010", "Invalid location: latitude and longitude must be given together");
+            }
 
-        if (currentUser.getRole() != Role.DELIVERY_PERSON) {
-            throw new LpgException("Unauthorized: Only Delivery Person can access this functionality", "ST-1009");
+            LocalDateTime reportedAt = LocalDateTime.now().withNano(0);
+            userRepository.updateLocation(currentUser.getUserId(), position.latitude(), position.longitude(), reportedAt);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    geoIndex.moveCourier(currentUser.getUserId(), currentUser.getUsername(), position, reportedAt);
+                }
+            });
+        } catch (LpgException ex) {
+            logger.error("Error occurred while updating the location of the delivery person: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Some internal error occurred while updating the location of the delivery person", ex);
+            throw new ParentException("DLBE-104", "some internal error occurred while updating the location");
         }
+    }
 
-        List<Long> assignedOrderIds = deliveryRepository.findOrderIdsByDeliveryPersonAndStatus(
-                currentUser.getUserId(), OrderStatus.IN_TRANSIT
-        );
+    /**
+     * Buffers the position fixes uploaded by the current delivery person and moves them in the geo index to the
+     * latest one. Nothing is written here: {@link CourierTrackBuffer} stores the track and the position in batches.
+     *
+     * @return the number of fixes accepted, fixes not newer than the last one received are ignored
+     */
+    public int recordPings(GpsPingBatch batch) {
+        try {
+            AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
+            if (currentUser.getRole() != Role.DELIVERY_PERSON) {
+                throw new LpgException("ST-1009", "Unauthorized: Only Delivery Person can access this functionality");
+            }
+            if (batch == null || batch.pings() == null || batch.pings().isEmpty()
+                    || batch.pings().size() > MAX_PINGS_PER_BATCH) {
+                throw new LpgException("ST-1013", "Invalid pings: a batch must hold between 1 and "
+                        + MAX_PINGS_PER_BATCH + " position fixes");
+            }
 
+            List<CourierTrackBuffer.Ping> pings = new ArrayList<>(batch.pings().size());
+            for (GpsPing ping : batch.pings()) {
+                GeoPoint position = GeoPoint.ofNullable(ping.latitude(), ping.longitude());
+                if (position == null || ping.recordedAt() == null) {
+                    throw new LpgException("ST-1013", "Invalid pings: every fix needs a latitude, a longitude and a time");
+                }
+                pings.add(new CourierTrackBuffer.Ping(position, ping.recordedAt()));
+            }
 
-        List<OrderEntity> assignedOrders = orderRepository.findByOrderIdInAndStatus(assignedOrderIds, OrderStatus.IN_TRANSIT);
+            int accepted = trackBuffer.append(currentUser.getUserId(), pings);
+            CourierTrackBuffer.Ping latest = trackBuffer.latest(currentUser.getUserId());
+            if (accepted > 0 && latest != null) {
+                geoIndex.moveCourier(currentUser.getUserId(), currentUser.getUsername(), latest.position(),
+                        latest.recordedAt());
+            }
+            return accepted;
+        } catch (LpgException ex) {
+            logger.error("Error occurred while recording the pings of the delivery person: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Some internal error occurred while recording the pings of the delivery person", ex);
+            throw new ParentException("DLBE-106", "some internal error occurred while recording the pings");
+        }
+    }
 
-        Map<UserEntity, List<OrderEntity>> groupedOrders = assignedOrders.stream()
-                .collect(Collectors.groupingBy(OrderEntity::getUser));
+    /**
+     * Returns the delivery persons closest to the customer of the order, among those who reported their position
+     * recently, closest first.
+     */
+    public List<NearbyCourier> findNearestCouriers(Long orderId, int limit) {
+        try {
+            GeoPoint orderLocation = geoIndex.locationOfOrder(orderId);
+            if (orderLocation == null) {
+                if (!orderRepository.existsById(orderId)) {
+                    throw new LpgException("ST-1003", "Order not found");
+                }
+                throw new LpgException("ST-1011", "The location of the customer of this order is unknown");
+            }
 
-        return groupedOrders.entrySet().stream()
-                .map(entry -> OrderEntity.mapToOrderDetails(entry.getKey(), entry.getValue(), true))
-                .toList();
+            return geoIndex.nearestCouriers(orderLocation, clampLimit(limit)).stream()
+                    .map(courier -> new NearbyCourier(geoIndex.courierName(courier.id()),
+                            courier.point().latitude(), courier.point().longitude(), roundKm(courier),
+                            LocalDateTime.ofInstant(Instant.ofEpochMilli(courier.updatedAtMillis()), ZoneId.systemDefault())))
+                    .toList();
+        } catch (LpgException ex) {
+            logger.error("Error occurred while finding couriers near the orderId {}: {}", orderId, ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Some internal error occurred while finding couriers near the orderId {}", orderId, ex);
+            throw new ParentException("DLBE-105", "some internal error occurred while finding nearby couriers");
+        }
+    }
+
+    /**
+     * Returns the pending orders closest to the last reported position of the current delivery person, closest first.
+     */
+    public List<NearbyOrder> findNearestPendingOrders(int limit) {
+        try {
+            AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
+            if (currentUser.getRole() != Role.DELIVERY_PERSON) {
+                throw new LpgException("ST-1009", "Unauthorized: Only Delivery Person can access this functionality");
+            }
+            GeoPoint position = geoIndex.locationOfCourier(currentUser.getUserId());
+            if (position == null) {
+                throw new LpgException("ST-1012", "Report your location before looking for nearby orders");
+            }
+
+            return geoIndex.nearestPendingOrders(position, clampLimit(limit)).stream()
+                    .map(order -> new NearbyOrder(order.id(), order.point().latitude(), order.point().longitude(),
+                            roundKm(order)))
+                    .toList();
+        } catch (LpgException ex) {
+            logger.error("Error occurred while finding pending orders near the delivery person: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Some internal error occurred while finding pending orders near the delivery person", ex);
+            throw new ParentException("DLBE-107", "some internal error occurred while finding nearby orders");
+        }
     }
 
+    /**
+     * Returns the orders in transit of the current delivery person, one stop per customer, in the order of the route.
+     * The orders come from {@link CourierWorklistCache}, so a refresh without changes does not query the database.
+     */
+    public List<RouteStop> getAllAssignedOrders() {
+        AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
 
+        if (currentUser.getRole() != Role.DELIVERY_PERSON) {
+            throw new LpgException("ST-1009", "Unauthorized: Only Delivery Person can access this functionality");
+        }
+
+        return routePlanningService.sequenceStops(currentUser.getUserId(), worklistCache.get(currentUser.getUserId(),
+                () -> orderRepository.findWorklistRowsByDeliveryPersonAndStatus(currentUser.getUserId(), OrderStatus.IN_TRANSIT)));
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_NEARBY_RESULTS));
+    }
+
+    private static double roundKm(GridIndex.Neighbour neighbour) {
+        return Math.round(neighbour.distanceKm() * 1000) / 1000.0;
+    }
 }
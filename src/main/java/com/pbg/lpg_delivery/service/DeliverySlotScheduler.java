@@ -0,0 +1,496 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.responses.DeliverySlot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Books every order into a delivery shift that has capacity left in the customer's zone.
+ * <p>
+ * The open shifts of the next {@code lpg.slots.horizon-days} are precomputed as a bitmap, one bit per day and shift,
+ * without Sundays and the {@code lpg.slots.holidays}; it is rebuilt when the day changes. Zones are square cells of
+ * {@code lpg.slots.zone-size-deg} degrees around the customer's position, and customers without a position share
+ * one zone. A booking takes the first open shift starting at least {@code lpg.slots.lead-time-minutes} from now that
+ * has fewer than {@code lpg.slots.capacity-per-shift} bookings in the zone.
+ * <p>
+ * The bookings of all instances are counted in {@code slot_counts}, and a booking claims its shift there with a
+ * conditional increment, so instances together never overbook a shift. Each instance also keeps counts per zone and
+ * shift in an {@link AtomicIntegerArray}, loaded from the orders at startup and raised with a compare-and-set before
+ * the claim, so a shift it counts as full is skipped without a query. These counts drift from the shared ones as
+ * other instances book and cancel: a shift the claim finds full is counted as full, and the shared count of a shift
+ * counted as full is re-read at most once per {@code lpg.slots.full-recheck-ms}, so a shift freed on another
+ * instance is offered again.
+ * <p>
+ * The claim is part of the current transaction and holds the row of the shift until it ends. A booking is given back
+ * when its transaction rolls back, and a cancellation gives it back when it commits. The shared counts of past days
+ * are deleted by {@link #purge}.
+ */
+@Component
+public class DeliverySlotScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliverySlotScheduler.class);
+
+    private static final String COUNT_BOOKED = "SELECT delivery_zone, slot_start, COUNT(*) FROM orders " +
+            "WHERE slot_start >= ? AND status <> 'CANCELLED' GROUP BY delivery_zone, slot_start";
+    private static final String CLAIM = "UPDATE slot_counts SET booked = booked + 1 " +
+            "WHERE delivery_zone = ? AND slot_start = ? AND booked < ?";
+    private static final String ADD_SHIFT = "INSERT IGNORE INTO slot_counts (delivery_zone, slot_start, booked) " +
+            "VALUES (?, ?, 0)";
+    private static final String GIVE_BACK = "UPDATE slot_counts SET booked = booked - 1 " +
+            "WHERE delivery_zone = ? AND slot_start = ? AND booked > 0";
+    private static final String SELECT_SHARED = "SELECT booked FROM slot_counts " +
+            "WHERE delivery_zone = ? AND slot_start = ?";
+    private static final String SELECT_FULL = "SELECT slot_start FROM slot_counts WHERE delivery_zone = ? " +
+            "AND slot_start >= ? AND booked >= ?";
+    private static final String PURGE_COUNTS = "DELETE FROM slot_counts WHERE slot_start < ?";
+
+    /**
+     * Zone of the customers without a known position. No grid cell encodes to it, and it is stored as null on the
+     * orders.
+     */
+    static final long DEFAULT_ZONE = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final LocalTime[] shiftStarts;
+    private final LocalTime[] shiftEnds;
+    private final Set<LocalDate> holidays;
+    private final int horizonDays;
+    private final Duration leadTime;
+    private final int capacityPerShift;
+    private final double zoneDegrees;
+    private final long fullRecheckMillis;
+
+    private final Map<Long, AtomicIntegerArray> bookings = new ConcurrentHashMap<>();
+    /** Per zone and shift, when the shared count may be re-read next (clock millis). */
+    private final Map<Long, AtomicLongArray> rechecks = new ConcurrentHashMap<>();
+    private volatile Calendar calendar;
+    private final Counter booked;
+    private final Counter full;
+    private final Counter contended;
+    private final Counter rechecked;
+
+    @Autowired
+    public DeliverySlotScheduler(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                 @Value("${lpg.slots.shifts:09:00-13:00,14:00-18:00}") String shifts,
+                                 @Value("${lpg.slots.holidays:}") String holidays,
+                                 @Value("${lpg.slots.horizon-days:14}") int horizonDays,
+                                 @Value("${lpg.slots.lead-time-minutes:120}") long leadTimeMinutes,
+                                 @Value("${lpg.slots.capacity-per-shift:200}") int capacityPerShift,
+                                 @Value("${lpg.slots.zone-size-deg:0.05}") double zoneDegrees,
+                                 @Value("${lpg.slots.full-recheck-ms:30000}") long fullRecheckMillis) {
+        this(jdbcTemplate, meterRegistry, Clock.systemDefaultZone(), shifts, holidays, horizonDays, leadTimeMinutes,
+                capacityPerShift, zoneDegrees, fullRecheckMillis);
+    }
+
+    DeliverySlotScheduler(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, Clock clock, String shifts,
+                          String holidays, int horizonDays, long leadTimeMinutes, int capacityPerShift,
+                          double zoneDegrees, long fullRecheckMillis) {
+        if (horizonDays <= 0 || capacityPerShift <= 0 || !(zoneDegrees > 0)) {
+            throw new IllegalArgumentException("lpg.slots.horizon-days, capacity-per-shift and zone-size-deg must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        String[] ranges = shifts.split(",");
+        this.shiftStarts = new LocalTime[ranges.length];
+        this.shiftEnds = new LocalTime[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            String[] range = ranges[i].trim().split("-");
+            shiftStarts[i] = LocalTime.parse(range[0].trim());
+            shiftEnds[i] = LocalTime.parse(range[1].trim());
+            if (!shiftEnds[i].isAfter(shiftStarts[i]) || (i > 0 && shiftStarts[i].isBefore(shiftEnds[i - 1]))) {
+                throw new IllegalArgumentException("lpg.slots.shifts must be ordered, non-overlapping ranges: " + shifts);
+            }
+        }
+        this.holidays = new HashSet<>();
+        for (String holiday : holidays.split(",")) {
+            if (!holiday.isBlank()) {
+                this.holidays.add(LocalDate.parse(holiday.trim()));
+            }
+        }
+        this.horizonDays = horizonDays;
+        this.leadTime = Duration.ofMinutes(leadTimeMinutes);
+        this.capacityPerShift = capacityPerShift;
+        this.zoneDegrees = zoneDegrees;
+        this.fullRecheckMillis = fullRecheckMillis;
+
+        this.booked = Counter.builder("lpg.slots.booked")
+                .description("Orders booked into a delivery shift")
+                .register(meterRegistry);
+        this.full = Counter.builder("lpg.slots.full")
+                .description("Orders refused because no shift of the horizon had capacity left in their zone")
+                .register(meterRegistry);
+        this.contended = Counter.builder("lpg.slots.contended")
+                .description("Shifts found full by their claim after other instances filled them")
+                .register(meterRegistry);
+        this.rechecked = Counter.builder("lpg.slots.rechecked")
+                .description("Shared counts re-read for shifts this instance counted as full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the bookings of the orders whose shift is still within the horizon.
+     */
+    @PostConstruct
+    public void load() {
+        LocalDate today = LocalDate.now(clock);
+        Calendar current = calendar(today);
+        int[] loaded = new int[1];
+        jdbcTemplate.query(COUNT_BOOKED, rs -> {
+            Number zone = (Number) rs.getObject(1);
+            int position = position(current, rs.getTimestamp(2).toLocalDateTime());
+            if (position >= 0) {
+                counts(zone == null ? DEFAULT_ZONE : zone.longValue()).addAndGet(position, rs.getInt(3));
+                loaded[0] += rs.getInt(3);
+            }
+        }, Timestamp.valueOf(today.atStartOfDay()));
+        logger.info("Delivery slots loaded with {} booking(s) in {} zone(s)", loaded[0], bookings.size());
+    }
+
+    /**
+     * Deletes the shared counts of the days before today. Every instance runs it, outside of any booking's
+     * transaction.
+     */
+    @Scheduled(fixedDelayString = "${lpg.slots.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = jdbcTemplate.update(PURGE_COUNTS, Timestamp.valueOf(LocalDate.now(clock).atStartOfDay()));
+        if (purged > 0) {
+            logger.info("Purged the counts of {} past shift(s)", purged);
+        }
+    }
+
+    /**
+     * Returns the zone of a position, or the default zone if it is unknown.
+     */
+    public long zoneOf(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return DEFAULT_ZONE;
+        }
+        long row = (long) Math.floor(latitude / zoneDegrees);
+        long column = (long) Math.floor(longitude / zoneDegrees);
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the shift an order of the customer would be booked into now, or null if the horizon is full. The shifts
+     * are checked against the shared counts, with one query, but nothing is reserved: bookings made in the meantime
+     * can still fill the shift.
+     */
+    public DeliverySlot nextAvailable(UserEntity customer) {
+        long zone = zoneOf(customer.getLatitude(), customer.getLongitude());
+        LocalDateTime earliest = LocalDateTime.now(clock).plus(leadTime);
+        Calendar current = calendar(LocalDate.now(clock));
+        Set<LocalDateTime> full = new HashSet<>(jdbcTemplate.query(SELECT_FULL,
+                (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(), zone, Timestamp.valueOf(earliest),
+                capacityPerShift));
+        for (int slot = current.nextOpen(firstSlot(current, earliest)); slot >= 0; slot = current.nextOpen(slot + 1)) {
+            DeliverySlot candidate = current.slot(slot);
+            if (!full.contains(candidate.start())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Books the order into the first shift with capacity left in its customer's zone and sets the shift and the
+     * zone on the order. The booking is given back if the current transaction rolls back.
+     *
+     * @throws LpgException if no shift of the horizon has capacity left
+     */
+    public DeliverySlot book(OrderEntity order) {
+        UserEntity customer = order.getUser();
+        long zone = zoneOf(customer.getLatitude(), customer.getLongitude());
+        LocalDateTime earliest = LocalDateTime.now(clock).plus(leadTime);
+        Calendar current = calendar(LocalDate.now(clock));
+        AtomicIntegerArray counts = counts(zone);
+        long now = clock.millis();
+        for (int slot = current.nextOpen(firstSlot(current, earliest)); slot >= 0; slot = current.nextOpen(slot + 1)) {
+            int position = position(current, slot);
+            DeliverySlot booked = current.slot(slot);
+            if (!increment(counts, position)
+                    && !(recheck(zone, counts, position, booked.start(), now) && increment(counts, position))) {
+                continue;
+            }
+            boolean claimed;
+            try {
+                claimed = claim(zone, booked.start());
+            } catch (RuntimeException ex) {
+                release(zone, booked.start());
+                throw ex;
+            }
+            if (!claimed) {
+                counts.set(position, capacityPerShift);
+                rechecks(zone).set(position, now + fullRecheckMillis);
+                contended.increment();
+                continue;
+            }
+            order.setSlotStart(booked.start());
+            order.setSlotEnd(booked.end());
+            order.setDeliveryZone(zone == DEFAULT_ZONE ? null : zone);
+            releaseOnRollback(zone, booked.start());
+            this.booked.increment();
+            return booked;
+        }
+        full.increment();
+        throw new LpgException("LP-414", "No delivery slot available in the next " + horizonDays + " days.");
+    }
+
+    /**
+     * Gives the order's shift back with the current transaction: in {@code slot_counts} right away, so it only
+     * counts if the transaction commits, and to this instance once it commits. Outside of a transaction both happen
+     * right away.
+     */
+    public void releaseAfterCommit(OrderEntity order) {
+        if (order.getSlotStart() == null) {
+            return;
+        }
+        long zone = order.getDeliveryZone() == null ? DEFAULT_ZONE : order.getDeliveryZone();
+        LocalDateTime slotStart = order.getSlotStart();
+        jdbcTemplate.update(GIVE_BACK, zone, Timestamp.valueOf(slotStart));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(zone, slotStart);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(zone, slotStart);
+            }
+        });
+    }
+
+    private void releaseOnRollback(long zone, LocalDateTime slotStart) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(zone, slotStart);
+                }
+            }
+        });
+    }
+
+    private void release(long zone, LocalDateTime slotStart) {
+        AtomicIntegerArray counts = bookings.get(zone);
+        int position = position(calendar(LocalDate.now(clock)), slotStart);
+        if (counts == null || position < 0) {
+            return;
+        }
+        for (int count = counts.get(position); count > 0; count = counts.get(position)) {
+            if (counts.compareAndSet(position, count, count - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Raises the shared count of the shift if it is below the capacity. The first booking of a shift on any
+     * instance adds its row.
+     */
+    private boolean claim(long zone, LocalDateTime slotStart) {
+        Timestamp start = Timestamp.valueOf(slotStart);
+        if (jdbcTemplate.update(CLAIM, zone, start, capacityPerShift) == 1) {
+            return true;
+        }
+        jdbcTemplate.update(ADD_SHIFT, zone, start);
+        return jdbcTemplate.update(CLAIM, zone, start, capacityPerShift) == 1;
+    }
+
+    /**
+     * Re-reads the shared count of a shift this instance counts as full and takes it over, unless it was re-read less
+     * than {@code lpg.slots.full-recheck-ms} ago.
+     *
+     * @return true if the shared count has room left
+     */
+    private boolean recheck(long zone, AtomicIntegerArray counts, int position, LocalDateTime slotStart, long now) {
+        AtomicLongArray due = rechecks(zone);
+        long dueAt = due.get(position);
+        if (now < dueAt || !due.compareAndSet(position, dueAt, now + fullRecheckMillis)) {
+            return false;
+        }
+        rechecked.increment();
+        List<Integer> shared = jdbcTemplate.queryForList(SELECT_SHARED, Integer.class, zone,
+                Timestamp.valueOf(slotStart));
+        int sharedCount = shared.isEmpty() ? 0 : shared.get(0);
+        counts.set(position, Math.min(sharedCount, capacityPerShift));
+        return sharedCount < capacityPerShift;
+    }
+
+    private boolean increment(AtomicIntegerArray counts, int position) {
+        for (int count = counts.get(position); count < capacityPerShift; count = counts.get(position)) {
+            if (counts.compareAndSet(position, count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AtomicIntegerArray counts(long zone) {
+        return bookings.computeIfAbsent(zone, key -> new AtomicIntegerArray(horizonDays * shiftStarts.length));
+    }
+
+    private AtomicLongArray rechecks(long zone) {
+        return rechecks.computeIfAbsent(zone, key -> new AtomicLongArray(horizonDays * shiftStarts.length));
+    }
+
+    /**
+     * Returns the index of the first shift starting at or after the given time, which may be past the horizon.
+     */
+    private int firstSlot(Calendar current, LocalDateTime earliest) {
+        long day = ChronoUnit.DAYS.between(current.firstDay, earliest.toLocalDate());
+        if (day >= horizonDays) {
+            return horizonDays * shiftStarts.length;
+        }
+        int shift = 0;
+        while (shift < shiftStarts.length && shiftStarts[shift].isBefore(earliest.toLocalTime())) {
+            shift++;
+        }
+        return (int) Math.max(0, day * shiftStarts.length + shift);
+    }
+
+    /**
+     * The counts of a zone are a ring of {@code horizon-days} days indexed by epoch day, so the shifts of a day
+     * keep their counters while the horizon moves on.
+     */
+    private int position(Calendar current, int slot) {
+        long day = current.firstDay.toEpochDay() + slot / shiftStarts.length;
+        return (int) Math.floorMod(day, horizonDays) * shiftStarts.length + slot % shiftStarts.length;
+    }
+
+    /**
+     * @return the position of the shift starting at the given time, or -1 if it is not a shift within the horizon
+     */
+    private int position(Calendar current, LocalDateTime slotStart) {
+        long day = ChronoUnit.DAYS.between(current.firstDay, slotStart.toLocalDate());
+        int shift = Arrays.asList(shiftStarts).indexOf(slotStart.toLocalTime());
+        if (day < 0 || day >= horizonDays || shift < 0) {
+            return -1;
+        }
+        return position(current, (int) day * shiftStarts.length + shift);
+    }
+
+    private Calendar calendar(LocalDate today) {
+        Calendar current = calendar;
+        if (current != null && current.firstDay.equals(today)) {
+            return current;
+        }
+        synchronized (this) {
+            current = calendar;
+            if (current == null || !current.firstDay.equals(today)) {
+                if (current != null) {
+                    clearDaysBefore(current.firstDay, today);
+                }
+                current = new Calendar(today);
+                calendar = current;
+                logger.debug("Delivery calendar rebuilt from {} with {} open shift(s)", today, current.openShifts());
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Zeroes the counters and rechecks of the days that left the horizon, which are reused for the days that entered
+     * it. No booking can reach them meanwhile: their shifts are over and the new days are not offered yet.
+     */
+    private void clearDaysBefore(LocalDate from, LocalDate today) {
+        long days = Math.min(ChronoUnit.DAYS.between(from, today), horizonDays);
+        for (long day = 0; day < days; day++) {
+            int first = (int) Math.floorMod(from.toEpochDay() + day, horizonDays) * shiftStarts.length;
+            for (int shift = 0; shift < shiftStarts.length; shift++) {
+                for (AtomicIntegerArray counts : bookings.values()) {
+                    counts.set(first + shift, 0);
+                }
+                for (AtomicLongArray due : rechecks.values()) {
+                    due.set(first + shift, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * The open shifts of the horizon starting at {@code firstDay}: bit {@code day * shifts + shift} is set when
+     * deliveries are made during that shift.
+     */
+    private final class Calendar {
+
+        private final LocalDate firstDay;
+        private final long[] open;
+
+        private Calendar(LocalDate firstDay) {
+            this.firstDay = firstDay;
+            this.open = new long[(horizonDays * shiftStarts.length + 63) / 64];
+            for (int day = 0; day < horizonDays; day++) {
+                LocalDate date = firstDay.plusDays(day);
+                if (date.getDayOfWeek() == DayOfWeek.SUNDAY || holidays.contains(date)) {
+                    continue;
+                }
+                for (int shift = 0; shift < shiftStarts.length; shift++) {
+                    int slot = day * shiftStarts.length + shift;
+                    open[slot >>> 6] |= 1L << slot;
+                }
+            }
+        }
+
+        /**
+         * @return the first open shift at or after {@code from}, or -1 if there is none
+         */
+        private int nextOpen(int from) {
+            int word = from >>> 6;
+            if (word >= open.length) {
+                return -1;
+            }
+            long bits = open[word] & (-1L << from);
+            while (bits == 0) {
+                if (++word == open.length) {
+                    return -1;
+                }
+                bits = open[word];
+            }
+            return word * 64 + Long.numberOfTrailingZeros(bits);
+        }
+
+        private DeliverySlot slot(int slot) {
+            LocalDate date = firstDay.plusDays(slot / shiftStarts.length);
+            int shift = slot % shiftStarts.length;
+            return new DeliverySlot(date.atTime(shiftStarts[shift]), date.atTime(shiftEnds[shift]));
+        }
+
+        private int openShifts() {
+            return Arrays.stream(open).mapToInt(Long::bitCount).sum();
+        }
+    }
+}
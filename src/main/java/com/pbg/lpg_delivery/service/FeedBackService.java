@@ -33,7 +33,7 @@ public class FeedBackService {
 
     @Transactional
     public void submitFeedback(Long orderId, FeedbackRequest feedbackRequest) {
-        UserEntity user = AuthUtils.getCurrentUser(userRepository);
+        UserEntity user = AuthUtils.getCurrentUserReference(userRepository);
 
         OrderEntity order = orderRepository.findByIdAndUser(orderId, user)
                 .orElseThrow(() -> new LpgException("FB-404", "Order not found or unauthorized"));
@@ -45,7 +45,7 @@ public class FeedBackService {
         FeedbackEntity feedback = FeedbackEntity.createFeedback(user, order, feedbackRequest);
         feedbackRepository.save(feedback);
 
-        logger.info("Feedback submitted for order: {} by user: {}", orderId, user.getUsername());
+        logger.info("Feedback submitted for order: {} by user: {}", orderId, AuthUtils.getCurrentUsername());
     }
 
 }
@@ -0,0 +1,63 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.repository.DeliveryRepository;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the stock of every cylinder SKU ({@code lpg.inventory.stock}) and the orders each delivery person has in
+ * transit ({@code lpg.delivery.in_transit}) as gauges.
+ * <p>
+ * Both come from the database and are refreshed every {@code lpg.metrics.gauge-refresh-interval-ms} instead of on
+ * every scrape, so a scrape never queries the database. In ledger mode the stock lags by at most one ledger flush.
+ */
+@Component
+public class OperationalMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationalMetrics.class);
+
+    private final LpgCylinderRepository lpgCylinderRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final MultiGauge stockGauge;
+    private final MultiGauge inTransitGauge;
+
+    public OperationalMetrics(LpgCylinderRepository lpgCylinderRepository, DeliveryRepository deliveryRepository,
+                              MeterRegistry meterRegistry) {
+        this.lpgCylinderRepository = lpgCylinderRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.stockGauge = MultiGauge.builder("lpg.inventory.stock")
+                .description("Cylinders in stock per cylinder type and weight")
+                .baseUnit("cylinders")
+                .register(meterRegistry);
+        this.inTransitGauge = MultiGauge.builder("lpg.delivery.in_transit")
+                .description("Orders in transit per delivery person")
+                .baseUnit("orders")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${lpg.metrics.gauge-refresh-interval-ms:15000}",
+            initialDelayString = "${lpg.metrics.gauge-refresh-interval-ms:15000}")
+    public void refresh() {
+        try {
+            stockGauge.register(lpgCylinderRepository.findAll().stream()
+                    .<MultiGauge.Row<?>>map(cylinder -> MultiGauge.Row.of(
+                            Tags.of("type", cylinder.getType().name(), "weight", String.valueOf(cylinder.getWeight())),
+                            cylinder.getStockQuantity()))
+                    .toList(), true);
+            inTransitGauge.register(deliveryRepository.countOrdersPerCourier(OrderStatus.IN_TRANSIT).stream()
+                    .<MultiGauge.Row<?>>map(workload -> MultiGauge.Row.of(Tags.of("courier", workload.username()), workload.inTransit()))
+                    .toList(), true);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to refresh operational gauges, keeping the previous values: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.exceptionHandler.UserUnauthorizedException;
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.OrderRequestEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.model.responses.OrderRequestStatusResponse;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import com.pbg.lpg_delivery.outbox.OrderOutbox;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.OrderRequestRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
+import com.pbg.lpg_delivery.utils.AuthUtils;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asynchronous order intake for order storms. {@link #submit} only validates the order and queues it in
+ * {@code order_requests}, so the request thread never waits on the stock rows. {@link #drainQueue} then takes the
+ * queue in batches of {@code lpg.orders.intake.batch-size}: stock is reserved once per cylinder type for the whole
+ * batch and the orders are inserted with JDBC batches, which turns thousands of contended single-row updates into a
+ * handful of statements. Each accepted order is booked into a delivery shift, and requests whose zone has no shift
+ * left are rejected. Clients follow the outcome through {@link #getStatus}.
+ * <p>
+ * A batch that fails is rolled back as a whole, and its requests are then processed one per transaction, so a single
+ * bad request does not hold the others back. A request that fails on its own stays queued for the next run, and is
+ * rejected with {@code LP-415} once it failed {@code lpg.orders.intake.max-attempts} times.
+ * <p>
+ * The worker only queries the queue after an order was queued by this instance, or once after startup to pick up
+ * what a previous run left behind, so an idle application does not poll the table.
+ */
+@Service
+public class OrderIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private final OrderRequestRepository orderRequestRepository;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final LpgCylinderRepository lpgCylinderRepository;
+    private final StockReservation stockReservation;
+    private final OrderOutbox orderOutbox;
+    private final DeliverySlotScheduler slotScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final AtomicBoolean pending = new AtomicBoolean(true);
+
+    public OrderIntakeService(OrderRequestRepository orderRequestRepository, OrderRepository orderRepository,
+                              UserRepository userRepository, LpgCylinderRepository lpgCylinderRepository,
+                              StockReservation stockReservation, OrderOutbox orderOutbox,
+                              DeliverySlotScheduler slotScheduler, PlatformTransactionManager transactionManager,
+                              @Value("${lpg.orders.intake.batch-size:200}") int batchSize,
+                              @Value("${lpg.orders.intake.max-attempts:5}") int maxAttempts) {
+        this.orderRequestRepository = orderRequestRepository;
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.lpgCylinderRepository = lpgCylinderRepository;
+        this.stockReservation = stockReservation;
+        this.orderOutbox = orderOutbox;
+        this.slotScheduler = slotScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Validates the order of the current customer and queues it.
+     *
+     * @return the tracking id to query the outcome with
+     */
+    @Transactional
+    public String submit(OrderRequest orderRequest) {
+        try {
+            OrderService.validateCylinderTypeAndCapacity(orderRequest.cylinderType(), orderRequest.capacity());
+            OrderService.validateQuantity(orderRequest.quantity());
+
+            OrderRequestEntity queued = orderRequestRepository.save(
+                    OrderRequestEntity.queue(orderRequest, AuthUtils.getCurrentUserReference(userRepository)));
+            signalAfterCommit();
+            logger.debug("Order request {} queued for user {}", queued.getTrackingId(), AuthUtils.getCurrentUsername());
+            return queued.getTrackingId();
+
+        } catch (LpgException | UserUnauthorizedException e) {
+            logger.error("Order request rejected at intake: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unexpected error occurred while queueing order", e);
+            throw new ParentException("LP-999", "An unexpected error occurred. Please contact support.");
+        }
+    }
+
+    /**
+     * Returns the outcome of a queued order. Customers only see their own orders, admins see every order.
+     */
+    public OrderRequestStatusResponse getStatus(String trackingId) {
+        try {
+            AuthenticatedUser user = AuthUtils.getCurrentPrincipal();
+            OrderRequestEntity request = orderRequestRepository.findByTrackingId(trackingId)
+                    .filter(found -> user.getRole() == Role.ADMIN || found.getUser().getUserId().equals(user.getUserId()))
+                    .orElseThrow(() -> new LpgException("LP-413", "Order request not found."));
+            return request.toStatusResponse();
+
+        } catch (LpgException | UserUnauthorizedException e) {
+            logger.error("Business error occurred while getting order request {}: {}", trackingId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unexpected error occurred while getting order request {}", trackingId, e);
+            throw new ParentException("LP-999", "An unexpected error occurred. Please contact support.");
+        }
+    }
+
+    /**
+     * Processes queued orders, one batch per transaction, until the queue is empty. When a batch fails, its orders
+     * are processed one by one; the run stops if some of them are still queued after that.
+     */
+    @Scheduled(fixedDelayString = "${lpg.orders.intake.poll-interval-ms:200}")
+    public void drainQueue() {
+        if (!pending.getAndSet(false)) {
+            return;
+        }
+        try {
+            Integer processed;
+            do {
+                try {
+                    processed = transactionTemplate.execute(status -> processBatch(
+                            orderRequestRepository.lockOldestByStatus(OrderRequestStatus.QUEUED,
+                                    PageRequest.ofSize(batchSize))));
+                } catch (RuntimeException ex) {
+                    logger.warn("A batch of queued orders failed, processing them one by one: {}", ex.getMessage());
+                    if (!processOneByOne()) {
+                        pending.set(true);
+                        return;
+                    }
+                    processed = batchSize;
+                }
+            } while (processed != null && processed == batchSize);
+        } catch (RuntimeException ex) {
+            pending.set(true);
+            logger.error("Failed to process queued orders, will retry: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Processes the oldest queued orders one per transaction, and counts a failed attempt for each order that fails.
+     *
+     * @return true if none of them is left queued
+     */
+    private boolean processOneByOne() {
+        List<Long> requestIds = orderRequestRepository.findOldestIdsByStatus(OrderRequestStatus.QUEUED,
+                PageRequest.ofSize(batchSize));
+        boolean settled = true;
+        for (Long requestId : requestIds) {
+            try {
+                transactionTemplate.execute(status -> processBatch(orderRequestRepository
+                        .lockByIdAndStatus(requestId, OrderRequestStatus.QUEUED).stream().toList()));
+            } catch (RuntimeException ex) {
+                settled &= recordFailure(requestId, ex);
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Counts a failed attempt for the order, in a transaction of its own.
+     *
+     * @return true if the order is no longer queued
+     */
+    private boolean recordFailure(Long requestId, RuntimeException failure) {
+        OrderRequestEntity request = transactionTemplate.execute(status -> orderRequestRepository
+                .lockByIdAndStatus(requestId, OrderRequestStatus.QUEUED)
+                .map(queued -> {
+                    queued.fail(maxAttempts, LocalDateTime.now().withNano(0));
+                    return queued;
+                })
+                .orElse(null));
+        if (request == null) {
+            // processed by another worker in the meantime
+            return true;
+        }
+        if (request.getStatus() == OrderRequestStatus.QUEUED) {
+            logger.warn("Queued order {} failed (attempt {}), will retry: {}", requestId, request.getAttempts(),
+                    failure.getMessage());
+            return false;
+        }
+        logger.error("Queued order {} failed {} times, rejected: {}", requestId, request.getAttempts(),
+                failure.getMessage(), failure);
+        return true;
+    }
+
+    /**
+     * Wakes the worker up once the queued order is committed, so it cannot miss a row that is not visible yet.
+     */
+    private void signalAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.set(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.set(true);
+            }
+        });
+    }
+
+    private int processBatch(List<OrderRequestEntity> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<CylinderType, List<OrderRequestEntity>> byType = new EnumMap<>(CylinderType.class);
+        Set<Long> userIds = new HashSet<>();
+        for (OrderRequestEntity request : batch) {
+            byType.computeIfAbsent(request.getCylinderType(), type -> new ArrayList<>()).add(request);
+            userIds.add(request.getUser().getUserId());
+        }
+        // the positions of the customers pick the delivery zones, load them with one query
+        userRepository.findAllById(userIds);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<OrderRequestEntity> accepted = new ArrayList<>();
+        List<OrderEntity> orders = new ArrayList<>();
+        for (Map.Entry<CylinderType, List<OrderRequestEntity>> entry : byType.entrySet()) {
+            CylinderType type = entry.getKey();
+            List<OrderRequestEntity> requests = entry.getValue();
+
+            Optional<LpgCylinderEntity> cylinder = lpgCylinderRepository
+                    .findAvailableCylinderByTypeAndWeight(type, type.getCapacity());
+            if (cylinder.isEmpty()) {
+                requests.forEach(request -> request.reject("LP-102", "No available stock for " + type + " cylinder.", now));
+                continue;
+            }
+
+            for (OrderRequestEntity request : reserve(type, requests, now)) {
+                OrderEntity order = OrderEntity.createOrder(request.toOrderRequest(), request.getUser(),
+                        cylinder.get().getPrice() * request.getQuantity());
+                try {
+                    slotScheduler.book(order);
+                } catch (LpgException ex) {
+                    stockReservation.release(type, type.getCapacity(), request.getQuantity());
+                    request.reject(ex.getErrorCode(), ex.getErrorMessage(), now);
+                    continue;
+                }
+                accepted.add(request);
+                orders.add(order);
+            }
+        }
+
+        orderRepository.insertAll(orders);
+        orderOutbox.append(orders.stream().map(order -> OrderEvent.of(OrderEventType.ORDER_CREATED, order)).toList());
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).accept(orders.get(i).getOrderId(), now);
+        }
+        logger.info("Processed {} queued orders: {} accepted, {} rejected", batch.size(), accepted.size(),
+                batch.size() - accepted.size());
+        return batch.size();
+    }
+
+    /**
+     * Reserves the stock of every request of one cylinder type with a single reservation. When the aggregate does
+     * not fit, requests are served one by one in arrival order and those that no longer fit are rejected.
+     *
+     * @return the requests whose stock is reserved
+     */
+    private List<OrderRequestEntity> reserve(CylinderType type, List<OrderRequestEntity> requests, LocalDateTime now) {
+        int total = requests.stream().mapToInt(OrderRequestEntity::getQuantity).sum();
+        if (stockReservation.reserve(type, type.getCapacity(), total)) {
+            return requests;
+        }
+
+        List<OrderRequestEntity> reserved = new ArrayList<>();
+        for (OrderRequestEntity request : requests) {
+            if (stockReservation.reserve(type, type.getCapacity(), request.getQuantity())) {
+                reserved.add(request);
+            } else {
+                request.reject("LP-103", "Insufficient stock available.", now);
+            }
+        }
+        return reserved;
+    }
+}
@@ -0,0 +1,173 @@
+package com.pbg.lpg_delivery.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.exceptionHandler.ParentException;
+import com.pbg.lpg_delivery.model.responses.OrderReportPage;
+import com.pbg.lpg_delivery.model.responses.OrderReportRow;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
+import com.pbg.lpg_delivery.utils.AuthUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Admin order report over a date range, served either as keyset pages or as a stream of NDJSON lines.
+ * Neither variant loads the whole range: pages are bounded by their size and the stream writes each row as soon as
+ * it is read from the database.
+ */
+@Service
+public class OrderReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderReportService.class);
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final String CURSOR_SEPARATOR = "|";
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter rowWriter;
+
+    public OrderReportService(OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rowWriter = objectMapper.writerFor(OrderReportRow.class);
+    }
+
+    /**
+     * Returns the page of orders placed between the two dates (both inclusive) that follows the cursor.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, null for the first page
+     * @param size   the page size, {@link #DEFAULT_PAGE_SIZE} when null
+     */
+    public OrderReportPage getOrdersPage(LocalDate startDate, LocalDate endDate, String cursor, Integer size) {
+        try {
+            requireAdmin();
+            validateRange(startDate, endDate);
+            int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+            if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                throw new LpgException("LP-411", "Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+
+            LocalDateTime afterDate = startDate.atStartOfDay();
+            long afterId = 0L;
+            if (cursor != null && !cursor.isBlank()) {
+                Cursor decoded = decodeCursor(cursor);
+                // a cursor from before the range (e.g. the start date was moved) restarts at the range start
+                if (!decoded.orderDate().isBefore(afterDate)) {
+                    afterDate = decoded.orderDate();
+                    afterId = decoded.orderId();
+                }
+            }
+
+            List<OrderReportRow> rows = orderRepository.findReportPage(afterDate, afterId,
+                    endDate.plusDays(1).atStartOfDay(), PageRequest.ofSize(pageSize));
+
+            String nextCursor = null;
+            if (rows.size() == pageSize) {
+                OrderReportRow last = rows.get(rows.size() - 1);
+                nextCursor = encodeCursor(last.orderDate(), last.orderId());
+            }
+            return new OrderReportPage(rows, nextCursor);
+        } catch (LpgException ex) {
+            logger.error("Business error occurred while getting order report page: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error occurred while getting order report page", ex);
+            throw new ParentException("LP-999", "An unexpected error occurred. Please contact support.");
+        }
+    }
+
+    /**
+     * Validates the request on the calling thread and returns a body that writes every order placed between the two
+     * dates (both inclusive) as one JSON object per line.
+     */
+    public StreamingResponseBody streamOrders(LocalDate startDate, LocalDate endDate) {
+        try {
+            requireAdmin();
+            validateRange(startDate, endDate);
+        } catch (LpgException ex) {
+            logger.error("Business error occurred while streaming order report: {}", ex.getMessage());
+            throw ex;
+        }
+
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        return outputStream -> {
+            long written = writeOrders(start, end, outputStream);
+            logger.info("Streamed {} orders between {} and {}", written, startDate, endDate);
+        };
+    }
+
+    long writeOrders(LocalDateTime start, LocalDateTime end, OutputStream outputStream) {
+        Long written = readOnlyTransaction.execute(status -> {
+            long count = 0;
+            try (Stream<OrderReportRow> rows = orderRepository.streamReport(start, end)) {
+                for (OrderReportRow row : (Iterable<OrderReportRow>) rows::iterator) {
+                    outputStream.write(rowWriter.writeValueAsBytes(row));
+                    outputStream.write('\n');
+                    if (++count % FLUSH_EVERY_ROWS == 0) {
+                        outputStream.flush();
+                    }
+                }
+                outputStream.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return count;
+        });
+        return written == null ? 0 : written;
+    }
+
+    private static void requireAdmin() {
+        AuthenticatedUser user = AuthUtils.getCurrentPrincipal();
+        if (user.getRole() != Role.ADMIN) {
+            throw new LpgException("LP-403", "Unauthorized access");
+        }
+    }
+
+    private static void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new LpgException("LP-412", "Invalid date range");
+        }
+    }
+
+    static String encodeCursor(LocalDateTime orderDate, Long orderId) {
+        String raw = orderDate + CURSOR_SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(CURSOR_SEPARATOR);
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new LpgException("LP-410", "Invalid cursor");
+        }
+    }
+
+    private record Cursor(LocalDateTime orderDate, long orderId) {
+    }
+}
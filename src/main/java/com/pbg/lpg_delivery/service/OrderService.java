@@ -4,6 +4,7 @@ import com.pbg.lpg_delivery.common.Role;
 import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.ParentException;
 import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.request.BatchOrderRequest;
 import com.pbg.lpg_delivery.model.request.ModifyOrderRequest;
 import com.pbg.lpg_delivery.model.request.OrderRequest;
 import com.pbg.lpg_delivery.model.enums.OrderStatus;
@@ -11,12 +12,17 @@ import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
 import com.pbg.lpg_delivery.model.entity.OrderEntity;
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.model.responses.Cylinder;
+import com.pbg.lpg_delivery.model.responses.DeliverySlot;
 import com.pbg.lpg_delivery.model.responses.Order;
 import com.pbg.lpg_delivery.model.responses.OrderDetails;
-import com.pbg.lpg_delivery.model.responses.UserInfo;
+import com.pbg.lpg_delivery.model.responses.OrderReportRow;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import com.pbg.lpg_delivery.outbox.OrderOutbox;
 import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
 import com.pbg.lpg_delivery.repository.OrderRepository;
 import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
 import com.pbg.lpg_delivery.utils.AuthUtils;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
@@ -39,13 +45,25 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final LpgCylinderRepository lpgCylinderRepository;
-
-    public OrderService(OrderRepository orderRepository, UserRepository userRepository, LpgCylinderRepository lpgCylinderRepository) {
+    private final StockReservation stockReservation;
+    private final OrderOutbox orderOutbox;
+    private final CourierWorklistCache worklistCache;
+    private final DeliverySlotScheduler slotScheduler;
+
+    public OrderService(OrderRepository orderRepository, UserRepository userRepository, LpgCylinderRepository lpgCylinderRepository,
+                        StockReservation stockReservation, OrderOutbox orderOutbox,
+                        CourierWorklistCache worklistCache, DeliverySlotScheduler slotScheduler) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.lpgCylinderRepository = lpgCylinderRepository;
+        this.stockReservation = stockReservation;
+        this.orderOutbox = orderOutbox;
+        this.worklistCache = worklistCache;
+        this.slotScheduler = slotScheduler;
     }
 
+    private static final int MAX_BATCH_SIZE = 500;
+
     private static final EnumSet<CylinderType> VALID_CYLINDER_TYPES = EnumSet.of(CylinderType.COMMERCIAL, CylinderType.DOMESTIC);
 
     public static void validateCylinderTypeAndCapacity(CylinderType cylinderType, Double capacity) {
@@ -76,10 +94,16 @@ public class OrderService {
     }
 
 
+    /**
+     * Places an order of the current customer and books it into the first delivery shift with capacity left in
+     * the customer's zone.
+     *
+     * @return the delivery shift of the order
+     */
     @Transactional
-    public void createOrder(OrderRequest orderRequest) {
+    public DeliverySlot createOrder(OrderRequest orderRequest) {
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
+            UserEntity user = AuthUtils.getCurrentUserReference(userRepository);
 
 
             validateCylinderTypeAndCapacity(orderRequest.cylinderType(), orderRequest.capacity());
@@ -93,19 +117,19 @@ public class OrderService {
                     .findAvailableCylinderByTypeAndWeight(orderRequest.cylinderType(), orderRequest.capacity())
                     .orElseThrow(() -> new LpgException("LP-102", "No available stock for " + orderRequest.cylinderType() + " cylinder."));
 
-            if (availableCylinder.getStockQuantity() < orderRequest.quantity()) {
+            if (!stockReservation.reserve(orderRequest.cylinderType(), orderRequest.capacity(), orderRequest.quantity())) {
                 throw new LpgException("LP-103", "Insufficient stock available.");
             }
 
-            availableCylinder.setStockQuantity(availableCylinder.getStockQuantity() - orderRequest.quantity());
-            lpgCylinderRepository.save(availableCylinder);
-
             double totalPrice = availableCylinder.getPrice() * orderRequest.quantity();
 
             OrderEntity order = OrderEntity.createOrder(orderRequest, user, totalPrice);
+            DeliverySlot slot = slotScheduler.book(order);
             orderRepository.save(order);
+            orderOutbox.append(OrderEvent.of(OrderEventType.ORDER_CREATED, order));
 
-            logger.info("Order placed successfully for user {}", user.getUsername());
+            logger.info("Order placed successfully for user {}", AuthUtils.getCurrentUsername());
+            return slot;
 
         } catch (LpgException e) {
             logger.error("Business error occurred while placing order: {}", e.getMessage());
@@ -117,28 +141,129 @@ public class OrderService {
     }
 
 
+    /**
+     * Places several orders on behalf of customers in one transaction: users are loaded with one query, stock is
+     * reserved once per cylinder type for the aggregate quantity and the orders are inserted in JDBC batches.
+     * Either every order is placed or none is.
+     *
+     * @return the number of orders placed
+     */
+    @Transactional
+    public int createOrders(List<BatchOrderRequest> requests) {
+        try {
+            AuthenticatedUser currentUser = AuthUtils.getCurrentPrincipal();
+            if (currentUser.getRole() != Role.ADMIN) {
+                throw new LpgException("LP-403", "Unauthorized access. Only ADMIN can place bulk orders.");
+            }
+
+            if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+                throw new LpgException("LP-409", "A bulk order must contain between 1 and " + MAX_BATCH_SIZE + " orders.");
+            }
+
+            Map<CylinderType, Integer> quantityByType = new EnumMap<>(CylinderType.class);
+            Set<String> usernames = new HashSet<>();
+            for (BatchOrderRequest request : requests) {
+                if (request.username() == null || request.username().isBlank()) {
+                    throw new LpgException("LP-101", "Username is required for every order.");
+                }
+                validateCylinderTypeAndCapacity(request.cylinderType(), request.capacity());
+                validateQuantity(request.quantity());
+                usernames.add(request.username());
+                quantityByType.merge(request.cylinderType(), request.quantity(), Integer::sum);
+            }
+
+            Map<String, UserEntity> usersByName = userRepository.findByUsernameIn(usernames).stream()
+                    .collect(Collectors.toMap(UserEntity::getUsername, user -> user));
+            for (String username : usernames) {
+                if (!usersByName.containsKey(username)) {
+                    throw new LpgException("LP-101", "User not found: " + username);
+                }
+            }
+
+            Map<CylinderType, Double> priceByType = new EnumMap<>(CylinderType.class);
+            for (Map.Entry<CylinderType, Integer> entry : quantityByType.entrySet()) {
+                CylinderType type = entry.getKey();
+                LpgCylinderEntity cylinder = lpgCylinderRepository
+                        .findAvailableCylinderByTypeAndWeight(type, type.getCapacity())
+                        .orElseThrow(() -> new LpgException("LP-102", "No available stock for " + type + " cylinder."));
+
+                if (!stockReservation.reserve(type, type.getCapacity(), entry.getValue())) {
+                    throw new LpgException("LP-103", "Insufficient stock available for " + type + " cylinders.");
+                }
+                priceByType.put(type, cylinder.getPrice());
+            }
+
+            List<OrderEntity> orders = requests.stream()
+                    .map(request -> OrderEntity.createOrder(request.toOrderRequest(), usersByName.get(request.username()),
+                            priceByType.get(request.cylinderType()) * request.quantity()))
+                    .toList();
+            orders.forEach(slotScheduler::book);
+            orderRepository.insertAll(orders);
+            orderOutbox.append(orders.stream().map(order -> OrderEvent.of(OrderEventType.ORDER_CREATED, order)).toList());
+
+            logger.info("Bulk order of {} orders placed by {}", orders.size(), currentUser.getUsername());
+            return orders.size();
+
+        } catch (LpgException e) {
+            logger.error("Business error occurred while placing bulk order: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unexpected error occurred while placing bulk order", e);
+            throw new ParentException("LP-999", "An unexpected error occurred. Please contact support.");
+        }
+    }
+
+
+    /**
+     * Returns the delivery shift an order of the current customer would be booked into now.
+     */
+    public DeliverySlot getNextDeliverySlot() {
+        try {
+            UserEntity user = userRepository.findById(AuthUtils.getCurrentPrincipal().getUserId())
+                    .orElseThrow(() -> new LpgException("LP-101", "User not found"));
+            DeliverySlot slot = slotScheduler.nextAvailable(user);
+            if (slot == null) {
+                throw new LpgException("LP-414", "No delivery slot available at the moment.");
+            }
+            return slot;
+        } catch (LpgException ex) {
+            logger.error("Business error occurred while getting the next delivery slot: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Unexpected error occurred while getting the next delivery slot", ex);
+            throw new ParentException("LP-999", "An unexpected error occurred. Please contact support.");
+        }
+    }
+
+
     public OrderDetails getOrderDetails(String username, String phoneNumber) {
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
+            AuthenticatedUser user = AuthUtils.getCurrentPrincipal();
 
             return switch (user.getRole()) {
                 case CUSTOMER -> {
                     if (username != null && !user.getUsername().equals(username)) {
                         throw new LpgException("LP-404", "Unauthorized: Customers can only view their own orders.");
                     }
-                    if (phoneNumber != null && !user.getPhoneNumber().equals(phoneNumber)) {
+                    if (phoneNumber != null && !phoneNumber.equals(currentPhoneNumber(user))) {
                         throw new LpgException("LP-404", "Unauthorized: Customers can only view their own orders.");
                     }
 
-                    List<OrderEntity> orders = orderRepository.findByUsername(user.getUsername());
-                    yield OrderEntity.toOrderDetails(orders, false);
+                    List<Order> orders = orderRepository.findOrderViewsByUserId(user.getUserId());
+                    if (orders.isEmpty()) {
+                        throw new LpgException("LP-404", "No orders found");
+                    }
+                    yield new OrderDetails(null, orders);
                 }
                 case ADMIN -> {
                     if (username == null || phoneNumber == null) {
                         throw new LpgException("LP-402", "Admin must provide username and phone number.");
                     }
-                    List<OrderEntity> orders = orderRepository.findByUsernameAndPhoneNumber(username, phoneNumber);
-                    yield OrderEntity.toOrderDetails(orders, true);
+                    List<OrderReportRow> rows = orderRepository.findOrderRowsByUsernameAndPhoneNumber(username, phoneNumber);
+                    if (rows.isEmpty()) {
+                        throw new LpgException("LP-404", "No orders found");
+                    }
+                    yield OrderReportRow.groupByUser(rows).get(0);
                 }
                 default -> throw new LpgException("LP-403", "Unauthorized access.");
             };
@@ -153,10 +278,16 @@ public class OrderService {
 
 
 
+    private String currentPhoneNumber(AuthenticatedUser user) {
+        return userRepository.findById(user.getUserId())
+                .map(UserEntity::getPhoneNumber)
+                .orElseThrow(() -> new LpgException("LP-101", "User not found"));
+    }
+
     public List<OrderDetails> getAllOrdersByDateRange(LocalDate startDate, LocalDate endDate) {
 
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
+            AuthenticatedUser user = AuthUtils.getCurrentPrincipal();
 
             LocalDateTime startDateTime = startDate.atStartOfDay();
             LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
@@ -165,18 +296,8 @@ public class OrderService {
                 throw new LpgException("LP-403", "Unauthorized access");
             }
 
-            List<OrderEntity> orders = orderRepository.findByOrderDateBetween(startDateTime, endDateTime);
-
             // Group orders by user and map to OrderDetails
-            return orders.stream()
-                    .collect(Collectors.groupingBy(OrderEntity::getUser))
-                    .entrySet()
-                    .stream()
-                    .map(entry -> new OrderDetails(
-                            new UserInfo(entry.getKey().getUsername(), entry.getKey().getEmail(), entry.getKey().getPhoneNumber(), entry.getKey().getAddress()),
-                            entry.getValue().stream().map(OrderEntity::mapToOrder).toList()
-                    ))
-                    .toList();
+            return OrderReportRow.groupByUser(orderRepository.findOrderRowsByOrderDateBetween(startDateTime, endDateTime));
         } catch (LpgException ex) {
             logger.error("Business error occurred while getting orders by date range: {}", ex.getMessage());
             throw ex;
@@ -191,11 +312,12 @@ public class OrderService {
     public void modifyOrder(Long orderId, ModifyOrderRequest request) {
 
         try {
-            UserEntity user = AuthUtils.getCurrentUser(userRepository);
+            UserEntity user = AuthUtils.getCurrentUserReference(userRepository);
 
             validateCylinderTypeAndCapacity(request.cylinderType(), request.capacity());
             validateQuantity(request.quantity());
-            OrderEntity order = orderRepository.findByIdAndUser(orderId, user)
+            OrderEntity order = orderRepository.lockById(orderId)
+                    .filter(found -> found.getUser().getUserId().equals(user.getUserId()))
                     .orElseThrow(() -> new LpgException("LP-404", "Order not found or unauthorized"));
 
             if(order.getStatus() != OrderStatus.PENDING) {
@@ -206,21 +328,11 @@ public class OrderService {
                             request.cylinderType(), request.capacity())
                     .orElseThrow(() -> new LpgException("LP-406", "No available stock for the selected cylinder type and capacity."));
 
-            if (newCylinder.getStockQuantity() < request.quantity()) {
-                throw new LpgException("LP-407", "Not enough stock available for the selected cylinder.");
-            }
-
             if (ChronoUnit.HOURS.between(order.getOrderDate(), LocalDateTime.now()) > 24) {
                 throw new LpgException("LP-405", "Modification period expired. Orders can only be modified within 24 hours.");
             }
 
-            LpgCylinderEntity oldCylinder = lpgCylinderRepository.findByTypeAndWeight(order.getCylinderType(), order.getCapacity())
-                    .orElseThrow(() -> new LpgException("LP-408", "Original cylinder record not found"));
-
-            oldCylinder.setStockQuantity(oldCylinder.getStockQuantity() + order.getQuantity());
-            newCylinder.setStockQuantity(newCylinder.getStockQuantity() - request.quantity());
-            lpgCylinderRepository.save(oldCylinder);
-            lpgCylinderRepository.save(newCylinder);
+            moveStock(order, request);
 
 
             order.setCylinderType(request.cylinderType());
@@ -230,7 +342,8 @@ public class OrderService {
 
 
             orderRepository.save(order);
-            logger.info("Order modified successfully for user: {}", user.getUsername());
+            orderOutbox.append(OrderEvent.of(OrderEventType.ORDER_MODIFIED, order));
+            logger.info("Order modified successfully for user: {}", AuthUtils.getCurrentUsername());
         }catch (LpgException ex){
             logger.error("Business error occurred while modifying order: {}", ex.getMessage());
             throw ex;
@@ -242,23 +355,75 @@ public class OrderService {
     }
 
 
+    /**
+     * Moves the order's stock to the modified cylinder. Within the same cylinder only the difference is taken or
+     * given back, so only the difference needs to be in stock. Between two cylinders both rows are updated in the
+     * order of their type and weight, whichever way the order goes, so two orders swapped in opposite directions
+     * cannot deadlock on them. A failed reservation rolls everything back.
+     */
+    private void moveStock(OrderEntity order, ModifyOrderRequest request) {
+        CylinderType oldType = order.getCylinderType();
+        Double oldCapacity = order.getCapacity();
+        int ordering = oldType != request.cylinderType() ? oldType.compareTo(request.cylinderType())
+                : Double.compare(oldCapacity, request.capacity());
+        if (ordering == 0) {
+            int difference = request.quantity() - order.getQuantity();
+            if (difference > 0) {
+                reserveForModification(request.cylinderType(), request.capacity(), difference);
+            } else if (difference < 0) {
+                releaseForModification(oldType, oldCapacity, -difference);
+            }
+        } else if (ordering < 0) {
+            releaseForModification(oldType, oldCapacity, order.getQuantity());
+            reserveForModification(request.cylinderType(), request.capacity(), request.quantity());
+        } else {
+            reserveForModification(request.cylinderType(), request.capacity(), request.quantity());
+            releaseForModification(oldType, oldCapacity, order.getQuantity());
+        }
+    }
+
+    private void reserveForModification(CylinderType type, Double capacity, int quantity) {
+        if (!stockReservation.reserve(type, capacity, quantity)) {
+            throw new LpgException("LP-407", "Not enough stock available for the selected cylinder.");
+        }
+    }
+
+    private void releaseForModification(CylinderType type, Double capacity, int quantity) {
+        if (!stockReservation.release(type, capacity, quantity)) {
+            throw new LpgException("LP-408", "Original cylinder record not found");
+        }
+    }
+
     @Transactional
     public void cancelOrder(final Long orderId) {
 
         try {
-            OrderEntity orderEntity = orderRepository.findById(orderId)
+            OrderEntity orderEntity = orderRepository.lockById(orderId)
                     .orElseThrow(() -> new LpgException("LP-404", "Order not found."));
 
             if (orderEntity.getCreatedAt().isBefore(LocalDateTime.now().minusHours(24))) {
                 throw new LpgException("LP-405", "Orders can only be cancelled within 24 hours of placing.");
             }
 
-            UserEntity loggedInUser = AuthUtils.getCurrentUser(userRepository);
+            AuthenticatedUser loggedInUser = AuthUtils.getCurrentPrincipal();
 
-            if (!loggedInUser.getRole().name().equals("ADMIN") && !orderEntity.getUser().equals(loggedInUser)) {
+            if (loggedInUser.getRole() != Role.ADMIN && !orderEntity.getUser().getUserId().equals(loggedInUser.getUserId())) {
                 throw new LpgException("LP-407", "You do not have permission to cancel this order.");
             }
 
+            if (orderEntity.getStatus() == OrderStatus.PENDING || orderEntity.getStatus() == OrderStatus.IN_TRANSIT) {
+                stockReservation.release(orderEntity.getCylinderType(), orderEntity.getCapacity(), orderEntity.getQuantity());
+                slotScheduler.releaseAfterCommit(orderEntity);
+            }
+
+            String courier = null;
+            if (orderEntity.getDelivery() != null) {
+                UserEntity deliveryPerson = orderEntity.getDelivery().getDeliveryPerson();
+                worklistCache.invalidate(deliveryPerson.getUserId());
+                courier = deliveryPerson.getUsername();
+            }
+            orderEntity.setStatus(OrderStatus.CANCELLED);
+            orderOutbox.append(OrderEvent.of(OrderEventType.ORDER_CANCELLED, orderEntity, courier));
             orderRepository.deleteById(orderId);
 
         }catch (LpgException ex){
@@ -0,0 +1,176 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.geo.DispatchGeoIndex;
+import com.pbg.lpg_delivery.geo.GeoPoint;
+import com.pbg.lpg_delivery.geo.RoutePlanner;
+import com.pbg.lpg_delivery.model.responses.RouteStop;
+import com.pbg.lpg_delivery.model.responses.WorklistRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sequences the stops of each delivery person's route.
+ * <p>
+ * A stop is a customer with orders in transit; stops are ordered by {@link RoutePlanner} starting from the
+ * courier's last reported position. The plan of each courier is kept, so the route does not reshuffle on every
+ * refresh: delivered stops just drop out of it, and it is planned again only when a stop is added. The morning
+ * batch ({@code lpg.routes.morning-batch-cron}) plans every courier's route at once on a fork/join pool of
+ * {@code lpg.routes.parallelism} threads, before the rounds start. Customers without a known location are
+ * listed after the planned stops, oldest order first.
+ */
+@Service
+public class RoutePlanningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutePlanningService.class);
+
+    private static final String SELECT_ROUTE_STOPS = "SELECT d.delivery_person_id, c.latitude, c.longitude, o.user_id, " +
+            "u.latitude, u.longitude FROM deliveries d JOIN orders o ON o.order_id = d.order_id " +
+            "JOIN users u ON u.user_id = o.user_id JOIN users c ON c.user_id = d.delivery_person_id " +
+            "WHERE o.status = 'IN_TRANSIT' AND u.latitude IS NOT NULL AND u.longitude IS NOT NULL " +
+            "ORDER BY d.delivery_person_id, o.order_date, o.order_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DispatchGeoIndex geoIndex;
+    private final RoutePlanner routePlanner;
+    private final ForkJoinPool planningPool;
+    private final Map<Long, List<Long>> plannedStops = new ConcurrentHashMap<>();
+
+    public RoutePlanningService(JdbcTemplate jdbcTemplate, DispatchGeoIndex geoIndex,
+                                @Value("${lpg.routes.two-opt-max-passes:50}") int maxPasses,
+                                @Value("${lpg.routes.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.geoIndex = geoIndex;
+        this.routePlanner = new RoutePlanner(maxPasses);
+        this.planningPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Groups the courier's orders into stops, one per customer, in route order.
+     */
+    public List<RouteStop> sequenceStops(Long courierId, List<WorklistRow> rows) {
+        Map<Long, List<WorklistRow>> rowsByCustomer = new LinkedHashMap<>();
+        for (WorklistRow row : rows) {
+            rowsByCustomer.computeIfAbsent(row.userId(), userId -> new ArrayList<>()).add(row);
+        }
+
+        List<Long> located = new ArrayList<>();
+        List<Long> unlocated = new ArrayList<>();
+        rowsByCustomer.forEach((userId, customerRows) ->
+                (locationOf(customerRows.get(0)) != null ? located : unlocated).add(userId));
+
+        GeoPoint start = geoIndex.locationOfCourier(courierId);
+        List<Long> sequence = new ArrayList<>(planFor(courierId, start, located, rowsByCustomer));
+        sequence.addAll(unlocated);
+
+        List<RouteStop> stops = new ArrayList<>(sequence.size());
+        GeoPoint previous = start;
+        for (Long userId : sequence) {
+            List<WorklistRow> customerRows = rowsByCustomer.get(userId);
+            GeoPoint location = locationOf(customerRows.get(0));
+            Double distanceKm = previous != null && location != null
+                    ? Math.round(previous.distanceKm(location) * 1000) / 1000.0 : null;
+            stops.add(new RouteStop(stops.size() + 1, customerRows.get(0).toUserInfo(),
+                    customerRows.stream().map(WorklistRow::toOrder).toList(),
+                    location == null ? null : location.latitude(), location == null ? null : location.longitude(),
+                    distanceKm));
+            if (location != null) {
+                previous = location;
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * Plans the routes of all couriers with orders in transit, in parallel, replacing the kept plans.
+     */
+    @Scheduled(cron = "${lpg.routes.morning-batch-cron:0 0 6 * * *}")
+    public void planMorningBatch() {
+        try {
+            long startedAt = System.nanoTime();
+            Map<Long, GeoPoint> starts = new LinkedHashMap<>();
+            Map<Long, Map<Long, GeoPoint>> stopsByCourier = new LinkedHashMap<>();
+            jdbcTemplate.query(SELECT_ROUTE_STOPS, rs -> {
+                long courierId = rs.getLong(1);
+                double courierLatitude = rs.getDouble(2);
+                boolean courierLocated = !rs.wasNull();
+                double courierLongitude = rs.getDouble(3);
+                courierLocated &= !rs.wasNull();
+                GeoPoint reported = geoIndex.locationOfCourier(courierId);
+                starts.putIfAbsent(courierId, reported != null ? reported
+                        : courierLocated ? new GeoPoint(courierLatitude, courierLongitude) : null);
+                stopsByCourier.computeIfAbsent(courierId, id -> new LinkedHashMap<>())
+                        .putIfAbsent(rs.getLong(4), new GeoPoint(rs.getDouble(5), rs.getDouble(6)));
+            });
+
+            List<Long> courierIds = new ArrayList<>(stopsByCourier.keySet());
+            List<RoutePlanner.RouteProblem> problems = new ArrayList<>(courierIds.size());
+            for (Long courierId : courierIds) {
+                problems.add(new RoutePlanner.RouteProblem(starts.get(courierId),
+                        List.copyOf(stopsByCourier.get(courierId).values())));
+            }
+            List<int[]> plans = routePlanner.planAll(problems, planningPool);
+
+            plannedStops.clear();
+            for (int i = 0; i < courierIds.size(); i++) {
+                List<Long> customers = List.copyOf(stopsByCourier.get(courierIds.get(i)).keySet());
+                plannedStops.put(courierIds.get(i), inOrder(customers, plans.get(i)));
+            }
+            logger.info("Planned the routes of {} courier(s) in {} ms", courierIds.size(),
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to plan the morning routes, they will be planned on demand: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        planningPool.shutdownNow();
+    }
+
+    /**
+     * Returns the kept plan when it still covers every stop, minus the delivered ones; plans again otherwise.
+     */
+    private List<Long> planFor(Long courierId, GeoPoint start, List<Long> located,
+                               Map<Long, List<WorklistRow>> rowsByCustomer) {
+        if (located.isEmpty()) {
+            plannedStops.remove(courierId);
+            return List.of();
+        }
+        List<Long> kept = plannedStops.get(courierId);
+        if (kept != null && new HashSet<>(kept).containsAll(located)) {
+            Set<Long> current = new HashSet<>(located);
+            return kept.stream().filter(current::contains).toList();
+        }
+
+        List<GeoPoint> points = located.stream().map(userId -> locationOf(rowsByCustomer.get(userId).get(0))).toList();
+        List<Long> planned = inOrder(located, routePlanner.plan(start, points));
+        plannedStops.put(courierId, planned);
+        return planned;
+    }
+
+    private static List<Long> inOrder(List<Long> customers, int[] order) {
+        List<Long> sequence = new ArrayList<>(order.length);
+        for (int index : order) {
+            sequence.add(customers.get(index));
+        }
+        return List.copyOf(sequence);
+    }
+
+    private static GeoPoint locationOf(WorklistRow row) {
+        return row.latitude() == null || row.longitude() == null ? null : new GeoPoint(row.latitude(), row.longitude());
+    }
+}
@@ -0,0 +1,196 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stock ledger, enabled with {@code lpg.inventory.mode=ledger}.
+ * <p>
+ * Every SKU (cylinder type and weight) gets its own pair of atomic counters, so orders reserve stock with a CAS
+ * instead of queueing on the {@code lpg_cylinders} row lock. The net change since the last flush is written back to
+ * the table every {@code lpg.inventory.ledger.flush-interval-ms} (relative updates, so admin restocks written
+ * directly to the table are never overwritten), and the ledger is reloaded from the table on startup.
+ * <p>
+ * Trade-offs: reservations made since the last flush are lost if the process dies, and the ledger assumes it is the
+ * only writer reserving stock, so it must only be used with a single application instance.
+ */
+@Service
+@ConditionalOnProperty(name = "lpg.inventory.mode", havingValue = "ledger")
+public class StockLedger implements StockReservation {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    private final LpgCylinderRepository lpgCylinderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Sku, SkuStock> stocks = new ConcurrentHashMap<>();
+
+    public StockLedger(LpgCylinderRepository lpgCylinderRepository, PlatformTransactionManager transactionManager) {
+        this.lpgCylinderRepository = lpgCylinderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Replaces the ledger content with the stock currently stored in {@code lpg_cylinders}.
+     * Deltas that were not flushed yet are discarded.
+     */
+    @PostConstruct
+    public void reload() {
+        stocks.clear();
+        for (LpgCylinderEntity cylinder : lpgCylinderRepository.findAll()) {
+            stocks.put(new Sku(cylinder.getType(), cylinder.getWeight()), new SkuStock(cylinder.getStockQuantity()));
+        }
+        logger.info("Stock ledger loaded with {} SKU(s)", stocks.size());
+    }
+
+    @Override
+    public boolean reserve(CylinderType type, Double weight, int quantity) {
+        SkuStock stock = stockFor(new Sku(type, weight));
+        if (stock == null || !stock.tryTake(quantity)) {
+            return false;
+        }
+        onRollback(() -> stock.put(quantity));
+        return true;
+    }
+
+    @Override
+    public boolean release(CylinderType type, Double weight, int quantity) {
+        SkuStock stock = stockFor(new Sku(type, weight));
+        if (stock == null) {
+            return false;
+        }
+        stock.put(quantity);
+        onRollback(() -> stock.forceTake(quantity));
+        return true;
+    }
+
+    @Override
+    public void restocked(CylinderType type, Double weight, int quantity) {
+        Sku sku = new Sku(type, weight);
+        SkuStock stock = stocks.get(sku);
+        if (stock == null) {
+            // first time we see this SKU: the row already contains the restocked quantity
+            stockFor(sku);
+            onRollback(() -> stocks.remove(sku));
+            return;
+        }
+        stock.available.addAndGet(quantity);
+        onRollback(() -> stock.available.addAndGet(-quantity));
+    }
+
+    /**
+     * Writes the net stock change of every SKU back to {@code lpg_cylinders} in one transaction.
+     * If the write fails the deltas are kept and retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${lpg.inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        Map<Sku, Integer> deltas = new HashMap<>();
+        stocks.forEach((sku, stock) -> {
+            int delta = stock.unflushed.getAndSet(0);
+            if (delta != 0) {
+                deltas.put(sku, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> deltas.forEach((sku, delta) ->
+                    lpgCylinderRepository.adjustStock(sku.type(), sku.weight(), delta)));
+            logger.debug("Flushed stock deltas {}", deltas);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to flush stock deltas {}, will retry: {}", deltas, ex.getMessage(), ex);
+            deltas.forEach((sku, delta) -> {
+                SkuStock stock = stocks.get(sku);
+                if (stock != null) {
+                    stock.unflushed.addAndGet(delta);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private SkuStock stockFor(Sku sku) {
+        SkuStock stock = stocks.get(sku);
+        if (stock != null) {
+            return stock;
+        }
+        // queried outside of computeIfAbsent, whose bin lock would pin a virtual thread for the whole query
+        return lpgCylinderRepository.findByTypeAndWeight(sku.type(), sku.weight())
+                .map(cylinder -> {
+                    SkuStock loaded = new SkuStock(cylinder.getStockQuantity());
+                    SkuStock existing = stocks.putIfAbsent(sku, loaded);
+                    return existing != null ? existing : loaded;
+                })
+                .orElse(null);
+    }
+
+    private static void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+
+    private record Sku(CylinderType type, Double weight) {
+    }
+
+    private static final class SkuStock {
+        private final AtomicInteger available;
+        private final AtomicInteger unflushed = new AtomicInteger();
+
+        private SkuStock(int available) {
+            this.available = new AtomicInteger(available);
+        }
+
+        private boolean tryTake(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            unflushed.addAndGet(-quantity);
+            return true;
+        }
+
+        private void forceTake(int quantity) {
+            available.addAndGet(-quantity);
+            unflushed.addAndGet(-quantity);
+        }
+
+        private void put(int quantity) {
+            available.addAndGet(quantity);
+            unflushed.addAndGet(quantity);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+
+/**
+ * Reserves and restores cylinder stock for orders.
+ * <p>
+ * The implementation is picked with the {@code lpg.inventory.mode} property: {@code database} (default) reserves
+ * straight against the {@code lpg_cylinders} row, {@code ledger} reserves against the in-memory {@link StockLedger}.
+ */
+public interface StockReservation {
+
+    /**
+     * Takes {@code quantity} cylinders out of stock.
+     *
+     * @return true if the stock was reserved, false if the cylinder does not exist or there is not enough stock
+     */
+    boolean reserve(CylinderType type, Double weight, int quantity);
+
+    /**
+     * Puts {@code quantity} previously reserved cylinders back into stock.
+     *
+     * @return true if the stock was restored, false if the cylinder does not exist
+     */
+    boolean release(CylinderType type, Double weight, int quantity);
+
+    /**
+     * Called after an admin restock has already been written to {@code lpg_cylinders}, so that any cached view of
+     * the stock can pick it up.
+     */
+    void restocked(CylinderType type, Double weight, int quantity);
+}
@@ -4,6 +4,7 @@ import com.pbg.lpg_delivery.exceptionHandler.LpgException;
 import com.pbg.lpg_delivery.exceptionHandler.UserUnauthorizedException;
 import com.pbg.lpg_delivery.model.entity.UserEntity;
 import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,10 +19,27 @@ public class AuthUtils {
         throw new UserUnauthorizedException("LP-401", "Unauthorized access");
     }
 
+    /**
+     * Returns the principal set by the JWT filter, which already knows the user id and role.
+     */
+    public static AuthenticatedUser getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new UserUnauthorizedException("LP-401", "Unauthorized access");
+    }
+
+    /**
+     * Returns a lazy reference to the current user, for setting associations without querying the users table.
+     */
+    public static UserEntity getCurrentUserReference(UserRepository userRepository) {
+        return userRepository.getReferenceById(getCurrentPrincipal().getUserId());
+    }
+
     public static UserEntity getCurrentUser(UserRepository userRepository) {
         String username = getCurrentUsername();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new LpgException("LP-101", "User not found"));
     }
 }
-
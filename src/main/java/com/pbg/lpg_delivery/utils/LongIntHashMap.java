@@ -0,0 +1,136 @@
+package com.pbg.lpg_delivery.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from {@code long} keys to {@code int} values, without boxing either of them.
+ * Meant for id lookups in tight loops; it is not thread safe and does not support removal.
+ */
+public final class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private final int missingValue;
+
+    /**
+     * @param expectedSize number of entries the map should hold without growing
+     * @param missingValue value returned by {@link #get} for absent keys
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.missingValue = missingValue;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private LongIntHashMap(LongIntHashMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.missingValue = other.missingValue;
+    }
+
+    /**
+     * Returns an independent copy of the map. A copy that is never written to once published (through a volatile
+     * field, for instance) can be read by any number of threads.
+     */
+    public LongIntHashMap copy() {
+        return new LongIntHashMap(this);
+    }
+
+    public int get(long key) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return missingValue;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            if (keys[slot] == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public void put(long key, int value) {
+        checkKey(key);
+        int slot = slotFor(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Adds {@code delta} to the value of the key, starting from 0 for an absent key, and returns the new value.
+     */
+    public int addTo(long key, int delta) {
+        checkKey(key);
+        int slot = slotFor(key);
+        if (keys[slot] != EMPTY) {
+            return values[slot] += delta;
+        }
+        put(key, delta);
+        return delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotFor(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Version of a delivery person's worklist, bumped with every assignment, delivery or cancellation of one of their
+-- orders. Every instance checks it before serving a cached worklist, so a change made on one instance is seen by all.
+
+ALTER TABLE `users` ADD COLUMN `worklist_version` bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- Bookings per zone and delivery shift, shared by every instance. A booking claims its shift with a conditional
+-- increment, so instances together never book more than the capacity. Customers without a position use the zone
+-- -9223372036854775808, as the primary key cannot hold null.
+
+CREATE TABLE `slot_counts` (
+  `delivery_zone` bigint NOT NULL,
+  `slot_start` datetime(6) NOT NULL,
+  `booked` int NOT NULL,
+  PRIMARY KEY (`delivery_zone`, `slot_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `slot_counts` (`delivery_zone`, `slot_start`, `booked`)
+SELECT COALESCE(`delivery_zone`, -9223372036854775808), `slot_start`, COUNT(*) FROM `orders`
+WHERE `slot_start` IS NOT NULL AND `status` <> 'CANCELLED'
+GROUP BY COALESCE(`delivery_zone`, -9223372036854775808), `slot_start`;
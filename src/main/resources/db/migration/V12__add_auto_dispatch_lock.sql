@@ -0,0 +1,4 @@
+-- Row locked by every auto dispatch run for its whole transaction, so runs on different instances never count the
+-- couriers' workloads at the same time.
+
+INSERT INTO `outbox_leases` (`name`, `owner`, `lease_until`) VALUES ('auto-dispatch', NULL, NULL);
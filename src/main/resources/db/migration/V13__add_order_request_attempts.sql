@@ -0,0 +1,4 @@
+-- Failed attempts at processing a queued order on its own. The intake rejects the order once it failed
+-- lpg.orders.intake.max-attempts times, so one bad request cannot hold the queue up.
+
+ALTER TABLE `order_requests` ADD COLUMN `attempts` int NOT NULL DEFAULT 0;
@@ -1,8 +1,7 @@
--- 1️⃣ Ensure the database exists
-CREATE DATABASE IF NOT EXISTS lpg_db;
-USE lpg_db;
+-- Baseline: the schema that used to be created by hand from sql/schema.sql.
+-- Databases created that way are baselined at this version and skip it (see FlywayConfig).
 
--- lpg_db.users definition
+-- users definition
 CREATE TABLE `users` (
   `user_id` bigint NOT NULL AUTO_INCREMENT,
   `address` varchar(255) DEFAULT NULL,
@@ -16,7 +15,7 @@ CREATE TABLE `users` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 
--- lpg_db.lpg_cylinders definition
+-- lpg_cylinders definition
 CREATE TABLE `lpg_cylinders` (
   `cylinder_id` bigint NOT NULL AUTO_INCREMENT,
   `price` double DEFAULT NULL,
@@ -27,7 +26,7 @@ CREATE TABLE `lpg_cylinders` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 
--- lpg_db.orders definition
+-- orders definition
 
 CREATE TABLE `orders` (
   `order_id` bigint NOT NULL AUTO_INCREMENT,
@@ -45,7 +44,7 @@ CREATE TABLE `orders` (
   CONSTRAINT `FK32ql8ubntj5uh44ph9659tiih` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
--- lpg_db.payments definition
+-- payments definition
 CREATE TABLE `payments` (
   `payment_id` bigint NOT NULL AUTO_INCREMENT,
   `amount` double DEFAULT NULL,
@@ -62,7 +61,7 @@ CREATE TABLE `payments` (
   CONSTRAINT `FKj94hgy9v5fw1munb90tar2eje` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
--- lpg_db.feedbacks definition
+-- feedbacks definition
 CREATE TABLE `feedbacks` (
   `feedback_id` bigint NOT NULL AUTO_INCREMENT,
   `comments` varchar(255) DEFAULT NULL,
@@ -78,7 +77,7 @@ CREATE TABLE `feedbacks` (
   CONSTRAINT `feedbacks_chk_1` CHECK (((`rating` <= 5) and (`rating` >= 1)))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
--- lpg_db.deliveries definition
+-- deliveries definition
 CREATE TABLE `deliveries` (
   `delivery_id` bigint NOT NULL AUTO_INCREMENT,
   `delivery_date` datetime(6) DEFAULT NULL,
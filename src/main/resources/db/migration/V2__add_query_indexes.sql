@@ -0,0 +1,17 @@
+-- Indexes for the columns the repositories filter and sort on.
+
+-- login, signup and the JWT filter look users up by username; admins also filter by phone number
+ALTER TABLE `users` ADD CONSTRAINT `uk_users_username` UNIQUE (`username`);
+CREATE INDEX `idx_users_phone_number` ON `users` (`phone_number`);
+
+-- a customer's orders, in order date order; also serves as the index of the user_id foreign key
+CREATE INDEX `idx_orders_user_order_date` ON `orders` (`user_id`, `order_date`, `order_id`);
+-- date range report and its keyset pagination on (order_date, order_id)
+CREATE INDEX `idx_orders_order_date` ON `orders` (`order_date`, `order_id`);
+CREATE INDEX `idx_orders_status` ON `orders` (`status`);
+
+-- a courier's deliveries by status
+CREATE INDEX `idx_deliveries_person_status` ON `deliveries` (`delivery_person_id`, `status`);
+
+-- stock lookups and the guarded stock updates
+CREATE INDEX `idx_lpg_cylinders_type_weight` ON `lpg_cylinders` (`type`, `weight`);
@@ -0,0 +1,22 @@
+-- Queue of orders accepted through the asynchronous intake, drained in batches by OrderIntakeService.
+
+CREATE TABLE `order_requests` (
+  `request_id` bigint NOT NULL AUTO_INCREMENT,
+  `tracking_id` varchar(36) NOT NULL,
+  `user_id` bigint NOT NULL,
+  `cylinder_type` enum('COMMERCIAL','DOMESTIC') NOT NULL,
+  `capacity` double NOT NULL,
+  `quantity` int NOT NULL,
+  `status` enum('QUEUED','ACCEPTED','REJECTED') NOT NULL,
+  `order_id` bigint DEFAULT NULL,
+  `error_code` varchar(32) DEFAULT NULL,
+  `error_message` varchar(255) DEFAULT NULL,
+  `created_at` datetime(6) NOT NULL,
+  `processed_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`request_id`),
+  CONSTRAINT `uk_order_requests_tracking_id` UNIQUE (`tracking_id`),
+  CONSTRAINT `fk_order_requests_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- the worker takes the oldest queued requests first
+CREATE INDEX `idx_order_requests_status` ON `order_requests` (`status`, `request_id`);
@@ -0,0 +1,27 @@
+-- Transactional outbox: order lifecycle events written in the same transaction as the state change and
+-- dispatched to listeners by OrderOutboxDispatcher.
+
+CREATE TABLE `order_events` (
+  `event_id` bigint NOT NULL AUTO_INCREMENT,
+  `order_id` bigint NOT NULL,
+  `event_type` varchar(32) NOT NULL,
+  `payload` varchar(2000) NOT NULL,
+  `created_at` datetime(6) NOT NULL,
+  `attempts` int NOT NULL DEFAULT 0,
+  `next_attempt_at` datetime(6) DEFAULT NULL,
+  `published_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`event_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- the dispatcher reads unpublished events in id order; the purge deletes old published ones
+CREATE INDEX `idx_order_events_published` ON `order_events` (`published_at`, `event_id`);
+
+-- one row per dispatcher: the instance holding the lease is the only one dispatching
+CREATE TABLE `outbox_leases` (
+  `name` varchar(64) NOT NULL,
+  `owner` varchar(64) DEFAULT NULL,
+  `lease_until` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `outbox_leases` (`name`, `owner`, `lease_until`) VALUES ('order-events', NULL, NULL);
@@ -0,0 +1,7 @@
+-- When an order was handed to its delivery person, used to enforce the daily capacity of each courier.
+-- Deliveries assigned before this migration keep a null assignment time.
+
+ALTER TABLE `deliveries` ADD COLUMN `assigned_at` datetime(6) DEFAULT NULL;
+
+-- the deliveries a courier got since the start of the day
+CREATE INDEX `idx_deliveries_person_assigned_at` ON `deliveries` (`delivery_person_id`, `assigned_at`);
@@ -0,0 +1,6 @@
+-- Position of customers (where their orders are delivered) and last reported position of delivery persons,
+-- in decimal degrees. Users registered before this migration have no position until they report one.
+
+ALTER TABLE `users` ADD COLUMN `latitude` double DEFAULT NULL;
+ALTER TABLE `users` ADD COLUMN `longitude` double DEFAULT NULL;
+ALTER TABLE `users` ADD COLUMN `location_updated_at` datetime(6) DEFAULT NULL;
@@ -0,0 +1,17 @@
+-- Downsampled GPS tracks of the delivery persons, written in batches by CourierTrackBuffer and purged after the
+-- retention period. Append-only history, so it has no foreign key slowing down the inserts.
+
+CREATE TABLE `courier_tracks` (
+  `track_id` bigint NOT NULL AUTO_INCREMENT,
+  `delivery_person_id` bigint NOT NULL,
+  `latitude` double NOT NULL,
+  `longitude` double NOT NULL,
+  `recorded_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`track_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- the track of a courier over a period
+CREATE INDEX `idx_courier_tracks_person_recorded_at` ON `courier_tracks` (`delivery_person_id`, `recorded_at`);
+
+-- the purge of old points
+CREATE INDEX `idx_courier_tracks_recorded_at` ON `courier_tracks` (`recorded_at`);
@@ -0,0 +1,9 @@
+-- Delivery shift an order is booked into and the zone whose capacity it uses. The zone is a grid cell of the
+-- customer's position, null for customers without a position. Orders placed before this migration have no shift.
+
+ALTER TABLE `orders` ADD COLUMN `slot_start` datetime(6) DEFAULT NULL;
+ALTER TABLE `orders` ADD COLUMN `slot_end` datetime(6) DEFAULT NULL;
+ALTER TABLE `orders` ADD COLUMN `delivery_zone` bigint DEFAULT NULL;
+
+-- the bookings of the coming shifts, counted at startup
+CREATE INDEX `idx_orders_slot_start` ON `orders` (`slot_start`, `delivery_zone`);
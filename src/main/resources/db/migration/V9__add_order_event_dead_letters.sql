@@ -0,0 +1,7 @@
+-- Events that kept failing are parked after lpg.outbox.max-attempts instead of blocking the later events of their
+-- order forever. They stay unpublished for inspection and can be replayed by clearing dead_at and attempts.
+
+ALTER TABLE `order_events` ADD COLUMN `dead_at` datetime(6) DEFAULT NULL;
+
+-- the dispatcher skips the events of an order while an earlier one waits for its retry
+CREATE INDEX `idx_order_events_order` ON `order_events` (`order_id`, `event_id`);
@@ -0,0 +1,19 @@
+package com.pbg.lpg_delivery;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+/**
+ * Gives back the delivery shifts booked by each test. Tests delete their orders without cancelling them, which
+ * would leave their shifts full in {@code slot_counts} for the tests sharing the database after them. Registered
+ * for every Spring test in {@code META-INF/spring.factories}.
+ */
+public class SlotCountsReset implements TestExecutionListener {
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        testContext.getApplicationContext().getBeanProvider(JdbcTemplate.class)
+                .ifAvailable(jdbcTemplate -> jdbcTemplate.update("DELETE FROM slot_counts"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.pbg.lpg_delivery;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.security.AuthenticatedUser;
+import com.pbg.lpg_delivery.service.OrderService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Users, stock and orders the integration tests set up through the application's own repositories and services.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * Saves a user whose email is derived from the username. The password is never checked by these tests.
+     */
+    public static UserEntity saveUser(UserRepository userRepository, String username, Role role) {
+        return userRepository.save(UserEntity.builder()
+                .username(username)
+                .password("not-used")
+                .email(username + "@example.com")
+                .phoneNumber("9876543210")
+                .address("12 Gas Street")
+                .role(role)
+                .build());
+    }
+
+    /**
+     * Authenticates the current thread as the user, the way the JWT filter does for a request.
+     */
+    public static void signIn(UserEntity user) {
+        AuthenticatedUser principal = AuthenticatedUser.fromEntity(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    /**
+     * Saves a cylinder of the type's standard weight.
+     */
+    public static void saveCylinder(LpgCylinderRepository lpgCylinderRepository, CylinderType type, double price,
+                                    int stock) {
+        lpgCylinderRepository.save(LpgCylinderEntity.builder()
+                .type(type)
+                .weight(type.getCapacity())
+                .price(price)
+                .stockQuantity(stock)
+                .build());
+    }
+
+    public static int stockOf(LpgCylinderRepository lpgCylinderRepository, CylinderType type) {
+        return lpgCylinderRepository.findByTypeAndWeight(type, type.getCapacity()).orElseThrow().getStockQuantity();
+    }
+
+    /**
+     * Places an order of domestic cylinders as the customer and signs out again. The customer must not be placing
+     * other orders at the same time.
+     *
+     * @return the id of the new order
+     */
+    public static Long placeOrder(OrderService orderService, JdbcTemplate jdbcTemplate, UserEntity customer,
+                                  int quantity) {
+        signIn(customer);
+        try {
+            orderService.createOrder(new OrderRequest(CylinderType.DOMESTIC, CylinderType.DOMESTIC.getCapacity(),
+                    quantity));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return jdbcTemplate.queryForObject("SELECT MAX(order_id) FROM orders WHERE user_id = ?", Long.class,
+                customer.getUserId());
+    }
+}
@@ -0,0 +1,93 @@
+package com.pbg.lpg_delivery.config;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.service.DeliveryService;
+import com.pbg.lpg_delivery.service.OperationalMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The Prometheus endpoint is served without authentication on the management port only, and exposes the service
+ * timers, error counters, operational gauges and the Hikari and Hibernate meters.
+ * Metrics export is off by default in tests, hence {@code @AutoConfigureObservability}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+    private static final double METRICS_WEIGHT = 33.3;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int serverPort;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private OperationalMetrics operationalMetrics;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @AfterEach
+    void cleanUp() {
+        lpgCylinderRepository.findByTypeAndWeight(CylinderType.COMMERCIAL, METRICS_WEIGHT)
+                .ifPresent(lpgCylinderRepository::delete);
+    }
+
+    @Test
+    void prometheusEndpointIsOpenOnTheManagementPort() throws Exception {
+        assertThatThrownBy(() -> deliveryService.assignOrderToDelivery(-1L, "nobody"))
+                .isInstanceOf(LpgException.class);
+        lpgCylinderRepository.save(LpgCylinderEntity.builder()
+                .type(CylinderType.COMMERCIAL)
+                .weight(METRICS_WEIGHT)
+                .price(900.0)
+                .stockQuantity(42)
+                .build());
+        operationalMetrics.refresh();
+
+        HttpResponse<String> response = get(managementPort);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body())
+                .contains("lpg_service_operation_seconds_count{operation=\"assignOrderToDelivery\",outcome=\"business_error\",service=\"DeliveryService\"}")
+                .contains("lpg_service_errors_total{error_code=\"ST-1003\",operation=\"assignOrderToDelivery\",outcome=\"business_error\",service=\"DeliveryService\"} 1.0")
+                .contains("lpg_inventory_stock_cylinders{type=\"COMMERCIAL\",weight=\"33.3\"} 42.0")
+                .contains("hikaricp_connections_active")
+                .contains("hibernate_sessions_open_total");
+    }
+
+    @Test
+    void prometheusEndpointIsNotReachableOnTheApplicationPort() throws Exception {
+        assertThat(get(serverPort).statusCode()).isIn(401, 403);
+    }
+
+    private HttpResponse<String> get(int port) throws IOException, InterruptedException {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,57 @@
+package com.pbg.lpg_delivery.config;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * With {@code spring.threads.virtual.enabled} the servlet container, the async executor used for streamed responses
+ * and the scheduler all run their work on virtual threads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadModeTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Test
+    void requestThreadsAreVirtual() throws Exception {
+        Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+        Executor executor = connector.getProtocolHandler().getExecutor();
+
+        assertThat(runsOnVirtualThread(executor)).isTrue();
+    }
+
+    @Test
+    void asyncExecutorAndSchedulerAreVirtual() throws Exception {
+        assertThat(runsOnVirtualThread(applicationTaskExecutor)).isTrue();
+        assertThat(runsOnVirtualThread(task -> taskScheduler.schedule(task, Instant.now()))).isTrue();
+    }
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,212 @@
+package com.pbg.lpg_delivery.geo;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.request.GpsPing;
+import com.pbg.lpg_delivery.model.request.GpsPingBatch;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.service.DeliveryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The flusher is driven by hand. Positions move north, where 0.0001 degree of latitude is about 11 metres.
+ */
+@SpringBootTest(properties = {
+        "lpg.tracks.flush-interval-ms=3600000",
+        "lpg.tracks.ring-size=8",
+        "lpg.tracks.min-interval-ms=10000",
+        "lpg.tracks.min-distance-m=25",
+        "lpg.tracks.purge-batch-size=3"
+})
+class CourierTrackBufferTest {
+
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0).minusHours(1);
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private CourierTrackBuffer trackBuffer;
+
+    @Autowired
+    private DispatchGeoIndex geoIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserEntity courier;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        courier = saveUser(userRepository, "tracked_courier", Role.DELIVERY_PERSON);
+        signIn(courier);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        trackBuffer.flush();
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM courier_tracks");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void slowMovementIsDownsampledByTime() {
+        // one fix per second at about 1 m/s for 8 seconds, then one 20 seconds later
+        List<GpsPing> pings = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            pings.add(ping(i * 0.00001, i));
+        }
+        assertThat(deliveryService.recordPings(new GpsPingBatch(pings))).isEqualTo(8);
+        trackBuffer.flush();
+        assertThat(deliveryService.recordPings(new GpsPingBatch(List.of(ping(0.0001, 28))))).isEqualTo(1);
+        trackBuffer.flush();
+
+        assertThat(trackSeconds()).containsExactly(0L, 28L);
+    }
+
+    @Test
+    void fastMovementIsDownsampledByDistance() {
+        // 0.0001 degree (11 m) per second: every third fix is at least 25 m from the last kept one
+        List<GpsPing> pings = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            pings.add(ping(i * 0.0001, i));
+        }
+        deliveryService.recordPings(new GpsPingBatch(pings));
+        trackBuffer.flush();
+
+        assertThat(trackSeconds()).containsExactly(0L, 3L, 6L);
+    }
+
+    @Test
+    void resentAndStalePingsAreIgnored() {
+        GpsPingBatch batch = new GpsPingBatch(List.of(ping(0, 10), ping(0.001, 20)));
+        assertThat(deliveryService.recordPings(batch)).isEqualTo(2);
+        assertThat(deliveryService.recordPings(batch)).isZero();
+        assertThat(deliveryService.recordPings(new GpsPingBatch(List.of(ping(0.002, 15), ping(0.003, 30)))))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void fullRingKeepsTheNewestPings() {
+        // 20 fixes 1 km apart between two flushes, the ring holds 8
+        List<GpsPing> pings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            pings.add(ping(i * 0.01, i));
+        }
+        deliveryService.recordPings(new GpsPingBatch(pings));
+        trackBuffer.flush();
+
+        assertThat(trackSeconds()).containsExactly(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L);
+    }
+
+    @Test
+    void latestPositionIsServedFromMemoryAndStoredOnFlush() {
+        deliveryService.recordPings(new GpsPingBatch(List.of(ping(0, 0), ping(0.01, 5))));
+
+        GeoPoint expected = new GeoPoint(28.6 + 0.01, 77.2);
+        assertThat(trackBuffer.latest(courier.getUserId()).position()).isEqualTo(expected);
+        assertThat(geoIndex.locationOfCourier(courier.getUserId())).isEqualTo(expected);
+        assertThat(userRepository.findById(courier.getUserId()).orElseThrow().getLatitude()).isNull();
+
+        trackBuffer.flush();
+        UserEntity stored = userRepository.findById(courier.getUserId()).orElseThrow();
+        assertThat(stored.getLatitude()).isEqualTo(expected.latitude());
+        assertThat(stored.getLocationUpdatedAt()).isEqualTo(START.plusSeconds(5));
+    }
+
+    @Test
+    void anOlderPositionDoesNotReplaceANewerOneStoredElsewhere() {
+        // another instance stored where the courier was a minute later
+        jdbcTemplate.update("UPDATE users SET latitude = ?, longitude = ?, location_updated_at = ? WHERE user_id = ?",
+                28.7, 77.3, START.plusSeconds(60), courier.getUserId());
+        deliveryService.recordPings(new GpsPingBatch(List.of(ping(0.01, 5))));
+        trackBuffer.flush();
+
+        UserEntity stored = userRepository.findById(courier.getUserId()).orElseThrow();
+        assertThat(stored.getLatitude()).isEqualTo(28.7);
+        assertThat(stored.getLocationUpdatedAt()).isEqualTo(START.plusSeconds(60));
+        assertThat(trackSeconds()).containsExactly(5L);
+    }
+
+    @Test
+    void couriersReportingForTheFirstTimeAreAllFound() {
+        // more than one batch of new couriers, so some are looked up in the index and some are not in it yet
+        List<UserEntity> couriers = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            couriers.add(saveUser(userRepository, "new_courier_" + i, Role.DELIVERY_PERSON));
+        }
+        for (UserEntity newCourier : couriers) {
+            trackBuffer.append(newCourier.getUserId(),
+                    List.of(new CourierTrackBuffer.Ping(new GeoPoint(28.6, 77.2), START)));
+        }
+        for (UserEntity newCourier : couriers) {
+            trackBuffer.append(newCourier.getUserId(),
+                    List.of(new CourierTrackBuffer.Ping(new GeoPoint(28.61, 77.2), START.plusSeconds(1))));
+        }
+
+        assertThat(couriers).allSatisfy(newCourier -> assertThat(trackBuffer.latest(newCourier.getUserId()).position())
+                .isEqualTo(new GeoPoint(28.61, 77.2)));
+        trackBuffer.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM courier_tracks", Integer.class)).isEqualTo(300);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE latitude = 28.61", Integer.class))
+                .isEqualTo(150);
+    }
+
+    @Test
+    void oldTrackPointsArePurgedInBatches() {
+        for (int i = 0; i < 8; i++) {
+            jdbcTemplate.update("INSERT INTO courier_tracks (delivery_person_id, latitude, longitude, recorded_at) " +
+                    "VALUES (?, 28.6, 77.2, ?)", courier.getUserId(), LocalDateTime.now().minusDays(40).plusSeconds(i));
+        }
+        deliveryService.recordPings(new GpsPingBatch(List.of(ping(0, 0))));
+        trackBuffer.flush();
+
+        trackBuffer.purge();
+        assertThat(trackSeconds()).containsExactly(0L);
+    }
+
+    @Test
+    void invalidBatchesAreRejected() {
+        assertThatThrownBy(() -> deliveryService.recordPings(new GpsPingBatch(List.of())))
+                .isInstanceOfSatisfying(LpgException.class, ex -> assertThat(ex.getErrorCode()).isEqualTo("ST-1013"));
+        assertThatThrownBy(() -> deliveryService.recordPings(new GpsPingBatch(Collections.nCopies(101, ping(0, 0)))))
+                .isInstanceOfSatisfying(LpgException.class, ex -> assertThat(ex.getErrorCode()).isEqualTo("ST-1013"));
+        assertThatThrownBy(() -> deliveryService.recordPings(new GpsPingBatch(List.of(new GpsPing(91.0, 0.0, START)))))
+                .isInstanceOfSatisfying(LpgException.class, ex -> assertThat(ex.getErrorCode()).isEqualTo("ST-1010"));
+        assertThat(trackBuffer.latest(courier.getUserId())).isNull();
+    }
+
+    private static GpsPing ping(double northOffset, int second) {
+        return new GpsPing(28.6 + northOffset, 77.2, START.plusSeconds(second));
+    }
+
+    private List<Long> trackSeconds() {
+        return jdbcTemplate.queryForList("SELECT recorded_at FROM courier_tracks WHERE delivery_person_id = ? " +
+                        "ORDER BY recorded_at", LocalDateTime.class, courier.getUserId()).stream()
+                .map(recordedAt -> Duration.between(START, recordedAt).toSeconds())
+                .toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.pbg.lpg_delivery.geo;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class GridIndexTest {
+
+    private static final GeoPoint CONNAUGHT_PLACE = new GeoPoint(28.6315, 77.2167);
+
+    @Test
+    void findsTheSameNeighboursAsABruteForceScan() {
+        Random random = new Random(42);
+        GridIndex index = new GridIndex(0.01);
+        Map<Long, GeoPoint> points = new HashMap<>();
+        for (long id = 1; id <= 5_000; id++) {
+            GeoPoint point = around(CONNAUGHT_PLACE, 0.3, random);
+            points.put(id, point);
+            index.put(id, point, 0);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            GeoPoint origin = around(CONNAUGHT_PLACE, 0.35, random);
+            List<Long> expected = points.entrySet().stream()
+                    .filter(entry -> origin.distanceKm(entry.getValue()) <= 25)
+                    .sorted(Comparator.comparingDouble(entry -> origin.distanceKm(entry.getValue())))
+                    .limit(7)
+                    .map(Map.Entry::getKey)
+                    .toList();
+
+            assertThat(index.nearest(origin, 7, 25, Long.MIN_VALUE))
+                    .extracting(GridIndex.Neighbour::id)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void followsMovesAndRemovals() {
+        GridIndex index = new GridIndex(0.01);
+        index.put(1, new GeoPoint(28.70, 77.10), 1_000);
+        index.put(2, new GeoPoint(28.50, 77.30), 1_000);
+
+        index.put(2, new GeoPoint(28.6316, 77.2168), 2_000);
+        // an update older than the indexed position is ignored
+        index.put(2, new GeoPoint(28.50, 77.30), 1_500);
+
+        assertThat(index.nearest(CONNAUGHT_PLACE, 1, 25, Long.MIN_VALUE))
+                .singleElement()
+                .satisfies(neighbour -> {
+                    assertThat(neighbour.id()).isEqualTo(2);
+                    assertThat(neighbour.distanceKm()).isCloseTo(0.0146, within(0.001));
+                });
+
+        assertThat(index.remove(2)).isTrue();
+        assertThat(index.nearest(CONNAUGHT_PLACE, 2, 25, Long.MIN_VALUE))
+                .extracting(GridIndex.Neighbour::id)
+                .containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesOutPointsTooFarOrNotUpdatedRecently() {
+        GridIndex index = new GridIndex(0.01);
+        index.put(1, new GeoPoint(28.6400, 77.2200), 1_000);
+        index.put(2, new GeoPoint(28.6500, 77.2300), 5_000);
+        index.put(3, new GeoPoint(19.0760, 72.8777), 5_000);
+
+        assertThat(index.nearest(CONNAUGHT_PLACE, 3, 25, 2_000))
+                .extracting(GridIndex.Neighbour::id)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void searchesAcrossTheAntimeridian() {
+        GridIndex index = new GridIndex(0.5);
+        index.put(1, new GeoPoint(-17.0, 179.9), 0);
+
+        assertThat(index.nearest(new GeoPoint(-17.0, -179.9), 1, 50, Long.MIN_VALUE))
+                .extracting(GridIndex.Neighbour::id)
+                .containsExactly(1L);
+    }
+
+    @Test
+    void rejectsInvalidCoordinates() {
+        assertThatThrownBy(() -> new GeoPoint(91, 0))
+                .isInstanceOf(LpgException.class)
+                .extracting("errorCode").isEqualTo("ST-1010");
+        assertThatThrownBy(() -> GeoPoint.ofNullable(28.6, null))
+                .isInstanceOf(LpgException.class);
+        assertThat(GeoPoint.ofNullable(null, null)).isNull();
+    }
+
+    private static GeoPoint around(GeoPoint center, double spreadDegrees, Random random) {
+        return new GeoPoint(center.latitude() + (random.nextDouble() * 2 - 1) * spreadDegrees,
+                center.longitude() + (random.nextDouble() * 2 - 1) * spreadDegrees);
+    }
+}
@@ -0,0 +1,84 @@
+package com.pbg.lpg_delivery.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutePlannerTest {
+
+    private static final GeoPoint DEPOT = new GeoPoint(28.6315, 77.2167);
+
+    private final RoutePlanner planner = new RoutePlanner(50);
+
+    @Test
+    void visitsStopsAlongAStreetInOrder() {
+        List<GeoPoint> stops = List.of(
+                new GeoPoint(28.6315, 77.2567),
+                new GeoPoint(28.6315, 77.2267),
+                new GeoPoint(28.6315, 77.2467),
+                new GeoPoint(28.6315, 77.2367));
+
+        assertThat(planner.plan(DEPOT, stops)).containsExactly(1, 3, 2, 0);
+    }
+
+    @Test
+    void neverDoesWorseThanTheNearestNeighbourTour() {
+        Random random = new Random(7);
+        RoutePlanner nearestNeighbourOnly = new RoutePlanner(0);
+        for (int route = 0; route < 50; route++) {
+            List<GeoPoint> stops = randomStops(40, random);
+
+            int[] order = planner.plan(DEPOT, stops);
+
+            assertThat(order).containsExactlyInAnyOrder(IntStream.range(0, 40).toArray());
+            assertThat(RoutePlanner.routeLengthKm(DEPOT, stops, order))
+                    .isLessThanOrEqualTo(RoutePlanner.routeLengthKm(DEPOT, stops, nearestNeighbourOnly.plan(DEPOT, stops)));
+        }
+    }
+
+    @Test
+    void startsAtTheFirstStopWithoutAKnownPosition() {
+        List<GeoPoint> stops = List.of(new GeoPoint(28.70, 77.10), new GeoPoint(28.50, 77.30), new GeoPoint(28.69, 77.11));
+
+        assertThat(planner.plan(null, stops)).containsExactly(0, 2, 1);
+        assertThat(planner.plan(DEPOT, List.of())).isEmpty();
+    }
+
+    @Test
+    void plansInParallelLikeOneByOne() {
+        Random random = new Random(11);
+        List<RoutePlanner.RouteProblem> problems = new ArrayList<>();
+        for (int courier = 0; courier < 100; courier++) {
+            problems.add(new RoutePlanner.RouteProblem(courier % 3 == 0 ? null : DEPOT, randomStops(1 + courier % 40, random)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<int[]> plans = planner.planAll(problems, pool);
+
+            assertThat(plans).hasSize(problems.size());
+            for (int i = 0; i < problems.size(); i++) {
+                int[] expected = planner.plan(problems.get(i).start(), problems.get(i).stops());
+                assertThat(Arrays.equals(plans.get(i), expected)).as("plan %d", i).isTrue();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<GeoPoint> randomStops(int count, Random random) {
+        List<GeoPoint> stops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stops.add(new GeoPoint(DEPOT.latitude() + (random.nextDouble() - 0.5) * 0.2,
+                    DEPOT.longitude() + (random.nextDouble() - 0.5) * 0.2));
+        }
+        return stops;
+    }
+}
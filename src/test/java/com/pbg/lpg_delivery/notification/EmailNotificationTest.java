@@ -0,0 +1,160 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.outbox.OrderOutboxDispatcher;
+import com.pbg.lpg_delivery.repository.DeliveryRepository;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.service.DeliveryService;
+import com.pbg.lpg_delivery.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+
+import static com.pbg.lpg_delivery.TestFixtures.placeOrder;
+import static com.pbg.lpg_delivery.TestFixtures.saveCylinder;
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Sends real emails to an in-process SMTP server. Like the outbox test it runs on its own database and drives the
+ * outbox dispatcher by hand.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lpg_notifications;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "lpg.outbox.poll-interval-ms=3600000",
+        "lpg.notifications.mail.coalesce-ms=200",
+        "lpg.notifications.mail.retry-backoff-ms=200",
+        "lpg.notifications.mail.max-attempts=5"
+})
+class EmailNotificationTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private OrderOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailNotifier emailNotifier;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserEntity customer;
+    private UserEntity courier;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        customer = saveUser(userRepository, "mail_customer", Role.CUSTOMER);
+        courier = saveUser(userRepository, "mail_courier", Role.DELIVERY_PERSON);
+        saveCylinder(lpgCylinderRepository, CylinderType.DOMESTIC, 550.0, 10);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("UPDATE outbox_leases SET owner = NULL, lease_until = NULL");
+        deliveryRepository.deleteAll();
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void mailsTheCustomerWhenTheOrderIsPlacedAndWhenItLeaves() throws Exception {
+        Long orderId = placeOrder(orderService, jdbcTemplate, customer, 2);
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        MimeMessage placed = greenMail.getReceivedMessages()[0];
+        assertThat(placed.getAllRecipients()[0].toString()).isEqualTo(customer.getEmail());
+        assertThat(placed.getSubject()).isEqualTo("Your LPG order #" + orderId + " is placed");
+        assertThat(GreenMailUtil.getBody(placed)).contains("mail_customer", "DOMESTIC", "1100.00");
+
+        deliveryService.assignOrderToDelivery(orderId, courier.getUsername());
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 2)).isTrue();
+        MimeMessage leaving = greenMail.getReceivedMessages()[1];
+        assertThat(leaving.getSubject()).isEqualTo("Your LPG order #" + orderId + " is out for delivery");
+        assertThat(GreenMailUtil.getBody(leaving)).contains("mail_courier");
+    }
+
+    @Test
+    void coalescesTheNotificationsOfOneCustomerIntoADigest() throws Exception {
+        Long first = placeOrder(orderService, jdbcTemplate, customer, 1);
+        Long second = placeOrder(orderService, jdbcTemplate, customer, 1);
+        Long third = placeOrder(orderService, jdbcTemplate, customer, 1);
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        await().atMost(Duration.ofSeconds(5)).until(() -> emailNotifier.queued() == 0);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        MimeMessage digest = greenMail.getReceivedMessages()[0];
+        assertThat(digest.getSubject()).isEqualTo("Updates on 3 of your LPG orders");
+        assertThat(GreenMailUtil.getBody(digest)).contains("#" + first, "#" + second, "#" + third);
+    }
+
+    @Test
+    void retriesUntilTheMailServerIsBack() throws Exception {
+        greenMail.stop();
+        placeOrder(orderService, jdbcTemplate, customer, 1);
+
+        // the outbox hands the event over and is done with it, whatever the mail server does
+        dispatcher.dispatch();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_events WHERE published_at IS NULL", Long.class))
+                .isZero();
+        assertThat(emailNotifier.queued()).isEqualTo(1);
+
+        double retriedBefore = meterRegistry.counter("lpg.notifications.retried").count();
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.counter("lpg.notifications.retried").count() > retriedBefore);
+        greenMail.start();
+
+        assertThat(greenMail.waitForIncomingEmail(10000, 1)).isTrue();
+        // the server has the message slightly before the send call returns
+        await().atMost(Duration.ofSeconds(5)).until(() -> emailNotifier.queued() == 0);
+    }
+}
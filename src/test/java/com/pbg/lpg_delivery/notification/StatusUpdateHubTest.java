@@ -0,0 +1,123 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Drives the hub with emitters standing in for clients that stop reading, which real sockets only show once their
+ * buffers are full.
+ */
+class StatusUpdateHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StatusUpdateHub hub;
+
+    @AfterEach
+    void shutdown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void aSlowStreamLosesItsOldestUpdatesFirst() throws Exception {
+        hub = hub(2, 60000);
+        StalledEmitter emitter = new StalledEmitter();
+        hub.subscribe(9101L, "slow_customer", emitter);
+
+        hub.onOrderEvent(event(1L, 9101L));
+        assertThat(emitter.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long eventId = 2; eventId <= 5; eventId++) {
+            hub.onOrderEvent(event(eventId, 9101L));
+        }
+        emitter.release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.sentIds.size() == 3);
+        assertThat(emitter.sentIds).containsExactly("1", "4", "5");
+        assertThat(meterRegistry.counter("lpg.streams.dropped").count()).isEqualTo(2);
+        assertThat(hub.openStreams()).isEqualTo(1);
+    }
+
+    @Test
+    void streamsThatCannotBeWrittenToAreReaped() throws Exception {
+        hub = hub(16, 50);
+        StalledEmitter emitter = new StalledEmitter();
+        hub.subscribe(9102L, "gone_customer", emitter);
+        hub.onOrderEvent(event(1L, 9102L));
+        assertThat(emitter.writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            hub.heartbeat();
+            return hub.openStreams() == 0;
+        });
+        assertThat(meterRegistry.counter("lpg.streams.reaped").count()).isEqualTo(1);
+
+        // nothing is sent to the stream once it is closed
+        emitter.release.countDown();
+        hub.onOrderEvent(event(2L, 9102L));
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.sentIds.size() == 1);
+        assertThat(emitter.sentIds).containsExactly("1");
+    }
+
+    private StatusUpdateHub hub(int bufferSize, long idleTimeoutMillis) {
+        return new StatusUpdateHub(null, meterRegistry, bufferSize, 100, 4, 60000, idleTimeoutMillis);
+    }
+
+    private static OrderEvent event(Long eventId, Long userId) {
+        return new OrderEvent(eventId, 7L, OrderEventType.ORDER_CREATED, OrderStatus.PENDING, userId,
+                CylinderType.DOMESTIC, 14.2, 1, 950.0, null, LocalDateTime.of(2024, 2, 1, 10, 15));
+    }
+
+    /**
+     * Records the ids of the updates sent to it. Sending an update blocks until {@link #release} is counted down, like
+     * a client that stopped reading; comments go through.
+     */
+    private static final class StalledEmitter extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> sentIds = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String text = builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(String.class::isInstance)
+                    .map(String.class::cast)
+                    .collect(Collectors.joining());
+            Matcher id = ID.matcher(text);
+            if (!id.find()) {
+                return;
+            }
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+            sentIds.add(id.group(1));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.pbg.lpg_delivery.notification;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.outbox.OrderEvent;
+import com.pbg.lpg_delivery.outbox.OrderEventType;
+import com.pbg.lpg_delivery.outbox.OrderOutbox;
+import com.pbg.lpg_delivery.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opens real streams on the embedded server and publishes events straight to the hub, so the outbox schedule does
+ * not matter. Heartbeats and reads of the new order events are triggered by hand.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "lpg.streams.heartbeat-ms=3600000",
+        "lpg.streams.poll-interval-ms=3600000",
+        "lpg.streams.max-per-user=2",
+        "management.server.port=0"
+})
+class StatusUpdateStreamTest {
+
+    private static final String END = "<end of stream>";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<EventStream> streams = new ArrayList<>();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StatusUpdateHub hub;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void closeStreams() throws Exception {
+        for (EventStream stream : streams) {
+            stream.close();
+        }
+        awaitOpenStreams(0);
+    }
+
+    @Test
+    void statusChangesReachTheCustomerAndTheCourier() throws Exception {
+        EventStream customer = open("stream_customer", 9001L, Role.CUSTOMER);
+        EventStream courier = open("stream_courier", 9002L, Role.DELIVERY_PERSON);
+        EventStream otherCustomer = open("stream_other", 9003L, Role.CUSTOMER);
+
+        hub.onOrderEvent(event(41L, OrderEventType.ORDER_ASSIGNED, OrderStatus.IN_TRANSIT, 9001L, "stream_courier"));
+
+        for (EventStream stream : List.of(customer, courier)) {
+            assertThat(stream.nextEvent()).containsExactly(
+                    "id:41",
+                    "event:ORDER_ASSIGNED",
+                    "data:{\"orderId\":7,\"type\":\"ORDER_ASSIGNED\",\"orderStatus\":\"IN_TRANSIT\"," +
+                            "\"deliveryStatus\":\"IN_TRANSIT\",\"courier\":\"stream_courier\"," +
+                            "\"occurredAt\":\"2024-02-01T10:15:00\"}");
+        }
+
+        hub.heartbeat();
+        assertThat(otherCustomer.nextEvent()).containsExactly(":heartbeat");
+    }
+
+    @Test
+    void eventsWrittenToTheOutboxReachTheStreamsWithoutTheDispatcher() throws Exception {
+        EventStream customer = open("stream_outbox", 9006L, Role.CUSTOMER);
+
+        transactionTemplate.executeWithoutResult(status -> orderOutbox.append(
+                event(42L, OrderEventType.ORDER_CREATED, OrderStatus.PENDING, 9006L, null)));
+        hub.pollEvents();
+
+        assertThat(customer.nextEvent()).contains("event:ORDER_CREATED");
+    }
+
+    @Test
+    void oldestStreamOfAUserIsClosedBeyondTheLimit() throws Exception {
+        EventStream first = open("stream_tabs", 9004L, Role.CUSTOMER);
+        open("stream_tabs", 9004L, Role.CUSTOMER);
+        open("stream_tabs", 9004L, Role.CUSTOMER);
+
+        assertThat(first.nextEvent()).containsExactly(END);
+        assertThat(hub.openStreams()).isEqualTo(2);
+    }
+
+    @Test
+    void disconnectedClientsAreRemoved() throws Exception {
+        EventStream stream = open("stream_gone", 9005L, Role.CUSTOMER);
+        assertThat(hub.openStreams()).isEqualTo(1);
+
+        stream.close();
+        awaitOpenStreams(0);
+        assertThat(hub.openStreams()).isZero();
+    }
+
+    /**
+     * A closed client is only noticed when a write to it fails, so heartbeats are sent until it is.
+     */
+    private void awaitOpenStreams(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hub.openStreams() > expected && System.nanoTime() < deadline) {
+            hub.heartbeat();
+            Thread.sleep(50);
+        }
+    }
+
+    private EventStream open(String username, Long userId, Role role) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/updates"))
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(username, userId, role))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(200);
+        EventStream stream = new EventStream(response.body());
+        streams.add(stream);
+        assertThat(stream.nextEvent()).containsExactly(":connected");
+        return stream;
+    }
+
+    private static OrderEvent event(Long eventId, OrderEventType type, OrderStatus status, Long userId, String courier) {
+        return new OrderEvent(eventId, 7L, type, status, userId, CylinderType.DOMESTIC, 14.2, 1, 950.0, courier,
+                LocalDateTime.of(2024, 2, 1, 10, 15));
+    }
+
+    /**
+     * Reads the lines of a stream on a virtual thread, so the test can wait for them with a timeout.
+     */
+    private static final class EventStream {
+
+        private final InputStream body;
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+        private EventStream(InputStream body) {
+            this.body = body;
+            Thread.ofVirtual().start(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        lines.add(line);
+                    }
+                } catch (IOException ex) {
+                    // closed by the test
+                }
+                lines.add(END);
+            });
+        }
+
+        /**
+         * Returns the lines of the next event, without the blank line ending it.
+         */
+        private List<String> nextEvent() throws InterruptedException {
+            List<String> event = new ArrayList<>();
+            while (true) {
+                String line = lines.poll(5, TimeUnit.SECONDS);
+                assertThat(line).as("line of the stream").isNotNull();
+                if (line.equals(END)) {
+                    event.add(line);
+                    return event;
+                }
+                if (line.isEmpty()) {
+                    if (!event.isEmpty()) {
+                        return event;
+                    }
+                    continue;
+                }
+                event.add(line);
+            }
+        }
+
+        private void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.pbg.lpg_delivery.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.repository.DeliveryRepository;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import com.pbg.lpg_delivery.service.DeliveryService;
+import com.pbg.lpg_delivery.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.pbg.lpg_delivery.TestFixtures.placeOrder;
+import static com.pbg.lpg_delivery.TestFixtures.saveCylinder;
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Runs on its own database so the dispatchers of other cached test contexts do not compete for the outbox, and
+ * drives the dispatcher by hand instead of waiting for the schedule.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lpg_outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "lpg.outbox.poll-interval-ms=3600000",
+        "lpg.outbox.retry-backoff-ms=0",
+        "lpg.outbox.batch-size=3",
+        "lpg.outbox.max-attempts=3"
+})
+class OrderOutboxTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private OrderOutboxDispatcher dispatcher;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserEntity customer;
+    private UserEntity courier;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        customer = saveUser(userRepository, "outbox_customer", Role.CUSTOMER);
+        courier = saveUser(userRepository, "outbox_courier", Role.DELIVERY_PERSON);
+        saveCylinder(lpgCylinderRepository, CylinderType.DOMESTIC, 550.0, 10);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        listener.reset();
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("UPDATE outbox_leases SET owner = NULL, lease_until = NULL");
+        deliveryRepository.deleteAll();
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void publishesTheLifecycleOfAnOrderInOrder() {
+        Long orderId = placeOrder(orderService, jdbcTemplate, customer, 2);
+        deliveryService.assignOrderToDelivery(orderId, courier.getUsername());
+        signIn(courier);
+        deliveryService.markAsDelivered(orderId);
+
+        dispatcher.dispatch();
+
+        assertThat(listener.events)
+                .extracting(OrderEvent::type)
+                .containsExactly(OrderEventType.ORDER_CREATED, OrderEventType.ORDER_ASSIGNED, OrderEventType.ORDER_DELIVERED);
+        assertThat(listener.events).allSatisfy(event -> {
+            assertThat(event.orderId()).isEqualTo(orderId);
+            assertThat(event.eventId()).isNotNull();
+            assertThat(event.userId()).isEqualTo(customer.getUserId());
+        });
+        assertThat(listener.events.get(1).status()).isEqualTo(OrderStatus.IN_TRANSIT);
+        assertThat(listener.events.get(2).courier()).isEqualTo(courier.getUsername());
+        assertThat(pendingEvents()).isZero();
+
+        dispatcher.dispatch();
+        assertThat(listener.events).hasSize(3);
+    }
+
+    @Test
+    void writesNothingWhenTheStateChangeRollsBack() {
+        signIn(customer);
+
+        assertThatThrownBy(() -> orderService.createOrder(new OrderRequest(CylinderType.DOMESTIC, 14.5, 50)))
+                .isInstanceOf(LpgException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_events", Long.class)).isZero();
+    }
+
+    @Test
+    void retriesAFailedEventBeforeTheLaterEventsOfItsOrder() {
+        Long failing = placeOrder(orderService, jdbcTemplate, customer, 1);
+        Long other = placeOrder(orderService, jdbcTemplate, customer, 1);
+        deliveryService.assignOrderToDelivery(failing, courier.getUsername());
+        listener.failOnce(failing);
+
+        dispatcher.dispatch();
+
+        // the retry waits for the next batch, while the other order goes through
+        assertThat(listener.events)
+                .extracting(OrderEvent::orderId, OrderEvent::type)
+                .containsExactly(
+                        tuple(other, OrderEventType.ORDER_CREATED),
+                        tuple(failing, OrderEventType.ORDER_CREATED),
+                        tuple(failing, OrderEventType.ORDER_ASSIGNED));
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(attempts) FROM order_events", Integer.class)).isEqualTo(1);
+        assertThat(pendingEvents()).isZero();
+    }
+
+    @Test
+    void onlyTheInstanceHoldingTheLeaseDispatches() {
+        placeOrder(orderService, jdbcTemplate, customer, 1);
+        jdbcTemplate.update("UPDATE outbox_leases SET owner = 'other-instance', lease_until = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)));
+
+        dispatcher.dispatch();
+        assertThat(listener.events).isEmpty();
+
+        jdbcTemplate.update("UPDATE outbox_leases SET lease_until = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+
+        dispatcher.dispatch();
+        assertThat(listener.events).hasSize(1);
+    }
+
+    @Test
+    void eventsWaitingForARetryAreNotReadAgainUntilDue() {
+        List<Long> waiting = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiting.add(placeOrder(orderService, jdbcTemplate, customer, 1));
+        }
+        deliveryService.assignOrderToDelivery(waiting.get(0), courier.getUsername());
+        Long due = placeOrder(orderService, jdbcTemplate, customer, 1);
+        // the created events of the first four orders are backing off, a full batch and more
+        jdbcTemplate.update("UPDATE order_events SET attempts = 1, next_attempt_at = ? WHERE event_type = 'ORDER_CREATED' " +
+                "AND order_id <> ?", Timestamp.valueOf(LocalDateTime.now().plusHours(1)), due);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> dispatcher.dispatch());
+
+        // the assignment of the first order waits behind its creation
+        assertThat(listener.events).extracting(OrderEvent::orderId).containsExactly(due);
+    }
+
+    @Test
+    void parksAnEventAsDeadLetterAfterTheMaximumAttempts() {
+        Long orderId = placeOrder(orderService, jdbcTemplate, customer, 1);
+        deliveryService.assignOrderToDelivery(orderId, courier.getUsername());
+        listener.failAlways(orderId, OrderEventType.ORDER_CREATED);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            dispatcher.dispatch();
+        }
+        assertThat(listener.events).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_events WHERE dead_at IS NOT NULL " +
+                "AND event_type = 'ORDER_CREATED' AND attempts = 3", Long.class)).isEqualTo(1);
+
+        // the rest of the order is no longer blocked
+        dispatcher.dispatch();
+        assertThat(listener.events).extracting(OrderEvent::type).containsExactly(OrderEventType.ORDER_ASSIGNED);
+    }
+
+    @Test
+    void eventsDeliveredAfterLosingTheLeaseAreNotMarkedAsPublished() {
+        Long orderId = placeOrder(orderService, jdbcTemplate, customer, 1);
+        listener.onEvent(() -> jdbcTemplate.update("UPDATE outbox_leases SET owner = 'other-instance', lease_until = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(1))));
+
+        dispatcher.dispatch();
+
+        // the new owner delivers the event again
+        assertThat(listener.events).extracting(OrderEvent::orderId).containsExactly(orderId);
+        assertThat(pendingEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void drainsTheBacklogInBatches() {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            orderIds.add(placeOrder(orderService, jdbcTemplate, customer, 1));
+        }
+
+        dispatcher.dispatch();
+
+        assertThat(listener.events).extracting(OrderEvent::orderId).containsExactlyElementsOf(orderIds);
+    }
+
+    @Test
+    void theTailReadsEventsCommittedAfterEventsWithHigherIds() throws Exception {
+        OrderEventTail tail = new OrderEventTail(jdbcTemplate, objectMapper, 100, 60000);
+        tail.start();
+        Long placed;
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            try (PreparedStatement insert = slow.prepareStatement("INSERT INTO order_events " +
+                    "(order_id, event_type, payload, created_at) VALUES (?, ?, ?, ?)")) {
+                OrderEvent event = new OrderEvent(null, 501L, OrderEventType.ORDER_CREATED, OrderStatus.PENDING,
+                        customer.getUserId(), CylinderType.DOMESTIC, 14.5, 1, 550.0, null, LocalDateTime.now());
+                insert.setLong(1, event.orderId());
+                insert.setString(2, event.type().name());
+                insert.setString(3, objectMapper.writeValueAsString(event));
+                insert.setTimestamp(4, Timestamp.valueOf(event.occurredAt()));
+                insert.executeUpdate();
+            }
+            placed = placeOrder(orderService, jdbcTemplate, customer, 1);
+
+            assertThat(tail.poll()).extracting(OrderEvent::orderId).containsExactly(placed);
+            slow.commit();
+        }
+
+        assertThat(tail.poll()).extracting(OrderEvent::orderId).containsExactly(501L);
+        assertThat(tail.poll()).isEmpty();
+    }
+
+    private long pendingEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_events WHERE published_at IS NULL", Long.class);
+    }
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements OrderEventListener {
+
+        final List<OrderEvent> events = new CopyOnWriteArrayList<>();
+        private final Set<Long> failOnce = new HashSet<>();
+        private final Set<String> failAlways = new HashSet<>();
+        private Runnable onEvent = () -> {
+        };
+
+        @Override
+        public synchronized void onOrderEvent(OrderEvent event) {
+            if (failOnce.remove(event.orderId()) || failAlways.contains(event.orderId() + ":" + event.type())) {
+                throw new IllegalStateException("listener unavailable");
+            }
+            events.add(event);
+            onEvent.run();
+        }
+
+        synchronized void failOnce(Long orderId) {
+            failOnce.add(orderId);
+        }
+
+        synchronized void failAlways(Long orderId, OrderEventType type) {
+            failAlways.add(orderId + ":" + type);
+        }
+
+        synchronized void onEvent(Runnable action) {
+            onEvent = action;
+        }
+
+        synchronized void reset() {
+            events.clear();
+            failOnce.clear();
+            failAlways.clear();
+            onEvent = () -> {
+            };
+        }
+    }
+}
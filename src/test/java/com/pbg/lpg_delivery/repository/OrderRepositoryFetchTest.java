@@ -0,0 +1,136 @@
+package com.pbg.lpg_delivery.repository;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.entity.DeliveryEntity;
+import com.pbg.lpg_delivery.model.entity.FeedbackEntity;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.request.FeedbackRequest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loading orders must not fan out into one select per delivery, payment and feedback: every list query below runs
+ * as a single statement for 1,000 orders.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class OrderRepositoryFetchTest {
+
+    private static final int ORDERS = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UserEntity customer;
+    private List<Long> orderIds;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        customer = saveUser(userRepository, "fetch_customer", Role.CUSTOMER);
+        UserEntity courier = saveUser(userRepository, "fetch_courier", Role.DELIVERY_PERSON);
+
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(OrderEntity.builder()
+                    .user(customer)
+                    .cylinderType(CylinderType.DOMESTIC)
+                    .capacity(CylinderType.DOMESTIC.getCapacity())
+                    .quantity(1)
+                    .totalPrice(550.0)
+                    .status(OrderStatus.IN_TRANSIT)
+                    .orderDate(LocalDateTime.now().minusMinutes(i))
+                    .build());
+        }
+        orderRepository.insertAll(orders);
+        orderIds = orders.stream().map(OrderEntity::getOrderId).toList();
+
+        List<DeliveryEntity> deliveries = new ArrayList<>();
+        List<FeedbackEntity> feedbacks = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            if (i % 2 == 0) {
+                deliveries.add(DeliveryEntity.createDelivery(orders.get(i), courier));
+            }
+            if (i % 4 == 0) {
+                feedbacks.add(FeedbackEntity.createFeedback(customer, orders.get(i), new FeedbackRequest(5, "On time")));
+            }
+        }
+        deliveryRepository.saveAll(deliveries);
+        feedbackRepository.saveAll(feedbacks);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        feedbackRepository.deleteAllInBatch();
+        deliveryRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void ordersOfAUserLoadInOneStatement() {
+        List<OrderEntity> orders = singleStatement(() -> orderRepository.findByUsername(customer.getUsername()));
+        assertLoaded(orders);
+    }
+
+    @Test
+    void ordersOfADateRangeLoadInOneStatement() {
+        List<OrderEntity> orders = singleStatement(() -> orderRepository.findByOrderDateBetween(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusMinutes(1)));
+        assertLoaded(orders);
+    }
+
+    @Test
+    void ordersByIdAndStatusLoadInOneStatement() {
+        List<OrderEntity> orders = singleStatement(() -> orderRepository.findByOrderIdInAndStatus(orderIds, OrderStatus.IN_TRANSIT));
+        assertLoaded(orders);
+    }
+
+    private <T> T singleStatement(Supplier<T> query) {
+        statistics.clear();
+        T result = query.get();
+        assertThat(statistics.getPrepareStatementCount()).as("statements").isEqualTo(1);
+        return result;
+    }
+
+    private void assertLoaded(List<OrderEntity> orders) {
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).filteredOn(order -> order.getDelivery() != null).hasSize(ORDERS / 2);
+        assertThat(orders).filteredOn(order -> order.getFeedback() != null).hasSize(ORDERS / 4);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getPayment()).isNull());
+    }
+}
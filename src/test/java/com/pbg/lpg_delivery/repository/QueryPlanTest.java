@@ -0,0 +1,148 @@
+package com.pbg.lpg_delivery.repository;
+
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every repository query against the migrated schema on H2 in MySQL mode, captures the SQL Hibernate issues
+ * and fails if the plan of any statement reads a whole table or index instead of seeking an index.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.pbg.lpg_delivery.repository.SqlCaptor")
+class QueryPlanTest {
+
+    /**
+     * H2 prints the access path of each table as a comment, {@code /* public.idx_name: column = ?1 *\/} for an
+     * index seek and {@code /* public.orders.tableScan *\/} or an index name without condition for a full scan.
+     */
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* (public\\.[\\w.]+) \\*/");
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 2, 20, 10, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private OrderRequestRepository orderRequestRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesSeekAnIndex() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UserEntity user = UserEntity.builder().userId(1L).build();
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("OrderRepository.findById", () -> orderRepository.findById(1L));
+        queries.put("OrderRepository.findByUsername", () -> orderRepository.findByUsername("john_doe"));
+        queries.put("OrderRepository.findByUsernameAndPhoneNumber",
+                () -> orderRepository.findByUsernameAndPhoneNumber("john_doe", "9876543210"));
+        queries.put("OrderRepository.findByOrderDateBetween",
+                () -> orderRepository.findByOrderDateBetween(NOW.minusDays(30), NOW));
+        queries.put("OrderRepository.findByIdAndUser", () -> orderRepository.findByIdAndUser(1L, user));
+        queries.put("OrderRepository.findByOrderIdWithDelivery", () -> orderRepository.findByOrderIdWithDelivery(1L));
+        queries.put("OrderRepository.findAllAssignedOrder", () -> orderRepository.findAllAssignedOrder());
+        queries.put("OrderRepository.findByOrderIdInAndStatus",
+                () -> orderRepository.findByOrderIdInAndStatus(List.of(1L, 2L, 3L), OrderStatus.IN_TRANSIT));
+        queries.put("OrderRepository.findOrderViewsByUserId", () -> orderRepository.findOrderViewsByUserId(1L));
+        queries.put("OrderRepository.findOrderRowsByUsernameAndPhoneNumber",
+                () -> orderRepository.findOrderRowsByUsernameAndPhoneNumber("john_doe", "9876543210"));
+        queries.put("OrderRepository.findOrderRowsByOrderDateBetween",
+                () -> orderRepository.findOrderRowsByOrderDateBetween(NOW.minusDays(30), NOW));
+        queries.put("OrderRepository.findWorklistRowsByDeliveryPersonAndStatus",
+                () -> orderRepository.findWorklistRowsByDeliveryPersonAndStatus(1L, OrderStatus.IN_TRANSIT));
+        queries.put("OrderRepository.findReportPage",
+                () -> orderRepository.findReportPage(NOW.minusDays(30), 0L, NOW, PageRequest.ofSize(100)));
+        queries.put("OrderRepository.streamReport", () -> transaction.executeWithoutResult(status -> {
+            try (Stream<?> rows = orderRepository.streamReport(NOW.minusDays(30), NOW)) {
+                rows.forEach(row -> { });
+            }
+        }));
+        queries.put("UserRepository.findByUsername", () -> userRepository.findByUsername("john_doe"));
+        queries.put("UserRepository.findByUsernameIn", () -> userRepository.findByUsernameIn(List.of("john_doe", "jane_doe")));
+        queries.put("DeliveryRepository.findOrderIdsByDeliveryPersonAndStatus",
+                () -> deliveryRepository.findOrderIdsByDeliveryPersonAndStatus(1L, OrderStatus.IN_TRANSIT));
+        queries.put("DeliveryRepository.countOrdersPerCourier",
+                () -> deliveryRepository.countOrdersPerCourier(OrderStatus.IN_TRANSIT));
+        queries.put("OrderRequestRepository.findByTrackingId",
+                () -> orderRequestRepository.findByTrackingId("3f0e5c1a-8d2b-4c55-9a57-0b8f0c2d7e11"));
+        queries.put("OrderRequestRepository.lockOldestByStatus", () -> transaction.executeWithoutResult(
+                status -> orderRequestRepository.lockOldestByStatus(OrderRequestStatus.QUEUED, PageRequest.ofSize(200))));
+        queries.put("LpgCylinderRepository.findByTypeAndWeight",
+                () -> lpgCylinderRepository.findByTypeAndWeight(CylinderType.DOMESTIC, 14.5));
+        queries.put("LpgCylinderRepository.findByType", () -> lpgCylinderRepository.findByType(CylinderType.DOMESTIC));
+        queries.put("LpgCylinderRepository.findAvailableCylinderByTypeAndWeight",
+                () -> lpgCylinderRepository.findAvailableCylinderByTypeAndWeight(CylinderType.DOMESTIC, 14.5));
+        queries.put("LpgCylinderRepository.reserveStock", () -> transaction.executeWithoutResult(
+                status -> lpgCylinderRepository.reserveStock(CylinderType.DOMESTIC, 14.5, 1)));
+        queries.put("LpgCylinderRepository.releaseStock", () -> transaction.executeWithoutResult(
+                status -> lpgCylinderRepository.releaseStock(CylinderType.DOMESTIC, 14.5, 1)));
+        queries.put("LpgCylinderRepository.adjustStock", () -> transaction.executeWithoutResult(
+                status -> lpgCylinderRepository.adjustStock(CylinderType.DOMESTIC, 14.5, 1)));
+        queries.put("LpgCylinderRepository.restock", () -> transaction.executeWithoutResult(
+                status -> lpgCylinderRepository.restock(CylinderType.DOMESTIC, 14.5, 1, 550.0)));
+
+        return queries.entrySet().stream()
+                .map(query -> DynamicTest.dynamicTest(query.getKey(), () -> assertSeeksIndexes(query.getValue())));
+    }
+
+    private void assertSeeksIndexes(Runnable query) throws SQLException {
+        SqlCaptor.clear();
+        query.run();
+        List<String> statements = SqlCaptor.statements();
+        assertThat(statements).as("captured statements").isNotEmpty();
+
+        for (String sql : statements) {
+            String plan = explain(sql);
+            Matcher fullScan = FULL_SCAN.matcher(plan);
+            assertThat(fullScan.find())
+                    .as("full scan of %s in plan of%n%s%n%s", fullScan.find(0) ? fullScan.group(1) : "", sql, plan)
+                    .isFalse();
+        }
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
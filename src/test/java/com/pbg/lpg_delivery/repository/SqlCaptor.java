@@ -0,0 +1,34 @@
+package com.pbg.lpg_delivery.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate sends to the database so tests can inspect it.
+ */
+public class SqlCaptor implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pbg.lpg_delivery.security;
+
+import com.pbg.lpg_delivery.exceptionHandler.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /** Encoder that blocks until the test releases it, so the pool can be saturated deterministically. */
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(blockingEncoder, meterRegistry, 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void rejectsWhenPoolAndQueueAreFull() throws Exception {
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHasher.encode("first"));
+        awaitGauge("lpg.auth.password.active", 1.0);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordHasher.matches("second", "hashed:second"));
+        awaitGauge("lpg.auth.password.queue", 1.0);
+
+        assertThat(passwordHasher.queueSize()).isEqualTo(1);
+        assertThat(meterRegistry.get("lpg.auth.password.queue").gauge().value()).isEqualTo(1.0);
+
+        assertThatThrownBy(() -> passwordHasher.encode("third"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .extracting("errorCode").isEqualTo("AUTH-5031");
+        assertThat(meterRegistry.get("lpg.auth.password.rejected").counter().count()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hashed:first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("lpg.auth.password.hash").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("lpg.auth.password.hash").tag("operation", "matches").timer().count()).isEqualTo(1);
+    }
+
+    private void awaitGauge(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(name).gauge().value() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.request.BatchOrderRequest;
+import com.pbg.lpg_delivery.model.request.ModifyOrderRequest;
+import com.pbg.lpg_delivery.model.responses.AutoDispatchResult;
+import com.pbg.lpg_delivery.model.responses.RouteStop;
+import com.pbg.lpg_delivery.repository.DeliveryRepository;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveCylinder;
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SpringBootTest(properties = "lpg.dispatch.auto.daily-capacity=4")
+class AutoDispatchServiceTest {
+
+    @Autowired
+    private AutoDispatchService autoDispatchService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        UserEntity admin = saveUser(userRepository, "dispatch_admin", Role.ADMIN);
+        saveUser(userRepository, "dispatch_customer", Role.CUSTOMER);
+        saveCylinder(lpgCylinderRepository, CylinderType.DOMESTIC, 550.0, 100);
+        signIn(admin);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM order_events");
+        deliveryRepository.deleteAll();
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void givesEachOrderToTheLeastLoadedCourier() {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        saveUser(userRepository, "dispatch_courier_b", Role.DELIVERY_PERSON);
+        saveUser(userRepository, "dispatch_courier_c", Role.DELIVERY_PERSON);
+        List<Long> busy = placeOrders(2);
+        busy.forEach(orderId -> deliveryService.assignOrderToDelivery(orderId, "dispatch_courier_a"));
+        placeOrders(7);
+
+        AutoDispatchResult result = autoDispatchService.dispatchPendingOrders();
+
+        assertThat(result).isEqualTo(new AutoDispatchResult(7, 0, 3));
+        assertThat(inTransitPerCourier()).containsOnly(
+                Map.entry("dispatch_courier_a", 3L),
+                Map.entry("dispatch_courier_b", 3L),
+                Map.entry("dispatch_courier_c", 3L));
+        assertThat(orderRepository.findAll()).allSatisfy(order ->
+                assertThat(order.getStatus()).isEqualTo(OrderStatus.IN_TRANSIT));
+        assertThat(deliveryRepository.findAll()).allSatisfy(delivery -> {
+            assertThat(delivery.getAssignedAt()).isNotNull();
+            assertThat(delivery.getExpectedDeliveryDate()).isAfter(delivery.getAssignedAt());
+        });
+        // both the manual and the automatic assignment expect the delivery by the end of the booked shift
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM deliveries d JOIN orders o " +
+                "ON o.order_id = d.order_id WHERE d.expected_delivery_date = o.slot_end", Long.class)).isEqualTo(9);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_events WHERE event_type = 'ORDER_ASSIGNED'", Long.class)).isEqualTo(9);
+    }
+
+    @Test
+    void leavesOrdersPendingOnceEveryCourierReachedTheDailyCapacity() {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        saveUser(userRepository, "dispatch_courier_b", Role.DELIVERY_PERSON);
+        placeOrders(10);
+
+        assertThat(autoDispatchService.dispatchPendingOrders()).isEqualTo(new AutoDispatchResult(8, 2, 2));
+        assertThat(inTransitPerCourier()).containsOnly(
+                Map.entry("dispatch_courier_a", 4L),
+                Map.entry("dispatch_courier_b", 4L));
+
+        // delivered orders free the courier up, but not the daily capacity
+        jdbcTemplate.update("UPDATE deliveries SET status = 'DELIVERED'");
+        assertThat(autoDispatchService.dispatchPendingOrders()).isEqualTo(new AutoDispatchResult(0, 2, 0));
+        assertThat(orderRepository.findAll())
+                .filteredOn(order -> order.getStatus() == OrderStatus.PENDING)
+                .hasSize(2);
+    }
+
+    @Test
+    void dispatchInvalidatesTheWorklistOfTheCourier() {
+        UserEntity courier = saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        placeOrders(2);
+        signIn(courier);
+        assertThat(deliveryService.getAllAssignedOrders()).isEmpty();
+
+        autoDispatchService.dispatchPendingOrders();
+
+        assertThat(deliveryService.getAllAssignedOrders()).flatExtracting(RouteStop::order).hasSize(2);
+    }
+
+    @Test
+    void doesNothingWithoutPendingOrders() {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+
+        assertThat(autoDispatchService.dispatchPendingOrders()).isEqualTo(new AutoDispatchResult(0, 0, 0));
+    }
+
+    @Test
+    void dispatchSkipsAnOrderBeingModified() throws Exception {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        Long orderId = placeOrders(1).get(0);
+        CountDownLatch modified = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> modification = inTransaction(() -> {
+            modifyAsCustomer(orderId, 2);
+            return null;
+        }, modified, commit);
+        assertThat(modified.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(autoDispatchService.dispatchPendingOrders()).isEqualTo(new AutoDispatchResult(0, 0, 0));
+
+        commit.countDown();
+        modification.get(10, TimeUnit.SECONDS);
+        assertThat(autoDispatchService.dispatchPendingOrders()).isEqualTo(new AutoDispatchResult(1, 0, 1));
+        assertThat(orderRepository.findById(orderId).orElseThrow().getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void aModificationWaitingForADispatchFindsTheOrderAssigned() throws Exception {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        Long orderId = placeOrders(1).get(0);
+        CountDownLatch dispatched = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<AutoDispatchResult> dispatch = inTransaction(() -> autoDispatchService.dispatchPendingOrders(),
+                dispatched, commit);
+        assertThat(dispatched.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> modification = executor.submit(() -> modifyAsCustomer(orderId, 2));
+        // give the modification time to read the order while the dispatch holds it
+        Thread.sleep(300);
+        commit.countDown();
+
+        assertThat(dispatch.get(10, TimeUnit.SECONDS)).isEqualTo(new AutoDispatchResult(1, 0, 1));
+        Throwable failure = catchThrowable(() -> modification.get(10, TimeUnit.SECONDS));
+        assertThat(failure).isInstanceOf(ExecutionException.class);
+        assertThat(failure.getCause()).isInstanceOfSatisfying(LpgException.class, ex ->
+                assertThat(ex.getErrorCode()).isEqualTo("LP-0010"));
+        assertThat(orderRepository.findById(orderId).orElseThrow()).satisfies(order -> {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.IN_TRANSIT);
+            assertThat(order.getQuantity()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void concurrentRunsTogetherRespectTheDailyCapacity() throws Exception {
+        saveUser(userRepository, "dispatch_courier_a", Role.DELIVERY_PERSON);
+        placeOrders(4);
+        CountDownLatch dispatched = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<AutoDispatchResult> first = inTransaction(() -> autoDispatchService.dispatchPendingOrders(),
+                dispatched, commit);
+        assertThat(dispatched.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // orders the first run has not locked, dispatched while it has not committed yet
+        placeOrders(2);
+        Future<AutoDispatchResult> second = executor.submit(() -> autoDispatchService.dispatchPendingOrders());
+        Thread.sleep(300);
+        commit.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(new AutoDispatchResult(4, 0, 1));
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo(new AutoDispatchResult(0, 2, 0));
+        assertThat(inTransitPerCourier()).containsOnly(Map.entry("dispatch_courier_a", 4L));
+    }
+
+    /**
+     * Runs the work in a transaction on another thread, counts {@code done} down once it returned and only commits
+     * once {@code commit} is counted down.
+     */
+    private <T> Future<T> inTransaction(Callable<T> work, CountDownLatch done, CountDownLatch commit) {
+        return executor.submit(() -> transactionTemplate.execute(status -> {
+            try {
+                T result = work.call();
+                done.countDown();
+                commit.await();
+                return result;
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }));
+    }
+
+    private void modifyAsCustomer(Long orderId, int quantity) {
+        signIn(userRepository.findByUsername("dispatch_customer").orElseThrow());
+        try {
+            orderService.modifyOrder(orderId, new ModifyOrderRequest(CylinderType.DOMESTIC, 14.5, quantity));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private List<Long> placeOrders(int count) {
+        List<BatchOrderRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new BatchOrderRequest("dispatch_customer", CylinderType.DOMESTIC, 14.5, 1));
+        }
+        orderService.createOrders(requests);
+        return jdbcTemplate.queryForList(
+                "SELECT order_id FROM orders WHERE status = 'PENDING' ORDER BY order_id DESC LIMIT ?", Long.class, count);
+    }
+
+    private Map<String, Long> inTransitPerCourier() {
+        return jdbcTemplate.queryForList("SELECT u.username FROM deliveries d JOIN users u " +
+                        "ON u.user_id = d.delivery_person_id WHERE d.status = 'IN_TRANSIT'", String.class)
+                .stream()
+                .collect(Collectors.groupingBy(username -> username, Collectors.counting()));
+    }
+}
@@ -0,0 +1,273 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.responses.DeliverySlot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 2025-02-22 is a Saturday, and Monday 2025-02-24 is a holiday in every test. Every test gets its own in-memory
+ * database with the shared counts, and the columns of the orders the counts are loaded from.
+ */
+class DeliverySlotSchedulerTest {
+
+    private static final LocalDateTime SATURDAY = LocalDateTime.of(2025, 2, 22, 0, 0);
+    private static final String SHIFTS = "09:00-13:00,14:00-18:00";
+    private static final String HOLIDAYS = "2025-02-24";
+    private static final long FULL_RECHECK_MILLIS = 30_000;
+
+    private final MutableClock clock = new MutableClock();
+    private final JdbcTemplate jdbcTemplate = database();
+
+    @Test
+    void skipsSundaysHolidaysAndShiftsWithinTheLeadTime() {
+        DeliverySlotScheduler scheduler = scheduler(14, 120, 10);
+
+        clock.set(SATURDAY.withHour(8));
+        assertThat(scheduler.book(order(28.63, 77.21))).isEqualTo(slot(SATURDAY.withHour(14), SATURDAY.withHour(18)));
+
+        // 14:00 is less than two hours away, Sunday is closed and Monday is a holiday
+        clock.set(SATURDAY.withHour(12).withMinute(30));
+        assertThat(scheduler.book(order(28.63, 77.21)))
+                .isEqualTo(slot(SATURDAY.plusDays(3).withHour(9), SATURDAY.plusDays(3).withHour(13)));
+    }
+
+    @Test
+    void fullShiftsSendOrdersToTheNextOneOfTheSameZone() {
+        DeliverySlotScheduler scheduler = scheduler(14, 0, 2);
+        clock.set(SATURDAY.withHour(7));
+        DeliverySlot morning = slot(SATURDAY.withHour(9), SATURDAY.withHour(13));
+        DeliverySlot afternoon = slot(SATURDAY.withHour(14), SATURDAY.withHour(18));
+
+        OrderEntity first = order(28.63, 77.21);
+        assertThat(scheduler.book(first)).isEqualTo(morning);
+        assertThat(scheduler.book(order(28.64, 77.22))).isEqualTo(morning);
+        assertThat(scheduler.nextAvailable(first.getUser())).isEqualTo(afternoon);
+        assertThat(scheduler.book(order(28.63, 77.21))).isEqualTo(afternoon);
+
+        // another zone, and customers without a position, have capacity of their own
+        assertThat(scheduler.book(order(19.07, 72.87))).isEqualTo(morning);
+        assertThat(scheduler.book(order(null, null))).isEqualTo(morning);
+        assertThat(first.getSlotEnd()).isEqualTo(morning.end());
+        assertThat(first.getDeliveryZone()).isEqualTo(scheduler.zoneOf(28.63, 77.21));
+    }
+
+    @Test
+    void concurrentBookingsNeverOverbook() throws Exception {
+        // from Saturday to the Monday holiday, only the two shifts of Saturday are open
+        DeliverySlotScheduler scheduler = scheduler(3, 0, 5);
+        clock.set(SATURDAY.withHour(7));
+        Map<DeliverySlot, AtomicInteger> booked = new ConcurrentHashMap<>();
+        AtomicInteger refused = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    try {
+                        booked.computeIfAbsent(scheduler.book(order(28.63, 77.21)), slot -> new AtomicInteger())
+                                .incrementAndGet();
+                    } catch (LpgException ex) {
+                        refused.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(booked).hasSize(2);
+        assertThat(booked.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(5));
+        assertThat(refused.get()).isEqualTo(190);
+    }
+
+    @Test
+    void cancelledOrdersGiveTheirShiftBack() {
+        DeliverySlotScheduler scheduler = scheduler(1, 0, 1);
+        clock.set(SATURDAY.withHour(7));
+
+        OrderEntity first = order(28.63, 77.21);
+        OrderEntity second = order(28.63, 77.21);
+        DeliverySlot morning = scheduler.book(first);
+        scheduler.book(second);
+        assertThatThrownBy(() -> scheduler.book(order(28.63, 77.21)))
+                .isInstanceOfSatisfying(LpgException.class, ex -> assertThat(ex.getErrorCode()).isEqualTo("LP-414"));
+
+        scheduler.releaseAfterCommit(first);
+        assertThat(scheduler.book(order(28.63, 77.21))).isEqualTo(morning);
+    }
+
+    @Test
+    void instancesSharingTheCountsNeverOverbookTogether() {
+        DeliverySlotScheduler first = scheduler(14, 0, 2);
+        DeliverySlotScheduler second = scheduler(14, 0, 2);
+        clock.set(SATURDAY.withHour(7));
+        DeliverySlot morning = slot(SATURDAY.withHour(9), SATURDAY.withHour(13));
+        DeliverySlot afternoon = slot(SATURDAY.withHour(14), SATURDAY.withHour(18));
+
+        assertThat(first.book(order(28.63, 77.21))).isEqualTo(morning);
+        assertThat(second.book(order(28.63, 77.21))).isEqualTo(morning);
+        // each instance booked the morning once, together they filled it
+        assertThat(first.book(order(28.63, 77.21))).isEqualTo(afternoon);
+        assertThat(second.book(order(28.63, 77.21))).isEqualTo(afternoon);
+        assertThat(booked(morning)).isEqualTo(2);
+        assertThat(booked(afternoon)).isEqualTo(2);
+    }
+
+    @Test
+    void reloadedCountsLeaveCancelledOrdersOut() {
+        DeliverySlotScheduler scheduler = scheduler(14, 0, 2);
+        clock.set(SATURDAY.withHour(7));
+        OrderEntity kept = order(28.63, 77.21);
+        OrderEntity cancelled = order(28.63, 77.21);
+        DeliverySlot morning = scheduler.book(kept);
+        scheduler.book(cancelled);
+        saveOrder(kept, "PENDING");
+        saveOrder(cancelled, "CANCELLED");
+        scheduler.releaseAfterCommit(cancelled);
+
+        // a restarted instance counts the orders again, and has room left without asking the shared counts
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DeliverySlotScheduler restarted = scheduler(meterRegistry, 14, 0, 2);
+        restarted.load();
+        assertThat(restarted.nextAvailable(kept.getUser())).isEqualTo(morning);
+        assertThat(restarted.book(order(28.63, 77.21))).isEqualTo(morning);
+        assertThat(meterRegistry.counter("lpg.slots.rechecked").count()).isZero();
+        assertThat(restarted.nextAvailable(kept.getUser()))
+                .isEqualTo(slot(SATURDAY.withHour(14), SATURDAY.withHour(18)));
+    }
+
+    @Test
+    void shiftsFreedOnAnotherInstanceAreOfferedAgain() {
+        DeliverySlotScheduler first = scheduler(14, 0, 1);
+        DeliverySlotScheduler second = scheduler(14, 0, 1);
+        clock.set(SATURDAY.withHour(7));
+        DeliverySlot morning = slot(SATURDAY.withHour(9), SATURDAY.withHour(13));
+        DeliverySlot afternoon = slot(SATURDAY.withHour(14), SATURDAY.withHour(18));
+        DeliverySlot tuesday = slot(SATURDAY.plusDays(3).withHour(9), SATURDAY.plusDays(3).withHour(13));
+
+        OrderEntity elsewhere = order(28.63, 77.21);
+        assertThat(second.book(elsewhere)).isEqualTo(morning);
+        assertThat(first.nextAvailable(elsewhere.getUser())).isEqualTo(afternoon);
+        assertThat(first.book(order(28.63, 77.21))).isEqualTo(afternoon);
+
+        second.releaseAfterCommit(elsewhere);
+        assertThat(first.nextAvailable(elsewhere.getUser())).isEqualTo(morning);
+        // the first instance found the morning full a moment ago and waits before asking again
+        assertThat(first.book(order(28.63, 77.21))).isEqualTo(tuesday);
+
+        clock.set(SATURDAY.withHour(7).plusSeconds(FULL_RECHECK_MILLIS / 1000));
+        assertThat(first.book(order(28.63, 77.21))).isEqualTo(morning);
+        assertThat(booked(morning)).isEqualTo(1);
+    }
+
+    @Test
+    void shiftsEnteringTheHorizonStartEmpty() {
+        // one shift a day over two days, from Tuesday
+        DeliverySlotScheduler scheduler = new DeliverySlotScheduler(jdbcTemplate, new SimpleMeterRegistry(), clock,
+                "09:00-13:00", HOLIDAYS, 2, 0, 1, 0.05, FULL_RECHECK_MILLIS);
+        LocalDateTime tuesday = SATURDAY.plusDays(3);
+        clock.set(tuesday.withHour(7));
+        scheduler.book(order(28.63, 77.21));
+        scheduler.book(order(28.63, 77.21));
+        assertThat(scheduler.nextAvailable(order(28.63, 77.21).getUser())).isNull();
+
+        // Thursday reuses the counters of Tuesday, whose shared count is purged
+        clock.set(tuesday.plusDays(1).withHour(7));
+        assertThat(scheduler.book(order(28.63, 77.21)))
+                .isEqualTo(slot(tuesday.plusDays(2).withHour(9), tuesday.plusDays(2).withHour(13)));
+        assertThatThrownBy(() -> scheduler.book(order(28.63, 77.21))).isInstanceOf(LpgException.class);
+        scheduler.purge();
+        assertThat(jdbcTemplate.queryForList("SELECT slot_start FROM slot_counts", LocalDateTime.class))
+                .containsExactlyInAnyOrder(tuesday.plusDays(1).withHour(9), tuesday.plusDays(2).withHour(9));
+    }
+
+    private DeliverySlotScheduler scheduler(int horizonDays, long leadTimeMinutes, int capacityPerShift) {
+        return scheduler(new SimpleMeterRegistry(), horizonDays, leadTimeMinutes, capacityPerShift);
+    }
+
+    private DeliverySlotScheduler scheduler(SimpleMeterRegistry meterRegistry, int horizonDays, long leadTimeMinutes,
+                                            int capacityPerShift) {
+        return new DeliverySlotScheduler(jdbcTemplate, meterRegistry, clock, SHIFTS, HOLIDAYS, horizonDays,
+                leadTimeMinutes, capacityPerShift, 0.05, FULL_RECHECK_MILLIS);
+    }
+
+    private static JdbcTemplate database() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:slots_" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE slot_counts (delivery_zone bigint NOT NULL, slot_start datetime(6) NOT NULL, " +
+                "booked int NOT NULL, PRIMARY KEY (delivery_zone, slot_start))");
+        jdbcTemplate.execute("CREATE TABLE orders (order_id bigint AUTO_INCREMENT PRIMARY KEY, " +
+                "slot_start datetime(6), delivery_zone bigint, status varchar(32) NOT NULL)");
+        return jdbcTemplate;
+    }
+
+    private void saveOrder(OrderEntity order, String status) {
+        jdbcTemplate.update("INSERT INTO orders (slot_start, delivery_zone, status) VALUES (?, ?, ?)",
+                order.getSlotStart(), order.getDeliveryZone(), status);
+    }
+
+    private int booked(DeliverySlot slot) {
+        return jdbcTemplate.queryForObject("SELECT SUM(booked) FROM slot_counts WHERE slot_start = ?", Integer.class,
+                slot.start());
+    }
+
+    private static OrderEntity order(Double latitude, Double longitude) {
+        return OrderEntity.builder()
+                .user(UserEntity.builder().latitude(latitude).longitude(longitude).build())
+                .build();
+    }
+
+    private static DeliverySlot slot(LocalDateTime start, LocalDateTime end) {
+        return new DeliverySlot(start, end);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.EPOCH;
+
+        void set(LocalDateTime time) {
+            instant = time.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
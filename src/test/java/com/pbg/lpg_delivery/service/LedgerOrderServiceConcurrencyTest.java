@@ -0,0 +1,25 @@
+package com.pbg.lpg_delivery.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the concurrency scenarios against the in-memory {@link StockLedger}, so the logged throughput can be
+ * compared with the database-only reservation path.
+ */
+@SpringBootTest(properties = "lpg.inventory.mode=ledger")
+class LedgerOrderServiceConcurrencyTest extends OrderServiceConcurrencyTest {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Override
+    void afterStockSeeded() {
+        stockLedger.reload();
+    }
+
+    @Override
+    void beforeStockRead() {
+        stockLedger.flush();
+    }
+}
@@ -0,0 +1,182 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderRequestStatus;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.model.responses.OrderRequestStatusResponse;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.OrderRequestRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveCylinder;
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static com.pbg.lpg_delivery.TestFixtures.stockOf;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drives the intake queue by hand: the scheduled drain only runs at startup, and the test has a database of its own
+ * so the drains of other test contexts do not take its requests either.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lpg_intake;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "lpg.orders.intake.poll-interval-ms=3600000",
+        "lpg.orders.intake.batch-size=4",
+        "lpg.orders.intake.max-attempts=3"
+})
+class OrderIntakeServiceTest {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OrderRequestRepository orderRequestRepository;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserEntity customer;
+    private UserEntity otherCustomer;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        customer = saveUser(userRepository, "intake_customer", Role.CUSTOMER);
+        otherCustomer = saveUser(userRepository, "intake_other_customer", Role.CUSTOMER);
+        saveCylinder(lpgCylinderRepository, CylinderType.DOMESTIC, 550.0, 10);
+        saveCylinder(lpgCylinderRepository, CylinderType.COMMERCIAL, 750.0, 100);
+        signIn(customer);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.execute("ALTER TABLE orders DROP CONSTRAINT IF EXISTS ck_orders_poisoned");
+        orderRequestRepository.deleteAll();
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void queuesOrdersAndPlacesThemInBatches() {
+        List<String> trackingIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            trackingIds.add(orderIntakeService.submit(new OrderRequest(CylinderType.COMMERCIAL, 18.5, 2)));
+        }
+        assertThat(trackingIds).allSatisfy(trackingId ->
+                assertThat(orderIntakeService.getStatus(trackingId).status()).isEqualTo(OrderRequestStatus.QUEUED));
+        assertThat(orderRepository.count()).isZero();
+
+        orderIntakeService.drainQueue();
+
+        assertThat(trackingIds).allSatisfy(trackingId -> {
+            OrderRequestStatusResponse status = orderIntakeService.getStatus(trackingId);
+            assertThat(status.status()).isEqualTo(OrderRequestStatus.ACCEPTED);
+            assertThat(status.orderId()).isNotNull();
+            assertThat(orderRepository.findById(status.orderId())).hasValueSatisfying(order -> {
+                assertThat(order.getQuantity()).isEqualTo(2);
+                assertThat(order.getTotalPrice()).isEqualTo(1500.0);
+            });
+        });
+        assertThat(orderRepository.count()).isEqualTo(10);
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.COMMERCIAL)).isEqualTo(80);
+    }
+
+    @Test
+    void rejectsOrdersThatNoLongerFitInStockInArrivalOrder() {
+        String first = orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 14.5, 6));
+        String second = orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 14.5, 6));
+        String third = orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 14.5, 4));
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.DOMESTIC)).isEqualTo(10);
+
+        orderIntakeService.drainQueue();
+
+        assertThat(orderIntakeService.getStatus(first).status()).isEqualTo(OrderRequestStatus.ACCEPTED);
+        assertThat(orderIntakeService.getStatus(second)).satisfies(status -> {
+            assertThat(status.status()).isEqualTo(OrderRequestStatus.REJECTED);
+            assertThat(status.errorCode()).isEqualTo("LP-103");
+            assertThat(status.orderId()).isNull();
+        });
+        assertThat(orderIntakeService.getStatus(third).status()).isEqualTo(OrderRequestStatus.ACCEPTED);
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.DOMESTIC)).isZero();
+    }
+
+    @Test
+    void aRequestThatKeepsFailingIsRejectedWithoutHoldingTheQueueUp() {
+        // orders of 13 cylinders cannot be inserted
+        jdbcTemplate.execute("ALTER TABLE orders ADD CONSTRAINT ck_orders_poisoned CHECK (quantity <> 13)");
+        List<String> trackingIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            trackingIds.add(orderIntakeService.submit(new OrderRequest(CylinderType.COMMERCIAL, 18.5, 2)));
+        }
+        String poisoned = orderIntakeService.submit(new OrderRequest(CylinderType.COMMERCIAL, 18.5, 13));
+        for (int i = 0; i < 2; i++) {
+            trackingIds.add(orderIntakeService.submit(new OrderRequest(CylinderType.COMMERCIAL, 18.5, 2)));
+        }
+
+        orderIntakeService.drainQueue();
+
+        // the orders of the failed batch went in one by one, the poisoned one waits for another attempt
+        assertThat(trackingIds.subList(0, 3)).allSatisfy(trackingId ->
+                assertThat(orderIntakeService.getStatus(trackingId).status()).isEqualTo(OrderRequestStatus.ACCEPTED));
+        assertThat(orderIntakeService.getStatus(poisoned).status()).isEqualTo(OrderRequestStatus.QUEUED);
+
+        orderIntakeService.drainQueue();
+        orderIntakeService.drainQueue();
+
+        assertThat(trackingIds).allSatisfy(trackingId ->
+                assertThat(orderIntakeService.getStatus(trackingId).status()).isEqualTo(OrderRequestStatus.ACCEPTED));
+        assertThat(orderIntakeService.getStatus(poisoned)).satisfies(status -> {
+            assertThat(status.status()).isEqualTo(OrderRequestStatus.REJECTED);
+            assertThat(status.errorCode()).isEqualTo("LP-415");
+        });
+        assertThat(orderRepository.count()).isEqualTo(5);
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.COMMERCIAL)).isEqualTo(90);
+    }
+
+    @Test
+    void validatesOrdersAtIntake() {
+        assertThatThrownBy(() -> orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 18.5, 1)))
+                .isInstanceOf(LpgException.class);
+        assertThatThrownBy(() -> orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 14.5, 0)))
+                .isInstanceOf(LpgException.class);
+
+        assertThat(orderRequestRepository.count()).isZero();
+    }
+
+    @Test
+    void customersOnlySeeTheirOwnOrders() {
+        String trackingId = orderIntakeService.submit(new OrderRequest(CylinderType.DOMESTIC, 14.5, 1));
+
+        signIn(otherCustomer);
+
+        assertThatThrownBy(() -> orderIntakeService.getStatus(trackingId))
+                .isInstanceOf(LpgException.class)
+                .extracting("errorCode").isEqualTo("LP-413");
+    }
+}
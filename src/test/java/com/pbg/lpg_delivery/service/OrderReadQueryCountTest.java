@@ -0,0 +1,213 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.model.entity.DeliveryEntity;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.OrderDetails;
+import com.pbg.lpg_delivery.model.responses.RouteStop;
+import com.pbg.lpg_delivery.model.responses.WorklistRow;
+import com.pbg.lpg_delivery.repository.DeliveryRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the number of SQL statements issued by the order read endpoints. They must run one query however many
+ * orders or customers are involved, and must not load any entity.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class OrderReadQueryCountTest {
+
+    private static final int CUSTOMERS = 5;
+    private static final int ORDERS_PER_CUSTOMER = 10;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private UserEntity admin;
+    private UserEntity courier;
+    private UserEntity firstCustomer;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        admin = saveUser(userRepository, "reads_admin", Role.ADMIN);
+        courier = saveUser(userRepository, "reads_courier", Role.DELIVERY_PERSON);
+
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            UserEntity customer = saveUser(userRepository, "reads_customer_" + c, Role.CUSTOMER);
+            if (c == 0) {
+                firstCustomer = customer;
+            }
+            for (int i = 0; i < ORDERS_PER_CUSTOMER; i++) {
+                orders.add(order(customer, OrderStatus.IN_TRANSIT, LocalDateTime.now().minusHours(i)));
+            }
+        }
+        orderRepository.insertAll(orders);
+        deliveryRepository.saveAll(orders.stream()
+                .map(order -> DeliveryEntity.createDelivery(order, courier))
+                .toList());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        deliveryRepository.deleteAll();
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void customerOrderDetailsUseOneQuery() {
+        signIn(firstCustomer);
+        OrderDetails details = countStatements(1, () -> orderService.getOrderDetails(null, null));
+        assertThat(details.order()).hasSize(ORDERS_PER_CUSTOMER);
+    }
+
+    @Test
+    void adminOrderDetailsUseOneQuery() {
+        signIn(admin);
+        OrderDetails details = countStatements(1,
+                () -> orderService.getOrderDetails(firstCustomer.getUsername(), firstCustomer.getPhoneNumber()));
+        assertThat(details.userInfo().username()).isEqualTo(firstCustomer.getUsername());
+        assertThat(details.order()).hasSize(ORDERS_PER_CUSTOMER);
+    }
+
+    @Test
+    void ordersByDateRangeUseOneQuery() {
+        signIn(admin);
+        List<OrderDetails> details = countStatements(1,
+                () -> orderService.getAllOrdersByDateRange(LocalDate.now().minusDays(1), LocalDate.now()));
+        assertThat(details).hasSize(CUSTOMERS)
+                .allSatisfy(customer -> assertThat(customer.order()).hasSize(ORDERS_PER_CUSTOMER));
+    }
+
+    @Test
+    void assignedOrdersUseOneQuery() {
+        signIn(courier);
+        List<RouteStop> route = countStatements(1, deliveryService::getAllAssignedOrders);
+        assertThat(route).hasSize(CUSTOMERS);
+    }
+
+    @Test
+    void unchangedWorklistRefreshOnlyChecksTheVersion() {
+        signIn(courier);
+        deliveryService.getAllAssignedOrders();
+        // the version check is a single JDBC read, the worklist query does not run
+        List<RouteStop> route = countStatements(0, deliveryService::getAllAssignedOrders);
+        assertThat(ordersIn(route)).isEqualTo(CUSTOMERS * ORDERS_PER_CUSTOMER);
+    }
+
+    @Test
+    void deliveredOrderInvalidatesWorklist() {
+        signIn(courier);
+        deliveryService.getAllAssignedOrders();
+        deliveryService.markAsDelivered(orderRepository.findAll().get(0).getOrderId());
+
+        List<RouteStop> after = countStatements(1, deliveryService::getAllAssignedOrders);
+        assertThat(ordersIn(after)).isEqualTo(CUSTOMERS * ORDERS_PER_CUSTOMER - 1);
+    }
+
+    @Test
+    void assignmentInvalidatesWorklist() {
+        OrderEntity pending = order(firstCustomer, OrderStatus.PENDING, LocalDateTime.now());
+        orderRepository.insertAll(List.of(pending));
+        signIn(courier);
+        deliveryService.getAllAssignedOrders();
+        deliveryService.assignOrderToDelivery(pending.getOrderId(), courier.getUsername());
+
+        List<RouteStop> after = countStatements(1, deliveryService::getAllAssignedOrders);
+        assertThat(ordersIn(after)).isEqualTo(CUSTOMERS * ORDERS_PER_CUSTOMER + 1);
+    }
+
+    @Test
+    void changesMadeOnAnotherInstanceInvalidateWorklist() {
+        CourierWorklistCache otherInstance = new CourierWorklistCache(jdbcTemplate, 100, 600);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<WorklistRow>> loader = () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+        otherInstance.get(courier.getUserId(), loader);
+        otherInstance.get(courier.getUserId(), loader);
+        assertThat(loads).hasValue(1);
+
+        signIn(courier);
+        deliveryService.markAsDelivered(orderRepository.findAll().get(0).getOrderId());
+
+        otherInstance.get(courier.getUserId(), loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static int ordersIn(List<RouteStop> route) {
+        return route.stream().mapToInt(stop -> stop.order().size()).sum();
+    }
+
+    private static OrderEntity order(UserEntity customer, OrderStatus status, LocalDateTime orderDate) {
+        return OrderEntity.builder()
+                .user(customer)
+                .cylinderType(CylinderType.DOMESTIC)
+                .capacity(CylinderType.DOMESTIC.getCapacity())
+                .quantity(1)
+                .totalPrice(550.0)
+                .status(status)
+                .orderDate(orderDate)
+                .build();
+    }
+
+    private <T> T countStatements(long expected, Supplier<T> read) {
+        statistics.clear();
+        T result = read.get();
+        assertThat(statistics.getPrepareStatementCount()).as("statements").isEqualTo(expected);
+        assertThat(statistics.getEntityLoadCount()).as("entities loaded").isZero();
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.responses.OrderReportPage;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class OrderReportServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 2, 1);
+
+    @Autowired
+    private OrderReportService orderReportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private List<Long> expectedIds;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        UserEntity admin = saveUser(userRepository, "report_admin", Role.ADMIN);
+        UserEntity customer = saveUser(userRepository, "report_customer", Role.CUSTOMER);
+
+        // several orders share a timestamp so pages have to break ties on the order id
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            orders.add(order(customer, START.atTime(10, 0).plusDays(i / 4)));
+        }
+        orders.add(order(customer, START.minusDays(1).atTime(23, 59)));
+        orders.add(order(customer, START.plusDays(10).atStartOfDay()));
+        orderRepository.insertAll(orders);
+        expectedIds = orders.subList(0, 23).stream().map(OrderEntity::getOrderId).toList();
+
+        signIn(admin);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void walksTheRangeWithKeysetPages() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderReportPage page = orderReportService.getOrdersPage(START, START.plusDays(9), cursor, 5);
+            page.orders().forEach(row -> seen.add(row.orderId()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyElementsOf(expectedIds);
+        assertThat(pages).isEqualTo(5);
+    }
+
+    @Test
+    void streamsTheRangeAsNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderReportService.streamOrders(START, START.plusDays(9)).writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(23);
+        assertThat(lines[0]).contains("\"username\":\"report_customer\"").contains("\"orderId\":" + expectedIds.get(0));
+    }
+
+    @Test
+    void rejectsMalformedCursorAndNonAdmins() {
+        assertThatThrownBy(() -> orderReportService.getOrdersPage(START, START, "not-a-cursor", 5))
+                .isInstanceOf(LpgException.class)
+                .extracting("errorCode").isEqualTo("LP-410");
+
+        signIn(userRepository.findByUsername("report_customer").orElseThrow());
+        assertThatThrownBy(() -> orderReportService.streamOrders(START, START))
+                .isInstanceOf(LpgException.class)
+                .extracting("errorCode").isEqualTo("LP-403");
+    }
+
+    private OrderEntity order(UserEntity user, LocalDateTime orderDate) {
+        return OrderEntity.builder()
+                .user(user)
+                .cylinderType(CylinderType.DOMESTIC)
+                .capacity(CylinderType.DOMESTIC.getCapacity())
+                .quantity(1)
+                .totalPrice(550.0)
+                .status(OrderStatus.PENDING)
+                .orderDate(orderDate)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.enums.OrderStatus;
+import com.pbg.lpg_delivery.model.request.BatchOrderRequest;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveCylinder;
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static com.pbg.lpg_delivery.TestFixtures.stockOf;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class OrderServiceBatchTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        UserEntity admin = saveUser(userRepository, "batch_admin", Role.ADMIN);
+        for (int i = 0; i < 30; i++) {
+            saveUser(userRepository, "batch_customer_" + i, Role.CUSTOMER);
+        }
+        saveCylinder(lpgCylinderRepository, CylinderType.COMMERCIAL, 750.0, 100);
+        saveCylinder(lpgCylinderRepository, CylinderType.DOMESTIC, 550.0, 100);
+
+        signIn(admin);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void placesAllOrdersAndReservesAggregateStock() {
+        List<BatchOrderRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            CylinderType type = i % 2 == 0 ? CylinderType.COMMERCIAL : CylinderType.DOMESTIC;
+            requests.add(new BatchOrderRequest("batch_customer_" + i, type, type.getCapacity(), 2));
+        }
+
+        assertThat(orderService.createOrders(requests)).isEqualTo(30);
+
+        List<OrderEntity> orders = orderRepository.findAll();
+        assertThat(orders).hasSize(30)
+                .allSatisfy(order -> {
+                    assertThat(order.getStatus()).isEqualTo(OrderStatus.PENDING);
+                    assertThat(order.getCreatedAt()).isNotNull();
+                });
+        assertThat(orderRepository.findByUsername("batch_customer_0"))
+                .singleElement()
+                .satisfies(order -> assertThat(order.getTotalPrice()).isEqualTo(1500.0));
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.COMMERCIAL)).isEqualTo(70);
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.DOMESTIC)).isEqualTo(70);
+    }
+
+    @Test
+    void rejectsTheWholeBatchWhenStockIsShort() {
+        List<BatchOrderRequest> requests = List.of(
+                new BatchOrderRequest("batch_customer_0", CylinderType.DOMESTIC, 14.5, 10),
+                new BatchOrderRequest("batch_customer_1", CylinderType.COMMERCIAL, 18.5, 60),
+                new BatchOrderRequest("batch_customer_2", CylinderType.COMMERCIAL, 18.5, 60));
+
+        assertThatThrownBy(() -> orderService.createOrders(requests))
+                .isInstanceOf(LpgException.class)
+                .extracting("errorCode").isEqualTo("LP-103");
+
+        assertThat(orderRepository.count()).isZero();
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.COMMERCIAL)).isEqualTo(100);
+        assertThat(stockOf(lpgCylinderRepository, CylinderType.DOMESTIC)).isEqualTo(100);
+    }
+}
@@ -0,0 +1,239 @@
+package com.pbg.lpg_delivery.service;
+
+import com.pbg.lpg_delivery.common.Role;
+import com.pbg.lpg_delivery.exceptionHandler.LpgException;
+import com.pbg.lpg_delivery.model.entity.LpgCylinderEntity;
+import com.pbg.lpg_delivery.model.entity.OrderEntity;
+import com.pbg.lpg_delivery.model.entity.UserEntity;
+import com.pbg.lpg_delivery.model.enums.CylinderType;
+import com.pbg.lpg_delivery.model.request.ModifyOrderRequest;
+import com.pbg.lpg_delivery.model.request.OrderRequest;
+import com.pbg.lpg_delivery.repository.LpgCylinderRepository;
+import com.pbg.lpg_delivery.repository.OrderRepository;
+import com.pbg.lpg_delivery.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.pbg.lpg_delivery.TestFixtures.saveUser;
+import static com.pbg.lpg_delivery.TestFixtures.signIn;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderServiceConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceConcurrencyTest.class);
+
+    private static final String CUSTOMER = "concurrent_customer";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private LpgCylinderRepository lpgCylinderRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserEntity customer;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        customer = saveUser(userRepository, CUSTOMER, Role.CUSTOMER);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        lpgCylinderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void stockNeverGoesNegativeUnderConcurrentOrders() throws InterruptedException {
+        int initialStock = 500;
+        int orders = 2_000;
+        seedDomesticStock(initialStock);
+
+        RunResult result = placeOrdersConcurrently(32, orders);
+
+        assertThat(result.failuresByCode()).containsOnlyKeys("LP-103");
+        assertThat(result.succeeded()).isEqualTo(initialStock);
+        assertThat(result.failuresByCode().get("LP-103").get()).isEqualTo(orders - initialStock);
+        assertThat(domesticStock()).isZero();
+        assertThat(orderRepository.count()).isEqualTo(initialStock);
+    }
+
+    @Test
+    void reportsThroughputForIncreasingThreadCounts() throws InterruptedException {
+        int ordersPerRun = 1_000;
+        int initialStock = ordersPerRun * 3;
+        seedDomesticStock(initialStock);
+
+        int placed = 0;
+        for (int threads : List.of(1, 4, 16)) {
+            RunResult result = placeOrdersConcurrently(threads, ordersPerRun);
+            assertThat(result.failuresByCode()).isEmpty();
+            placed += result.succeeded();
+            logger.info("{} thread(s): {} orders in {} ms ({} orders/s)", threads, result.succeeded(),
+                    result.elapsedMillis(), result.succeeded() * 1000L / Math.max(1, result.elapsedMillis()));
+        }
+
+        assertThat(domesticStock()).isEqualTo(initialStock - placed);
+        assertThat(orderRepository.count()).isEqualTo(placed);
+    }
+
+    @Test
+    void ordersSwappedInOppositeDirectionsDoNotDeadlock() throws InterruptedException {
+        int initialStock = 100;
+        int ordersPerType = 8;
+        int swaps = 10;
+        saveStock(CylinderType.DOMESTIC, initialStock);
+        saveStock(CylinderType.COMMERCIAL, initialStock);
+        afterStockSeeded();
+        signIn(customer);
+        try {
+            for (int i = 0; i < ordersPerType; i++) {
+                orderService.createOrder(new OrderRequest(CylinderType.DOMESTIC, CylinderType.DOMESTIC.getCapacity(), 1));
+                orderService.createOrder(new OrderRequest(CylinderType.COMMERCIAL, CylinderType.COMMERCIAL.getCapacity(), 1));
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        List<OrderEntity> orders = orderRepository.findAll();
+
+        Map<String, AtomicInteger> failuresByCode = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(orders.size());
+        ExecutorService executor = Executors.newFixedThreadPool(orders.size());
+        try {
+            for (OrderEntity order : orders) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        signIn(customer);
+                        CylinderType type = order.getCylinderType();
+                        for (int swap = 0; swap < swaps; swap++) {
+                            type = type == CylinderType.DOMESTIC ? CylinderType.COMMERCIAL : CylinderType.DOMESTIC;
+                            try {
+                                orderService.modifyOrder(order.getOrderId(),
+                                        new ModifyOrderRequest(type, type.getCapacity(), 1));
+                            } catch (LpgException ex) {
+                                failuresByCode.computeIfAbsent(ex.getErrorCode(), code -> new AtomicInteger())
+                                        .incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            assertThat(done.await(2, TimeUnit.MINUTES)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(failuresByCode).isEmpty();
+        // every order was swapped an even number of times, back to its first cylinder
+        assertThat(stockOf(CylinderType.DOMESTIC)).isEqualTo(initialStock - ordersPerType);
+        assertThat(stockOf(CylinderType.COMMERCIAL)).isEqualTo(initialStock - ordersPerType);
+    }
+
+    private void seedDomesticStock(int stock) {
+        saveStock(CylinderType.DOMESTIC, stock);
+        afterStockSeeded();
+    }
+
+    private void saveStock(CylinderType type, int stock) {
+        lpgCylinderRepository.save(LpgCylinderEntity.builder()
+                .type(type)
+                .weight(type.getCapacity())
+                .price(550.0)
+                .stockQuantity(stock)
+                .build());
+    }
+
+    /**
+     * Hook for stock modes that cache the table content.
+     */
+    void afterStockSeeded() {
+    }
+
+    /**
+     * Hook for stock modes that write the table asynchronously.
+     */
+    void beforeStockRead() {
+    }
+
+    private int domesticStock() {
+        return stockOf(CylinderType.DOMESTIC);
+    }
+
+    private int stockOf(CylinderType type) {
+        beforeStockRead();
+        return lpgCylinderRepository.findByTypeAndWeight(type, type.getCapacity())
+                .orElseThrow()
+                .getStockQuantity();
+    }
+
+    private RunResult placeOrdersConcurrently(int threads, int orders) throws InterruptedException {
+        OrderRequest request = new OrderRequest(CylinderType.DOMESTIC, CylinderType.DOMESTIC.getCapacity(), 1);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        Map<String, AtomicInteger> failuresByCode = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(orders);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < orders; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        signIn(customer);
+                        orderService.createOrder(request);
+                        succeeded.incrementAndGet();
+                    } catch (LpgException ex) {
+                        failuresByCode.computeIfAbsent(ex.getErrorCode(), code -> new AtomicInteger()).incrementAndGet();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                        done.countDown();
+                    }
+                });
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+            assertThat(done.await(2, TimeUnit.MINUTES)).isTrue();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            return new RunResult(succeeded.get(), failuresByCode, elapsedMillis);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record RunResult(int succeeded, Map<String, AtomicInteger> failuresByCode, long elapsedMillis) {
+    }
+}